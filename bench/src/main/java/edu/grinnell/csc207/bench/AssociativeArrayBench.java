@@ -0,0 +1,149 @@
+package edu.grinnell.csc207.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.grinnell.csc207.util.AssociativeArray;
+
+/**
+ * Benchmarks of the basic AssociativeArray operations at sizes from ten
+ * pairs to a million. Each operation picks the next key in a shuffled
+ * order, so the lookups do not all hit the same cache lines.
+ *
+ * @author Tiffany Tang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssociativeArrayBench {
+  // +-------+-------------------------------------------------------
+  // | State |
+  // +-------+
+
+  /** The number of pairs in the array. */
+  @Param({ "10", "1000", "100000", "1000000" })
+  int size;
+
+  /** The array. */
+  AssociativeArray<String, String> arr;
+
+  /** The keys in the array, shuffled. */
+  String[] keys;
+
+  /** Keys that are not in the array. */
+  String[] missing;
+
+  /** The position of the next key to use. */
+  int next;
+
+  /**
+   * Fills the array.
+   */
+  @Setup
+  public void setUp() {
+    this.arr = new AssociativeArray<>();
+    this.keys = new String[this.size];
+    this.missing = new String[this.size];
+    for (int i = 0; i < this.size; i++) {
+      this.keys[i] = "img/food/icons8-item-" + i + "-96.png";
+      this.missing[i] = "img/food/icons8-none-" + i + "-96.png";
+      this.arr.set(this.keys[i], "item " + i);
+    } // for
+    java.util.Random random = new java.util.Random(207);
+    for (int i = this.size - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      String key = this.keys[i];
+      this.keys[i] = this.keys[j];
+      this.keys[j] = key;
+    } // for
+    this.next = 0;
+  } // setUp()
+
+  /**
+   * Returns the next key to use.
+   *
+   * @return a key in the array
+   */
+  String nextKey() {
+    if (++this.next == this.size) {
+      this.next = 0;
+    } // if
+    return this.keys[this.next];
+  } // nextKey()
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  /**
+   * Looks up a key that is there.
+   */
+  @Benchmark
+  public String get() throws Exception {
+    return this.arr.get(this.nextKey());
+  } // get()
+
+  /**
+   * Checks for a key that is there.
+   */
+  @Benchmark
+  public boolean hasKey() {
+    return this.arr.hasKey(this.nextKey());
+  } // hasKey()
+
+  /**
+   * Checks for a key that is not there.
+   */
+  @Benchmark
+  public boolean hasKeyMissing() {
+    this.nextKey();
+    return this.arr.hasKey(this.missing[this.next]);
+  } // hasKeyMissing()
+
+  /**
+   * Replaces the value of a key that is there.
+   */
+  @Benchmark
+  public void set() {
+    String key = this.nextKey();
+    this.arr.set(key, key);
+  } // set()
+
+  /**
+   * Removes a key and adds it back (at the end), so the size stays the
+   * same. Removing keeps the pairs in order, so it moves every later pair
+   * down one place and updates its table slot: on average, half the
+   * array. At the larger sizes this benchmark therefore measures that
+   * O(n) shift (about half a million pairs per call at size=1000000),
+   * not the hash lookup, and should not be read as the cost of a typical
+   * edit.
+   */
+  @Benchmark
+  public void removeAndSet() {
+    String key = this.nextKey();
+    this.arr.remove(key);
+    this.arr.set(key, key);
+  } // removeAndSet()
+
+  /**
+   * Copies the whole array.
+   */
+  @Benchmark
+  public AssociativeArray<String, String> cloneArray() {
+    return this.arr.clone();
+  } // cloneArray()
+} // class AssociativeArrayBench
@@ -0,0 +1,33 @@
+package edu.grinnell.csc207.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks, always with the GC profiler so that every result
+ * comes with its allocation rate (gc.alloc.rate.norm is the number of
+ * bytes allocated per operation). Takes the usual JMH command line, so
+ * for example
+ *
+ *   java -jar bench/target/benchmarks.jar AssociativeArrayBench -p size=1000
+ *
+ * runs one benchmark class at one size.
+ *
+ * @author Tiffany Tang
+ */
+public class BenchmarkMain {
+  /**
+   * Runs the benchmarks.
+   *
+   * @param args JMH command-line options
+   * @throws Exception if JMH cannot run them
+   */
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build()).run();
+  } // main(String[])
+} // class BenchmarkMain
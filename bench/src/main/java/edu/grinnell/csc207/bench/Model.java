@@ -0,0 +1,117 @@
+package edu.grinnell.csc207.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.Consumer;
+
+/**
+ * Handles on the AAC model classes. Those classes live in the unnamed
+ * package, which Java code in a named package cannot name, and JMH will
+ * not generate benchmarks in the unnamed package; so the benchmarks reach
+ * them through method handles instead. The handles are static final, so
+ * the JIT inlines them just like ordinary calls, and the benchmarks call
+ * them with invokeExact on Object receivers.
+ *
+ * @author Tiffany Tang
+ */
+final class Model {
+  /** new AACMappings(String filename): (String)Object. */
+  static final MethodHandle NEW_MAPPINGS;
+
+  /** new AACCategory(String name): (String)Object. */
+  static final MethodHandle NEW_CATEGORY;
+
+  /** AACPage.addItem: (Object, String, String)void. */
+  static final MethodHandle ADD_ITEM;
+
+  /** AACPage.select: (Object, String)String. */
+  static final MethodHandle SELECT;
+
+  /** AACMappings.reset: (Object)void. */
+  static final MethodHandle RESET;
+
+  /** AACPage.getImageLocs(): (Object)String[]. */
+  static final MethodHandle GET_IMAGE_LOCS;
+
+  /** AACPage.getImageLocs(int, int): (Object, int, int)String[]. */
+  static final MethodHandle GET_IMAGE_WINDOW;
+
+  /** AACMappings.writeToFile: (Object, String)void. */
+  static final MethodHandle WRITE_TO_FILE;
+
+  /**
+   * new AACSession(page, null, pageSize, false, null): (Object, int)Object.
+   * A session with no journal and nothing to speak with.
+   */
+  static final MethodHandle NEW_SESSION;
+
+  /** AACSession.perform: (Object, String)void. */
+  static final MethodHandle PERFORM;
+
+  /** AACSession.getState, then State.size: (Object)int. */
+  static final MethodHandle SHOWN;
+
+  /** AACSession.getState, then State.getImage: (Object, int)String. */
+  static final MethodHandle SHOWN_IMAGE;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      Class<?> page = Class.forName("AACPage");
+      Class<?> mappings = Class.forName("AACMappings");
+      Class<?> category = Class.forName("AACCategory");
+      Class<?> session = Class.forName("AACSession");
+      Class<?> state = Class.forName("AACSession$State");
+      NEW_MAPPINGS = lookup.findConstructor(mappings,
+          MethodType.methodType(void.class, String.class))
+          .asType(MethodType.methodType(Object.class, String.class));
+      NEW_CATEGORY = lookup.findConstructor(category,
+          MethodType.methodType(void.class, String.class))
+          .asType(MethodType.methodType(Object.class, String.class));
+      ADD_ITEM = lookup.findVirtual(page, "addItem",
+          MethodType.methodType(void.class, String.class, String.class))
+          .asType(MethodType.methodType(void.class, Object.class, String.class, String.class));
+      SELECT = lookup.findVirtual(page, "select",
+          MethodType.methodType(String.class, String.class))
+          .asType(MethodType.methodType(String.class, Object.class, String.class));
+      RESET = lookup.findVirtual(mappings, "reset",
+          MethodType.methodType(void.class))
+          .asType(MethodType.methodType(void.class, Object.class));
+      GET_IMAGE_LOCS = lookup.findVirtual(page, "getImageLocs",
+          MethodType.methodType(String[].class))
+          .asType(MethodType.methodType(String[].class, Object.class));
+      GET_IMAGE_WINDOW = lookup.findVirtual(page, "getImageLocs",
+          MethodType.methodType(String[].class, int.class, int.class))
+          .asType(MethodType.methodType(String[].class, Object.class, int.class, int.class));
+      WRITE_TO_FILE = lookup.findVirtual(mappings, "writeToFile",
+          MethodType.methodType(void.class, String.class))
+          .asType(MethodType.methodType(void.class, Object.class, String.class));
+      MethodHandle newSession = lookup.findConstructor(session,
+          MethodType.methodType(void.class, page, Class.forName("AACJournal"), int.class,
+              boolean.class, Consumer.class));
+      newSession = MethodHandles.insertArguments(newSession, 3, false, null);
+      NEW_SESSION = MethodHandles.insertArguments(newSession, 1, (Object) null)
+          .asType(MethodType.methodType(Object.class, Object.class, int.class));
+      PERFORM = lookup.findVirtual(session, "perform",
+          MethodType.methodType(void.class, String.class))
+          .asType(MethodType.methodType(void.class, Object.class, String.class));
+      MethodHandle getState = lookup.findVirtual(session, "getState",
+          MethodType.methodType(state));
+      SHOWN = MethodHandles.filterArguments(lookup.findVirtual(state, "size",
+          MethodType.methodType(int.class)), 0, getState)
+          .asType(MethodType.methodType(int.class, Object.class));
+      SHOWN_IMAGE = MethodHandles.filterArguments(lookup.findVirtual(state, "getImage",
+          MethodType.methodType(String.class, int.class)), 0, getState)
+          .asType(MethodType.methodType(String.class, Object.class, int.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    } // try-catch
+  } // static
+
+  /**
+   * Do not make any.
+   */
+  private Model() {
+  } // Model()
+} // class Model
@@ -0,0 +1,230 @@
+package edu.grinnell.csc207.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the AAC model: selecting images in a category and in a
+ * set of mappings, listing the images on a page (all of them, and one
+ * screenful), and loading and saving a mappings file. The board has
+ * ten categories, each with the same number of items as the category.
+ *
+ * @author Tiffany Tang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBench {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The number of categories on the board. */
+  static final int CATEGORIES = 10;
+
+  /** The number of images shown at once on the default 3 by 3 grid. */
+  static final int PAGE = 9;
+
+  // +-------+-------------------------------------------------------
+  // | State |
+  // +-------+
+
+  /** The number of items in each category. */
+  @Param({ "10", "1000", "100000" })
+  int items;
+
+  /** A category holding items items. */
+  Object category;
+
+  /** Mappings read from the board file, showing the first category. */
+  Object mappings;
+
+  /** The location of the first category's image. */
+  String categoryLoc;
+
+  /** The locations of the items of the category. */
+  String[] categoryItemLocs;
+
+  /** The locations of the items of the first category of the mappings. */
+  String[] itemLocs;
+
+  /** The board file. */
+  Path file;
+
+  /** A file to save to. */
+  Path copy;
+
+  /** The position of the next item to use. */
+  int next;
+
+  /**
+   * Writes a board file and reads it back.
+   *
+   * @throws Throwable if the model cannot be built
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Throwable {
+    this.categoryItemLocs = new String[this.items];
+    this.itemLocs = new String[this.items];
+    this.category = (Object) Model.NEW_CATEGORY.invokeExact("food");
+    for (int i = 0; i < this.items; i++) {
+      this.categoryItemLocs[i] = "img/food/icons8-item-" + i + "-96.png";
+      this.itemLocs[i] = "img/category-0/icons8-item-" + i + "-96.png";
+      Model.ADD_ITEM.invokeExact(this.category, this.categoryItemLocs[i], "item " + i);
+    } // for
+
+    this.file = Files.createTempFile("bench", ".txt");
+    this.copy = Files.createTempFile("bench", ".txt");
+    try (BufferedWriter out = Files.newBufferedWriter(this.file)) {
+      for (int c = 0; c < CATEGORIES; c++) {
+        out.write("img/category-" + c + ".png category " + c);
+        out.newLine();
+        for (int i = 0; i < this.items; i++) {
+          out.write(">img/category-" + c + "/icons8-item-" + i + "-96.png item " + i);
+          out.newLine();
+        } // for
+      } // for
+    } // try
+    this.categoryLoc = "img/category-0.png";
+    this.mappings = (Object) Model.NEW_MAPPINGS.invokeExact(this.file.toString());
+    String unused = (String) Model.SELECT.invokeExact(this.mappings, this.categoryLoc);
+    this.next = 0;
+  } // setUp()
+
+  /**
+   * Deletes the files.
+   *
+   * @throws IOException if they cannot be deleted
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(this.file);
+    Files.deleteIfExists(this.copy);
+  } // tearDown()
+
+  /**
+   * Returns the position of the next item to use.
+   *
+   * @return the position
+   */
+  int nextItem() {
+    if (++this.next == this.items) {
+      this.next = 0;
+    } // if
+    return this.next;
+  } // nextItem()
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  /**
+   * Selects an item of a category on its own.
+   *
+   * @return the text to speak
+   * @throws Throwable if the item is not there
+   */
+  @Benchmark
+  public String categorySelect() throws Throwable {
+    return (String) Model.SELECT.invokeExact(this.category,
+        this.categoryItemLocs[this.nextItem()]);
+  } // categorySelect()
+
+  /**
+   * Selects an item of the category the mappings are showing.
+   *
+   * @return the text to speak
+   * @throws Throwable if the item is not there
+   */
+  @Benchmark
+  public String mappingsSelect() throws Throwable {
+    return (String) Model.SELECT.invokeExact(this.mappings, this.itemLocs[this.nextItem()]);
+  } // mappingsSelect()
+
+  /**
+   * Goes to the home page and back into a category.
+   *
+   * @return the empty string
+   * @throws Throwable if the category is not there
+   */
+  @Benchmark
+  public String mappingsSelectCategory() throws Throwable {
+    Model.RESET.invokeExact(this.mappings);
+    return (String) Model.SELECT.invokeExact(this.mappings, this.categoryLoc);
+  } // mappingsSelectCategory()
+
+  /**
+   * Lists every image of the category being shown.
+   *
+   * @return the image locations
+   * @throws Throwable never
+   */
+  @Benchmark
+  public String[] mappingsGetImageLocs() throws Throwable {
+    return (String[]) Model.GET_IMAGE_LOCS.invokeExact(this.mappings);
+  } // mappingsGetImageLocs()
+
+  /**
+   * Lists one screenful of the images of the category being shown.
+   *
+   * @return the image locations
+   * @throws Throwable never
+   */
+  @Benchmark
+  public String[] mappingsGetImageWindow() throws Throwable {
+    return (String[]) Model.GET_IMAGE_WINDOW.invokeExact(this.mappings,
+        this.nextItem() / PAGE * PAGE, PAGE);
+  } // mappingsGetImageWindow()
+
+  /**
+   * Reads the board file.
+   *
+   * @return the mappings
+   * @throws Throwable if the file cannot be read
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 5)
+  @Measurement(iterations = 10)
+  public Object load() throws Throwable {
+    return (Object) Model.NEW_MAPPINGS.invokeExact(this.file.toString());
+  } // load()
+
+  /**
+   * Changes one item and writes the whole board. (Writing with nothing
+   * changed does nothing, so every save follows an edit.)
+   *
+   * @throws Throwable if the file cannot be written
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 5)
+  @Measurement(iterations = 10)
+  public void save() throws Throwable {
+    int n = this.nextItem();
+    Model.ADD_ITEM.invokeExact(this.mappings, this.itemLocs[n], "item " + n);
+    Model.WRITE_TO_FILE.invokeExact(this.mappings, this.copy.toString());
+  } // save()
+} // class ModelBench
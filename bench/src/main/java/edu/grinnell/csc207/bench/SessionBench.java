@@ -0,0 +1,114 @@
+package edu.grinnell.csc207.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of headless AAC sessions: how many taps per second a
+ * session can take (paging, going into categories and selecting items,
+ * with nothing drawn or spoken), and how long opening a session takes.
+ *
+ * @author Tiffany Tang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionBench {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The number of categories on the board. */
+  static final int CATEGORIES = 10;
+
+  /** The number of items in each category. */
+  static final int ITEMS = 50;
+
+  /** The number of images on a page. */
+  static final int PAGE = 9;
+
+  /** The commands a tap can send besides an image. */
+  static final String[] COMMANDS = { "", "back", "next" };
+
+  // +-------+-------------------------------------------------------
+  // | State |
+  // +-------+
+
+  /** The board. */
+  Object board;
+
+  /** A session on the board. */
+  Object session;
+
+  /** Chooses the taps. */
+  Random random;
+
+  /**
+   * Builds the board and opens a session on it.
+   *
+   * @throws Throwable if the model cannot be built
+   */
+  @Setup
+  public void setUp() throws Throwable {
+    this.board = (Object) Model.NEW_MAPPINGS.invokeExact((String) null);
+    for (int c = 0; c < CATEGORIES; c++) {
+      String categoryLoc = "img/category-" + c + ".png";
+      Model.ADD_ITEM.invokeExact(this.board, categoryLoc, "category " + c);
+      String unused = (String) Model.SELECT.invokeExact(this.board, categoryLoc);
+      for (int i = 0; i < ITEMS; i++) {
+        Model.ADD_ITEM.invokeExact(this.board, "img/category-" + c + "/item-" + i + ".png",
+            "item " + i);
+      } // for
+      Model.RESET.invokeExact(this.board);
+    } // for
+    this.session = (Object) Model.NEW_SESSION.invokeExact(this.board, PAGE);
+    this.random = new Random(207);
+  } // setUp()
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  /**
+   * Taps a random image in view half the time, and home, back or next
+   * the rest.
+   *
+   * @throws Throwable never
+   */
+  @Benchmark
+  public void tap() throws Throwable {
+    int shown = (int) Model.SHOWN.invokeExact(this.session);
+    if (shown > 0 && this.random.nextBoolean()) {
+      Model.PERFORM.invokeExact(this.session,
+          (String) Model.SHOWN_IMAGE.invokeExact(this.session, this.random.nextInt(shown)));
+    } else {
+      Model.PERFORM.invokeExact(this.session, COMMANDS[this.random.nextInt(COMMANDS.length)]);
+    } // if-else
+  } // tap()
+
+  /**
+   * Opens a session on the board.
+   *
+   * @return the session
+   * @throws Throwable never
+   */
+  @Benchmark
+  public Object open() throws Throwable {
+    Model.RESET.invokeExact(this.board);
+    return (Object) Model.NEW_SESSION.invokeExact(this.board, PAGE);
+  } // open()
+} // class SessionBench
@@ -2,9 +2,12 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.ImageIcon;
+import javax.swing.JScrollPane;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JFileChooser;
+import javax.swing.AbstractAction;
+import javax.swing.KeyStroke;
 
 import java.awt.BorderLayout;
 import java.awt.Container;
@@ -16,6 +19,9 @@ import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 import java.util.Locale;
 import java.util.Scanner;
 
@@ -34,13 +40,28 @@ public class AAC implements ActionListener {
 
 	private JFrame frame;
 	private static Synthesizer synthesizer;
-	private int startIndex;
-	private int endIndex;
+	private static SpeechScheduler speech;
+	private static SpeechCache speechCache;
 	private static final int NUM_ACROSS = 3;
 	private static final int NUM_DOWN = 3;
-	private String[] images;
-	private AACPage page;
+	private final int numAcross;
+	private final int numDown;
+	private final boolean scroll;
+	private SymbolGrid symbolGrid;
+	private static final int CELL_PADDING = 20;
+	private AACSession session;
+	private int shownTurns;
 	private Scanner input;
+	private IconCache icons;
+	private JLabel categoryLabel;
+	private JButton backArrow;
+	private JButton nextArrow;
+	private JButton[] cells;
+	private int cellWidth;
+	private int cellHeight;
+	private static final Metrics.Timer TAP = Metrics.timer("tap");
+	private static final Metrics.Timer LOAD = Metrics.timer("model.load");
+	private static final Metrics.Timer LOAD_IMAGES = Metrics.timer("view.loadImages");
 
 	/**
 	 * Creates the AAC display for the file provided
@@ -49,14 +70,67 @@ public class AAC implements ActionListener {
 	 *                 will be in the AAC
 	 */
 	public AAC(String filename) {
-		// this.page = new AACCategory("test");
-		this.page = new AACMappings(filename);
-		this.images = this.page.getImageLocs();
-		this.startIndex = 0;
-		this.endIndex = Math.min(NUM_ACROSS * NUM_DOWN, this.images.length);
+		this(filename, NUM_ACROSS, NUM_DOWN, false);
+	}
+
+	/**
+	 * Creates the AAC display for the file provided with a grid of the given
+	 * size. In scroll mode, the grid shows numDown rows at a time and scrolls
+	 * through the rest instead of paging.
+	 *
+	 * @param filename  the name of the file that contains the images and text that
+	 *                  will be in the AAC
+	 * @param numAcross the number of images across
+	 * @param numDown   the number of images down
+	 * @param scroll    whether to scroll rather than page
+	 */
+	public AAC(String filename, int numAcross, int numDown, boolean scroll) {
+		if (numAcross < 1 || numDown < 1) {
+			throw new IllegalArgumentException("The grid must be at least 1x1.");
+		}
+		this.numAcross = numAcross;
+		this.numDown = numDown;
+		this.scroll = scroll;
+		// AACPage page = new AACCategory("test");
+		long start = Metrics.start();
+		// Edits are saved to a board of their own; the vocabulary file is not changed.
+		AACLazyMappings page = AACSnapshot.loadPage(AACJournal.boardFile(filename));
+		LOAD.stop(start);
+		AACJournal journal = null;
+		try {
+			journal = new AACJournal(page, filename);
+			// The window exits the program, so close the journal on the way out
+			AACJournal opened = journal;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				try {
+					opened.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}, "AAC journal close"));
+		} catch (IOException e) {
+			// Without a journal, edits are only kept by saving.
+			e.printStackTrace();
+		}
+		this.session = new AACSession(page, journal, numAcross * numDown, scroll, AAC::speak);
+		this.shownTurns = this.session.getState().getTurns();
+		this.icons = new IconCache(16L << 20);
 		frame = new JFrame();
-		frame.setPreferredSize(new Dimension(500, 500));
-		loadImages(NUM_ACROSS, NUM_DOWN);
+		bindKey("control Z", AACSession.UNDO);
+		bindKey("control Y", AACSession.REDO);
+		frame.setPreferredSize(new Dimension(Math.max(500, 100 * numAcross),
+				Math.max(500, 100 * numDown + 150)));
+		loadImages(numAcross, numDown);
+		this.session.addListener((state) -> {
+			long drawing = Metrics.start();
+			if (this.symbolGrid != null && state.getTurns() != this.shownTurns) {
+				// a new page, rather than a scroll within this one
+				this.symbolGrid.setPage(this.session.getPage());
+			}
+			this.shownTurns = state.getTurns();
+			loadImages(numAcross, numDown);
+			LOAD_IMAGES.stop(drawing);
+		});
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		frame.pack();
 		frame.setVisible(true);
@@ -64,12 +138,14 @@ public class AAC implements ActionListener {
 	}
 
 	/**
-	 * Loads the images in the screen in a width by length grid
+	 * Builds the components of the screen, once: the header with the category
+	 * name and the home/save/add buttons, the back and next arrows, a pool of
+	 * width by length grid buttons, and the footer.
 	 *
 	 * @param width  the number of images across to display
 	 * @param length the number of images down to display
 	 */
-	public void loadImages(int width, int length) {
+	private void buildComponents(int width, int length) {
 		Container pane = frame.getContentPane();
 		pane.removeAll();
 
@@ -77,155 +153,304 @@ public class AAC implements ActionListener {
 		JPanel topPanel = new JPanel();
 		topPanel.setLayout(new GridBagLayout());
 		GridBagConstraints c = new GridBagConstraints();
-		String category = "Home Page";
-		if (!this.page.getCategory().equals("")) {
-			category = this.page.getCategory();
-		}
 		c.gridx = 0;
 		c.gridy = 0;
-		JLabel cat = new JLabel(category);
-		cat.setFont(new Font("Serif", Font.PLAIN, 36));
-		topPanel.add(cat, c);
+		this.categoryLabel = new JLabel();
+		this.categoryLabel.setFont(new Font("Serif", Font.PLAIN, 36));
+		topPanel.add(this.categoryLabel, c);
 		JPanel panel1 = new JPanel();
 		panel1.setLayout(new GridLayout(1, 3));
-		if (this.page instanceof AACMappings) {
-			JButton home = new JButton(new ImageIcon("img/home.png"));
-			home.setActionCommand("");
-			home.addActionListener(this);
-			panel1.add(home);
-			JButton save = new JButton(new ImageIcon("img/save.png"));
-			save.setActionCommand("save");
-			save.addActionListener(this);
-			panel1.add(save);
-		}
-		JButton add = new JButton(new ImageIcon("img/plus.png"));
-		add.setActionCommand("add");
-		add.addActionListener(this);
-		panel1.add(add);
+		if (this.session.getPage() instanceof AACMappings
+				|| this.session.getPage() instanceof AACLazyMappings) {
+			panel1.add(navButton("img/home.png", AACSession.HOME));
+			panel1.add(navButton("img/save.png", AACSession.SAVE));
+		}
+		panel1.add(navButton("img/plus.png", "add"));
 		c.gridx = 0;
 		c.gridy = 1;
 		topPanel.add(panel1, c);
 		pane.add(topPanel, BorderLayout.PAGE_START);
 
-		// if on page 2+, add back button
-		if (startIndex > 0) {
-			JButton backArrow = new JButton(new ImageIcon("img/back-to.png"));
-			backArrow.setActionCommand("back");
-			backArrow.addActionListener(this);
-			pane.add(backArrow, BorderLayout.LINE_START);
+		// back and next buttons, shown when there is somewhere to go
+		this.backArrow = navButton("img/back-to.png", AACSession.BACK);
+		pane.add(this.backArrow, BorderLayout.LINE_START);
+		this.nextArrow = navButton("img/next.png", AACSession.NEXT);
+		pane.add(this.nextArrow, BorderLayout.LINE_END);
+
+		if (this.scroll) {
+			// one virtualized grid that paints only the rows in view
+			this.cells = new JButton[0];
+			this.symbolGrid = new SymbolGrid(icons, width, length, this,
+					(first, last) -> this.session.showRange(first, last));
+			this.symbolGrid.setPage(this.session.getPage());
+			JScrollPane scroller = new JScrollPane(this.symbolGrid);
+			scroller.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+			pane.add(scroller, BorderLayout.CENTER);
+			JLabel ack = new JLabel("All provided icons are from icons8: icons8.com");
+			pane.add(ack, BorderLayout.PAGE_END);
+			pane.revalidate();
+			return;
 		}
 
-		// add images
+		// pooled image buttons, rebound as pages change
 		JPanel panel = new JPanel();
-		panel.setLayout(new GridLayout(width, length));
-		int currImage = startIndex;
-		for (int y = 0; y < length; y++) {
-			for (int x = 0; x < width; x++) {
-				if (currImage < this.images.length) {
-					ImageIcon img = new ImageIcon(images[currImage]);
-					JButton button = new JButton(img);
-					button.setActionCommand(images[currImage]);
-					button.addActionListener(this);
-					panel.add(button);
-					currImage++;
+		panel.setLayout(new GridLayout(length, width));
+		this.cells = new JButton[width * length];
+		this.cellWidth = frame.getPreferredSize().width / width - CELL_PADDING;
+		this.cellHeight = frame.getPreferredSize().height / length - CELL_PADDING;
+		for (int n = 0; n < this.cells.length; n++) {
+			this.cells[n] = new JButton();
+			this.cells[n].addActionListener(this);
+			this.cells[n].setVisible(false);
+			panel.add(this.cells[n]);
+		}
+		pane.add(panel, BorderLayout.CENTER);
+
+		JLabel ack = new JLabel("All provided icons are from icons8: icons8.com");
+		pane.add(ack, BorderLayout.PAGE_END);
+		pane.revalidate();
+	}
+
+	/**
+	 * Creates a navigation button with the given icon and command.
+	 *
+	 * @param icon    the location of the button's image
+	 * @param command the action command of the button
+	 * @return the button
+	 */
+	private JButton navButton(String icon, String command) {
+		JButton button = new JButton();
+		button.setIcon(icons.get(icon, 0, 0, button::setIcon));
+		button.setActionCommand(command);
+		button.addActionListener(this);
+		return button;
+	}
+
+	/**
+	 * Shows the session's state in a width by length grid. The components
+	 * are built the first time; after that only the ones whose contents
+	 * changed are updated.
+	 *
+	 * @param width  the number of images across to display
+	 * @param length the number of images down to display
+	 */
+	public void loadImages(int width, int length) {
+		if (this.categoryLabel == null) {
+			buildComponents(width, length);
+		}
+		AACSession.State state = this.session.getState();
+		boolean relayout = false;
+
+		String category = "Home Page";
+		if (!state.getCategory().equals("")) {
+			category = state.getCategory();
+		}
+		if (!category.equals(this.categoryLabel.getText())) {
+			this.categoryLabel.setText(category);
+			relayout = true;
+		}
+
+		// if on page 2+ or in a category, show back button
+		relayout |= show(this.backArrow, state.hasBack());
+		// if have later pages, show next button
+		relayout |= show(this.nextArrow, state.hasNext());
+
+		if (this.scroll) {
+			if (relayout) {
+				frame.getContentPane().revalidate();
+			}
+			prewarm();
+			return;
+		}
 
+		// rebind the image buttons whose image changed
+		for (int n = 0; n < this.cells.length; n++) {
+			JButton button = this.cells[n];
+			if (n < state.size()) {
+				String image = state.getImage(n);
+				if (!image.equals(button.getActionCommand())) {
+					button.setActionCommand(image);
+					button.setIcon(icons.get(image, cellWidth, cellHeight, (icon) -> {
+						// the button may have been rebound while the icon loaded
+						if (image.equals(button.getActionCommand())) {
+							button.setIcon(icon);
+						}
+					}));
 				}
+				relayout |= show(button, true);
+			} else {
+				button.setActionCommand(null);
+				relayout |= show(button, false);
 			}
 		}
-		pane.add(panel, BorderLayout.CENTER);
 
-		// if have later pages, add next button
-		if (endIndex < images.length) {
-			JButton nextArrow = new JButton(new ImageIcon("img/next.png"));
-			nextArrow.setActionCommand("next");
-			nextArrow.addActionListener(this);
-			pane.add(nextArrow, BorderLayout.LINE_END);
+		if (relayout) {
+			frame.getContentPane().revalidate();
 		}
+		frame.getContentPane().requestFocusInWindow();
+		prewarm();
+	}
 
-		JLabel ack = new JLabel("All provided icons are from icons8: icons8.com");
-		pane.add(ack, BorderLayout.PAGE_END);
-		pane.revalidate();
-		pane.requestFocusInWindow();
+	/**
+	 * Shows or hides a component.
+	 *
+	 * @param component the component
+	 * @param visible   whether it should be visible
+	 * @return true if its visibility changed
+	 */
+	private static boolean show(JComponent component, boolean visible) {
+		if (component.isVisible() == visible) {
+			return false;
+		}
+		component.setVisible(visible);
+		return true;
 	}
 
-	public static void main(String[] args) {
+	/**
+	 * Starts rendering the speech for the images on the visible page in the
+	 * background, cancelling whatever was being rendered for the last page.
+	 */
+	private void prewarm() {
+		if (speechCache == null) {
+			return;
+		}
+		speechCache.prewarm(this.session.getTexts());
+	}
 
-		try {
-			// Set property as Kevin Dictionary
-			System.setProperty("freetts.voices", "com.sun.speech.freetts.en.us" + ".cmu_us_kal.KevinVoiceDirectory");
+	/**
+	 * Speaks text in the background, after anything already being said.
+	 *
+	 * @param text the text to speak
+	 */
+	private static void speak(String text) {
+		if (speech != null) {
+			speech.speak(text, SpeechScheduler.Policy.QUEUE).exceptionally((e) -> {
+				e.printStackTrace();
+				return false;
+			});
+		}
+	}
 
-			// Register Engine
-			Central.registerEngineCentral("com.sun.speech.freetts" + ".jsapi.FreeTTSEngineCentral");
-			synthesizer = Central.createSynthesizer(new SynthesizerModeDesc(Locale.US));
+	/**
+	 * Returns the JSAPI synthesizer, allocating it the first time.
+	 *
+	 * @return the synthesizer, or null if it cannot be allocated
+	 */
+	private static synchronized Synthesizer synthesizer() {
+		if (synthesizer == null) {
+			try {
+				// Register Engine
+				Central.registerEngineCentral("com.sun.speech.freetts" + ".jsapi.FreeTTSEngineCentral");
+				Synthesizer created = Central.createSynthesizer(new SynthesizerModeDesc(Locale.US));
 
-			// Allocate synthesizer
-			synthesizer.allocate();
+				// Allocate synthesizer
+				created.allocate();
 
-			// Resume Synthesizer
-			synthesizer.resume();
+				// Resume Synthesizer
+				created.resume();
+				synthesizer = created;
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		return synthesizer;
+	}
+
+	/**
+	 * Starts the AAC. The optional arguments give the number of images across
+	 * and down (3 and 3 by default), followed by "scroll" to scroll through
+	 * categories instead of paging.
+	 *
+	 * @param args [across down [scroll]]
+	 */
+	public static void main(String[] args) {
 
-		} catch (Exception e) {
+		// Set property as Kevin Dictionary, for both the clips and the synthesizer
+		System.setProperty("freetts.voices", "com.sun.speech.freetts.en.us" + ".cmu_us_kal.KevinVoiceDirectory");
+		try {
+			// Play pre-rendered clips where possible, and only start the
+			// synthesizer if a clip cannot be played
+			speechCache = SpeechCache.forFreeTTS("kevin16", 32L << 20,
+					Paths.get(System.getProperty("java.io.tmpdir"), "aac-speech"));
+			speech = new SpeechScheduler(SpeechScheduler.withFallback(speechCache.engine(), () -> {
+				Synthesizer synthesizer = synthesizer();
+				return (synthesizer == null) ? null : SpeechScheduler.engine(synthesizer);
+			}));
+		} catch (IOException | Error e) {
+			// Speak through the synthesizer instead, still off the event thread
 			e.printStackTrace();
+			if (synthesizer() != null) {
+				speech = SpeechScheduler.forSynthesizer(synthesizer);
+			}
 		}
-		AAC aac = new AAC("AACMappings.txt");
+		int across = NUM_ACROSS;
+		int down = NUM_DOWN;
+		if (args.length >= 2) {
+			across = Integer.parseInt(args[0]);
+			down = Integer.parseInt(args[1]);
+		}
+		boolean scroll = args.length >= 3 && args[2].equals("scroll");
+		Metrics.startReporting();
+		AAC aac = new AAC("AACMappings.txt", across, down, scroll);
 	}
 
 	/**
 	 * Responds to the click of a button. If the button is a category or action
 	 * (e.g. home, next), it updates the screen. If the button is an image within
-	 * the category, it speaks aloud the text
+	 * the category, it speaks aloud the text. With metrics enabled, the whole
+	 * tap and each stage of it are timed.
 	 */
 	public void actionPerformed(ActionEvent e) {
+		long start = Metrics.start();
 		String actionCommand = e.getActionCommand();
-		if (actionCommand.equals("back")) {
-			this.startIndex -= NUM_ACROSS * NUM_DOWN;
-			this.endIndex -= NUM_ACROSS * NUM_DOWN;
-		} else if (actionCommand.equals("next")) {
-			this.startIndex += NUM_ACROSS * NUM_DOWN;
-			this.endIndex = Math.min(endIndex + NUM_ACROSS * NUM_DOWN, this.images.length);
-		} else if (actionCommand.equals("save") && this.page instanceof AACMappings) {
-			((AACMappings) this.page).writeToFile("AACMappingsNew.txt");
-			this.images = this.page.getImageLocs();
-			this.startIndex = 0;
-			this.endIndex = Math.min(NUM_ACROSS * NUM_DOWN, this.images.length);
-		} else if (actionCommand.equals("add")) {
+		if (actionCommand.equals("add")) {
 			JFileChooser chooser = new JFileChooser();
 			int returnVal = chooser.showOpenDialog(frame);
-			String imageLoc = "";
 			if (returnVal == JFileChooser.APPROVE_OPTION) {
-				imageLoc = chooser.getSelectedFile().getPath();
+				String imageLoc = chooser.getSelectedFile().getPath();
 				String result = (String) JOptionPane.showInputDialog(frame, "What is the text?", "AAC Add",
 						JOptionPane.PLAIN_MESSAGE, null, null, "");
 				if (result != null && result.length() > 0) {
-					this.page.addItem(imageLoc, result);
+					try {
+						this.session.add(imageLoc, result);
+					} catch (IOException e1) {
+						JOptionPane.showMessageDialog(frame, "Could not record the change: " + e1.getMessage(),
+								"AAC Add", JOptionPane.ERROR_MESSAGE);
+					}
 				}
 			}
-			this.images = this.page.getImageLocs();
-			this.startIndex = 0;
-			this.endIndex = Math.min(NUM_ACROSS * NUM_DOWN, this.images.length);
-		} else if (actionCommand.equals("") && this.page instanceof AACMappings) {
-			((AACMappings) this.page).reset();
-			this.images = this.page.getImageLocs();
-			this.startIndex = 0;
-			this.endIndex = Math.min(NUM_ACROSS * NUM_DOWN, this.images.length);
 		} else {
-			if (this.page.getCategory().equals("")) {
-				this.page.select(actionCommand);
-				this.images = this.page.getImageLocs();
-				this.startIndex = 0;
-				this.endIndex = Math.min(NUM_ACROSS * NUM_DOWN, this.images.length);
-			} else {
-				try {
-					String toSpeak = this.page.select(actionCommand);
-					synthesizer.speakPlainText(toSpeak, null);
-					synthesizer.waitEngineState(Synthesizer.QUEUE_EMPTY);
-				} catch (Exception e1) {
+			try {
+				this.session.perform(actionCommand);
+			} catch (IOException e1) {
+				if (actionCommand.equals(AACSession.SAVE)) {
+					JOptionPane.showMessageDialog(frame, "Could not save: " + e1.getMessage(), "AAC Save",
+							JOptionPane.ERROR_MESSAGE);
+				} else {
 					e1.printStackTrace();
 				}
+			} catch (Exception e1) {
+				e1.printStackTrace();
 			}
 		}
-		loadImages(NUM_ACROSS, NUM_DOWN);
+		frame.getContentPane().requestFocusInWindow();
+		TAP.stop(start);
+	}
 
+	/**
+	 * Makes a key stroke act like a button with the given command.
+	 *
+	 * @param keys    the key stroke, as understood by KeyStroke.getKeyStroke
+	 * @param command the action command
+	 */
+	private void bindKey(String keys, String command) {
+		frame.getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+				.put(KeyStroke.getKeyStroke(keys), command);
+		frame.getRootPane().getActionMap().put(command, new AbstractAction() {
+			public void actionPerformed(ActionEvent e) {
+				AAC.this.actionPerformed(new ActionEvent(frame, ActionEvent.ACTION_PERFORMED, command));
+			}
+		});
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,256 @@
+import java.util.NoSuchElementException;
+import edu.grinnell.csc207.util.PersistentAssociativeArray;
+
+/**
+ * An immutable AAC board: the categories in the order they appear on the
+ * home page, and the items of each. Editing a board gives a new board
+ * that shares everything it did not change with the old one, so an edit
+ * costs O(log n), keeping a board (as an undo checkpoint, or as the
+ * version the screen shows while an editor prepares the next) costs
+ * nothing, and any number of threads can read a board without locks.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public final class AACBoard {
+
+  /**
+   * An immutable category: its name and its items (image location to
+   * spoken text), in the order they were added.
+   */
+  public static final class Category {
+    /** The name of the category. */
+    private final String name;
+
+    /** The items of the category. */
+    private final PersistentAssociativeArray<String, String> items;
+
+    /**
+     * Creates a category.
+     *
+     * @param name  the name
+     * @param items the items
+     */
+    Category(String name, PersistentAssociativeArray<String, String> items) {
+      this.name = name;
+      this.items = items;
+    } // Category(String, PersistentAssociativeArray)
+
+    /**
+     * Returns the name of the category.
+     *
+     * @return the name
+     */
+    public String getName() {
+      return this.name;
+    } // getName()
+
+    /**
+     * Returns the items of the category.
+     *
+     * @return the items, by image location
+     */
+    public PersistentAssociativeArray<String, String> getItems() {
+      return this.items;
+    } // getItems()
+  } // class Category
+
+  /** The board with no categories. */
+  private static final AACBoard EMPTY =
+      new AACBoard(PersistentAssociativeArray.empty(), PersistentAssociativeArray.empty());
+
+  /** The categories, by the location of their image on the home page. */
+  private final PersistentAssociativeArray<String, Category> categories;
+
+  /**
+   * The number of categories each item image belongs to, so that
+   * hasImage does not have to look in every category. Edits keep it up
+   * to date in O(log n), and boards share it just as they share their
+   * categories.
+   */
+  private final PersistentAssociativeArray<String, Integer> holders;
+
+  /**
+   * Creates a board.
+   *
+   * @param categories the categories
+   * @param holders    the number of categories holding each item image
+   */
+  private AACBoard(PersistentAssociativeArray<String, Category> categories,
+      PersistentAssociativeArray<String, Integer> holders) {
+    this.categories = categories;
+    this.holders = holders;
+  } // AACBoard(PersistentAssociativeArray, PersistentAssociativeArray)
+
+  /**
+   * Returns the board with no categories.
+   *
+   * @return the empty board
+   */
+  public static AACBoard empty() {
+    return EMPTY;
+  } // empty()
+
+  /**
+   * Builds a board with the same categories and items as a set of
+   * mappings. This takes time proportional to the size of the mappings;
+   * every snapshot after that is free.
+   *
+   * @param mappings the mappings
+   * @return the board
+   */
+  public static AACBoard of(AACMappings mappings) {
+    PersistentAssociativeArray<String, Category> categories = PersistentAssociativeArray.empty();
+    PersistentAssociativeArray<String, Integer> holders = PersistentAssociativeArray.empty();
+    for (int c = 0; c < mappings.allCat.size(); c++) {
+      AACCategory category = mappings.allCat.valueAt(c);
+      PersistentAssociativeArray<String, String> items = PersistentAssociativeArray.empty();
+      for (int n = 0; n < category.storage.size(); n++) {
+        String imageLoc = category.storage.keyAt(n);
+        items = items.with(imageLoc, category.storage.valueAt(n));
+        holders = adjust(holders, imageLoc, 1);
+      } // for
+      categories = categories.with(mappings.allCat.keyAt(c),
+          new Category(category.getCategory(), items));
+    } // for
+    return new AACBoard(categories, holders);
+  } // of(AACMappings)
+
+  /**
+   * Builds a set of mappings with the same categories and items.
+   *
+   * @return the mappings
+   */
+  public AACMappings toMappings() {
+    AACMappings mappings = new AACMappings(null);
+    this.categories.forEach((categoryLoc, category) -> {
+      mappings.addCategory(categoryLoc, category.getName());
+      category.getItems().forEach((imageLoc, text) -> {
+        mappings.addItem(categoryLoc, imageLoc, text);
+      });
+    });
+    return mappings;
+  } // toMappings()
+
+  /**
+   * Returns the categories.
+   *
+   * @return the categories, by the location of their image
+   */
+  public PersistentAssociativeArray<String, Category> getCategories() {
+    return this.categories;
+  } // getCategories()
+
+  /**
+   * Returns the category shown by the given image.
+   *
+   * @param categoryLoc the location of the category's image
+   * @return the category, or null if there is none
+   */
+  public Category getCategory(String categoryLoc) {
+    return this.categories.getOrDefault(categoryLoc, null);
+  } // getCategory(String)
+
+  /**
+   * Determines if the image is a category or an item of any category.
+   * This takes O(log n), whatever the number of categories.
+   *
+   * @param imageLoc the location of the image
+   * @return true if the board contains it, false otherwise
+   */
+  public boolean hasImage(String imageLoc) {
+    return this.categories.hasKey(imageLoc) || this.holders.hasKey(imageLoc);
+  } // hasImage(String)
+
+  /**
+   * Returns a board with the given category added, or renamed if it is
+   * already there (keeping its items).
+   *
+   * @param categoryLoc the location of the category's image
+   * @param name        the name of the category
+   * @return the new board
+   */
+  public AACBoard withCategory(String categoryLoc, String name) {
+    Category category = this.getCategory(categoryLoc);
+    PersistentAssociativeArray<String, String> items = (category == null)
+        ? PersistentAssociativeArray.empty() : category.getItems();
+    return new AACBoard(this.categories.with(categoryLoc, new Category(name, items)),
+        this.holders);
+  } // withCategory(String, String)
+
+  /**
+   * Returns a board without the given category and its items.
+   *
+   * @param categoryLoc the location of the category's image
+   * @return the new board
+   */
+  public AACBoard withoutCategory(String categoryLoc) {
+    Category category = this.getCategory(categoryLoc);
+    if (category == null) {
+      return this;
+    } // if
+    PersistentAssociativeArray<String, String> items = category.getItems();
+    PersistentAssociativeArray<String, Integer> holders = this.holders;
+    for (int n = 0; n < items.size(); n++) {
+      holders = adjust(holders, items.keyAt(n), -1);
+    } // for
+    return new AACBoard(this.categories.without(categoryLoc), holders);
+  } // withoutCategory(String)
+
+  /**
+   * Returns a board in which the given category maps the image to the
+   * text.
+   *
+   * @param categoryLoc the location of the category's image
+   * @param imageLoc    the location of the item's image
+   * @param text        the text to speak
+   * @return the new board
+   * @throws NoSuchElementException if there is no such category
+   */
+  public AACBoard withItem(String categoryLoc, String imageLoc, String text) {
+    Category category = this.getCategory(categoryLoc);
+    if (category == null) {
+      throw new NoSuchElementException("There is no such category.");
+    } // if
+    PersistentAssociativeArray<String, Integer> holders = category.getItems().hasKey(imageLoc)
+        ? this.holders : adjust(this.holders, imageLoc, 1);
+    return new AACBoard(this.categories.with(categoryLoc,
+        new Category(category.getName(), category.getItems().with(imageLoc, text))), holders);
+  } // withItem(String, String, String)
+
+  /**
+   * Returns a board in which the given category no longer has the image.
+   *
+   * @param categoryLoc the location of the category's image
+   * @param imageLoc    the location of the item's image
+   * @return the new board
+   */
+  public AACBoard withoutItem(String categoryLoc, String imageLoc) {
+    Category category = this.getCategory(categoryLoc);
+    if (category == null || !category.getItems().hasKey(imageLoc)) {
+      return this;
+    } // if
+    return new AACBoard(this.categories.with(categoryLoc,
+        new Category(category.getName(), category.getItems().without(imageLoc))),
+        adjust(this.holders, imageLoc, -1));
+  } // withoutItem(String, String)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Changes the number of categories holding an image, dropping the image
+   * when none do.
+   *
+   * @param holders  the counts
+   * @param imageLoc the location of the image
+   * @param change   the amount to add to its count
+   * @return the new counts
+   */
+  private static PersistentAssociativeArray<String, Integer> adjust(
+      PersistentAssociativeArray<String, Integer> holders, String imageLoc, int change) {
+    int count = holders.getOrDefault(imageLoc, 0) + change;
+    return (count <= 0) ? holders.without(imageLoc) : holders.with(imageLoc, count);
+  } // adjust(PersistentAssociativeArray, String, int)
+} // class AACBoard
@@ -0,0 +1,239 @@
+import java.util.NoSuchElementException;
+import java.util.function.UnaryOperator;
+import edu.grinnell.csc207.util.PersistentAssociativeArray;
+
+/**
+ * An AAC page that shows the most recently published AACBoard. An editor
+ * can take the current board with board() (which costs nothing), make
+ * any number of changes to it on any thread, and publish() the result;
+ * until then, the page keeps showing the board it had, and every read
+ * sees one whole board rather than one caught mid-edit.
+ *
+ * Navigation (which category is shown) belongs to the page, not to the
+ * board. If a published board no longer has the category being shown,
+ * the page goes back to the home page.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class AACBoardPage implements AACPage {
+
+  /** The board being shown. */
+  private volatile AACBoard board;
+
+  /** The location of the category being shown, or null on the home page. */
+  private volatile String currentLoc;
+
+  /**
+   * Creates a page that shows the given board, starting at its home page.
+   *
+   * @param board the board
+   */
+  public AACBoardPage(AACBoard board) {
+    this.board = board;
+    this.currentLoc = null;
+  } // AACBoardPage(AACBoard)
+
+  /**
+   * Returns the board being shown. The board never changes, so it is a
+   * snapshot that can be kept (say, to undo to) or edited into a new one.
+   *
+   * @return the board
+   */
+  public AACBoard board() {
+    return this.board;
+  } // board()
+
+  /**
+   * Shows a new board.
+   *
+   * @param board the board
+   */
+  public synchronized void publish(AACBoard board) {
+    this.board = board;
+    this.forgetMissingCategory();
+  } // publish(AACBoard)
+
+  /**
+   * Publishes the result of changing the current board. Edits made
+   * through this method from several threads are applied one at a time.
+   *
+   * @param change the change
+   */
+  public synchronized void edit(UnaryOperator<AACBoard> change) {
+    this.board = change.apply(this.board);
+    this.forgetMissingCategory();
+  } // edit(UnaryOperator)
+
+  /**
+   * Adds the image location, text pairing to the page: a category on the
+   * home page, otherwise an item of the category being shown.
+   *
+   * @param imageLoc the location of the image
+   * @param text     the text that image should speak
+   */
+  public void addItem(String imageLoc, String text) {
+    String categoryLoc = this.currentLoc;
+    if (categoryLoc == null) {
+      this.edit((board) -> board.withCategory(imageLoc, text));
+    } else {
+      this.edit((board) -> board.withItem(categoryLoc, imageLoc, text));
+    } // if-else
+  } // addItem(String, String)
+
+  /**
+   * Returns the images on the page.
+   *
+   * @return the array of image locations; if there are no images,
+   *         it returns an empty array
+   */
+  public String[] getImageLocs() {
+    PersistentAssociativeArray<?, ?> shown = this.shown(this.board);
+    return this.getImageLocs(shown, 0, shown.size());
+  } // getImageLocs()
+
+  /**
+   * Returns the number of images on the page.
+   *
+   * @return the number of images
+   */
+  public int getImageCount() {
+    return this.shown(this.board).size();
+  } // getImageCount()
+
+  /**
+   * Returns up to limit of the images on the page, starting with the one
+   * at offset.
+   *
+   * @param offset the index of the first image
+   * @param limit  the largest number of images to return
+   * @return the image locations
+   * @throws IndexOutOfBoundsException if offset or limit is negative
+   */
+  public String[] getImageLocs(int offset, int limit) {
+    return this.getImageLocs(this.shown(this.board), offset, limit);
+  } // getImageLocs(int, int)
+
+  /**
+   * Returns the name of the category being shown.
+   *
+   * @return the name, or the empty string on the home page
+   */
+  public String getCategory() {
+    AACBoard.Category category = this.current(this.board);
+    return (category == null) ? "" : category.getName();
+  } // getCategory()
+
+  /**
+   * Selects an image: on the home page, shows its category and returns
+   * the empty string; in a category, returns the text to speak.
+   *
+   * @param imageLoc the location of the image
+   * @return the text to speak, or the empty string
+   * @throws NoSuchElementException if the image is not on the page
+   */
+  public String select(String imageLoc) {
+    AACBoard board = this.board;
+    AACBoard.Category category = this.current(board);
+    if (category == null) {
+      if (board.getCategory(imageLoc) == null) {
+        throw new NoSuchElementException("There is no such element.");
+      } // if
+      this.currentLoc = imageLoc;
+      return "";
+    } // if
+    String text = category.getItems().getOrDefault(imageLoc, null);
+    if (text == null && !category.getItems().hasKey(imageLoc)) {
+      throw new NoSuchElementException("There is no such element.");
+    } // if
+    return text;
+  } // select(String)
+
+  /**
+   * Determines if the image is a category or an item of any category.
+   *
+   * @param imageLoc the location of the image
+   * @return true if it is on the board, false otherwise
+   */
+  public boolean hasImage(String imageLoc) {
+    return this.board.hasImage(imageLoc);
+  } // hasImage(String)
+
+  /**
+   * Goes back to the home page.
+   */
+  public void reset() {
+    this.currentLoc = null;
+  } // reset()
+
+  /**
+   * Goes back to the home page from a category. (Categories do not hold
+   * other categories, so that is the only place to go back to.)
+   *
+   * @return true if we went back, false if already on the home page
+   */
+  public boolean back() {
+    if (this.currentLoc == null) {
+      return false;
+    } // if
+    this.currentLoc = null;
+    return true;
+  } // back()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Goes back to the home page if the board no longer has the category
+   * being shown.
+   */
+  private void forgetMissingCategory() {
+    if (this.currentLoc != null && this.board.getCategory(this.currentLoc) == null) {
+      this.currentLoc = null;
+    } // if
+  } // forgetMissingCategory()
+
+  /**
+   * Returns the category being shown on the given board.
+   *
+   * @param board the board
+   * @return the category, or null on the home page
+   */
+  private AACBoard.Category current(AACBoard board) {
+    String categoryLoc = this.currentLoc;
+    return (categoryLoc == null) ? null : board.getCategory(categoryLoc);
+  } // current(AACBoard)
+
+  /**
+   * Returns the images being shown on the given board, keyed by location.
+   *
+   * @param board the board
+   * @return the categories on the home page, otherwise the items
+   */
+  private PersistentAssociativeArray<String, ?> shown(AACBoard board) {
+    AACBoard.Category category = this.current(board);
+    return (category == null) ? board.getCategories() : category.getItems();
+  } // shown(AACBoard)
+
+  /**
+   * Returns a window of the keys of an array.
+   *
+   * @param shown  the array
+   * @param offset the index of the first key
+   * @param limit  the largest number of keys
+   * @return the keys
+   */
+  private String[] getImageLocs(PersistentAssociativeArray<?, ?> shown, int offset, int limit) {
+    if (offset < 0 || limit < 0) {
+      throw new IndexOutOfBoundsException("Invalid window: " + offset + ", " + limit);
+    } // if
+    int start = Math.min(offset, shown.size());
+    int end = (int) Math.min((long) start + limit, shown.size());
+    String[] result = new String[end - start];
+    for (int n = start; n < end; n++) {
+      result[n - start] = (String) shown.keyAt(n);
+    } // for
+    return result;
+  } // getImageLocs(PersistentAssociativeArray, int, int)
+} // class AACBoardPage
@@ -1,8 +1,11 @@
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import edu.grinnell.csc207.util.AssociativeArray;
-import edu.grinnell.csc207.util.KeyNotFoundException;
-import edu.grinnell.csc207.util.NullKeyException;
+import edu.grinnell.csc207.util.CompactStringArray;
+import edu.grinnell.csc207.util.KVPair;
 
 /**
  * Represents the mappings for a single category of items that should
@@ -17,19 +20,46 @@ public class AACCategory implements AACPage {
   String catName;
   AssociativeArray<String, String> storage;
 
+  /**
+   * Whether the category has changed since AACMappings.writeToFile last
+   * wrote it, and where its lines are in that file (savedOffset is -1 if
+   * it has never been written).
+   */
+  boolean changed = true;
+  long savedOffset = -1;
+  long savedLength;
+
   /**
    * Creates a new empty category with the given name.
    *
    * @param name the name of the category
    */
   public AACCategory(String name) {
+    this(name, false);
+  } // AACCategory (String)
+
+  /**
+   * Creates a new empty category with the given name. A compact category
+   * keeps its image locations and texts in a CompactStringArray, which
+   * stores shared directory prefixes once and builds Strings only when
+   * they are asked for; it behaves the same but uses far less memory for
+   * large categories.
+   *
+   * @param name    the name of the category
+   * @param compact whether to use compact storage
+   */
+  public AACCategory(String name, boolean compact) {
     if (name.isEmpty()) {
       this.catName = "";
     } else {
       this.catName = name;
     } // if-else
-    this.storage = new AssociativeArray<>();
-  } // AACCategory (String)
+    if (compact) {
+      this.storage = new CompactStringArray();
+    } else {
+      this.storage = new AssociativeArray<>();
+    } // if-else
+  } // AACCategory (String, boolean)
 
   /**
    * Adds the image location, text pairing to the category.
@@ -39,8 +69,71 @@ public class AACCategory implements AACPage {
    */
   public void addItem(String imageLoc, String text) {
     this.storage.set(imageLoc, text);
+    this.changed = true;
   } // addItem (String, String)
 
+  /**
+   * Adds many image location, text pairings at once, as if by addItem,
+   * growing the storage at most once.
+   *
+   * @param items the texts, by image location
+   */
+  public void addAll(Map<String, String> items) {
+    this.storage.addAll(items);
+    this.changed = true;
+  } // addAll(Map)
+
+  /**
+   * Adds many image location, text pairings at once, as if by addItem;
+   * a later pair for the same image wins.
+   *
+   * @param items the pairs of image location and text
+   */
+  public void addAll(Iterable<? extends KVPair<String, String>> items) {
+    this.storage.addAll(items);
+    this.changed = true;
+  } // addAll(Iterable)
+
+  /**
+   * Releases the unused capacity of the category's storage. Adding an
+   * item afterwards grows it again.
+   */
+  public void trimToSize() {
+    this.storage.trimToSize();
+  } // trimToSize()
+
+  /**
+   * Estimates how many bytes the category uses: its storage (see
+   * AssociativeArray.footprint).
+   *
+   * @return the estimated number of bytes
+   */
+  public long footprint() {
+    return this.storage.footprint();
+  } // footprint()
+
+  /**
+   * Removes the image from the category, if it is there.
+   *
+   * @param imageLoc the location of the image
+   */
+  public void removeItem(String imageLoc) {
+    if (this.storage.hasKey(imageLoc)) {
+      this.storage.remove(imageLoc);
+      this.changed = true;
+    } // if
+  } // removeItem(String)
+
+  /**
+   * Changes the name of the category.
+   *
+   * @param name the new name
+   */
+  public void rename(String name) {
+    this.catName = name;
+    this.changed = true;
+  } // rename(String)
+
   /**
    * Returns an array of all the images in the category.
    *
@@ -48,13 +141,39 @@ public class AACCategory implements AACPage {
    *         it should return an empty array
    */
   public String[] getImageLocs() {
-    int number = this.storage.size();
-    String[] result = new String[number];
-    for (int n = 0; n < number; n++) {
-      result[n] = this.storage.getPair()[n].key;
+    return this.getImageLocs(0, this.storage.size());
+  } // getImageLocs()
+
+  /**
+   * Returns the number of images in the category.
+   *
+   * @return the number of images
+   */
+  public int getImageCount() {
+    return this.storage.size();
+  } // getImageCount()
+
+  /**
+   * Returns up to limit of the images in the category, starting with the
+   * one at offset.
+   *
+   * @param offset the index of the first image
+   * @param limit  the largest number of images to return
+   * @return the image locations
+   * @throws IndexOutOfBoundsException if offset or limit is negative
+   */
+  public String[] getImageLocs(int offset, int limit) {
+    if (offset < 0 || limit < 0) {
+      throw new IndexOutOfBoundsException("Invalid window: " + offset + ", " + limit);
+    } // if
+    int start = Math.min(offset, this.storage.size());
+    int end = (int) Math.min((long) start + limit, this.storage.size());
+    String[] result = new String[end - start];
+    for (int n = start; n < end; n++) {
+      result[n - start] = this.storage.keyAt(n);
     } // for
     return result;
-  } // getImageLocs()
+  } // getImageLocs(int, int)
 
   /**
    * Returns the name of the category.
@@ -74,14 +193,11 @@ public class AACCategory implements AACPage {
    *                                category.
    */
   public String select(String imageLoc) throws NoSuchElementException {
-    try {
-      return this.storage.get(imageLoc);
-    } catch (NullKeyException e) {
-      // Do nothing
-    } catch (KeyNotFoundException e) {
+    String text = this.storage.getOrDefault(imageLoc, null);
+    if (text == null && !this.storage.hasKey(imageLoc)) {
       throw new NoSuchElementException("There is no such element.");
-    } // try-catch
-    return null;
+    } // if
+    return text;
   } // select (String)
 
   /**
@@ -93,4 +209,26 @@ public class AACCategory implements AACPage {
   public boolean hasImage(String imageLoc) {
     return this.storage.hasKey(imageLoc);
   } // hasImaghe（String)
+
+  /**
+   * Writes the lines that describe this category in the mappings file
+   * format: the category line followed by one "&gt;" line per item.
+   *
+   * @param imageLoc the location of the category's image
+   * @param pen      where to write them
+   * @throws IOException if they cannot be written
+   */
+  void write(String imageLoc, Writer pen) throws IOException {
+    pen.write(imageLoc);
+    pen.write(' ');
+    pen.write(this.catName);
+    pen.write('\n');
+    for (int n = 0; n < this.storage.size(); n++) {
+      pen.write('>');
+      pen.write(this.storage.keyAt(n));
+      pen.write(' ');
+      pen.write(this.storage.valueAt(n));
+      pen.write('\n');
+    } // for
+  } // write(String, Writer)
 }
@@ -0,0 +1,776 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * An append-only journal of the edits made to a set of AAC mappings,
+ * kept next to the mappings file (with ".journal" added to its name).
+ * Every edit made through the journal is applied to the mappings and
+ * appended to the file as one line, so saving only has to append a save
+ * record and flush, rather than rewrite the whole mappings file. When the
+ * journal is opened, its records are replayed over the mappings as they
+ * were loaded, which recovers every edit that reached the disk before a
+ * crash; a final line cut short by the crash is dropped.
+ *
+ * Each record holds what the edit replaced as well as what it did, so
+ * undo applies the inverse edit straight away and redo applies the edit
+ * again; both are journaled too ("U" and "D" records) so that replay
+ * ends in the same place. Once enough records build up, saving compacts
+ * the journal: it writes the whole board to a saved-board file next to
+ * the mappings file (with ".saved-" and a generation number added to its
+ * name), and only once that is safely on disk starts the journal again
+ * with a "G" record naming the new generation, followed by the most
+ * recent HISTORY edits that can be undone and redone ("H" and "K"
+ * records, which are remembered but not applied). The mappings file
+ * itself, the vocabulary the board started from, is never written;
+ * boardFile names the newest saved board (if any) as the file to load,
+ * and the journal is replayed over that instead.
+ *
+ * A journal without a "G" record belongs to generation 0, the mappings
+ * file. A journal whose generation is older than the newest saved board
+ * (because a crash came after the board was saved but before the journal
+ * was started again) has already been compacted into that board, so its
+ * records are dropped rather than replayed a second time.
+ *
+ * A record that no longer applies when it is replayed (say, one naming a
+ * category that the board does not have) is skipped and reported on
+ * standard error; skipped() counts them.
+ *
+ * The lines are tab-separated fields, with tabs, newlines and backslashes
+ * escaped and a null field written as "\0":
+ *
+ * C category-loc name old-name          add or rename a category
+ * R category-loc name (item-loc text)*  remove a category and its items
+ * I category-loc item-loc text old-text add or change an item
+ * X category-loc item-loc old-text      remove an item
+ * U, D, S                               undo, redo, save
+ * H record, K record                    an edit that can be undone, redone
+ * G generation                          the saved board the journal follows
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class AACJournal implements Closeable {
+
+  /** What is added to the name of the mappings file to name the journal. */
+  static final String EXTENSION = ".journal";
+
+  /**
+   * What is added to the name of the mappings file, before the
+   * generation, to name a saved board.
+   */
+  static final String SAVED = ".saved-";
+
+  /** How many records a save lets build up before it compacts. */
+  static final int COMPACT_AFTER = 1000;
+
+  /** How many edits to undo (and to redo) compaction keeps. */
+  static final int HISTORY = 100;
+
+  /** The mappings being edited, built when first needed. */
+  private final Supplier<AACMappings> board;
+
+  /** The mappings file. */
+  private final String filename;
+
+  /** The journal file, open for appending. */
+  private final FileChannel channel;
+
+  /** The edits that can be undone, most recent first. */
+  private final ArrayDeque<String[]> done;
+
+  /** The edits that can be redone, most recently undone first. */
+  private final ArrayDeque<String[]> undone;
+
+  /** The number of records in the journal. */
+  private int records;
+
+  /** The number of records that replay skipped. */
+  private int skipped;
+
+  /** The generation of the saved board the journal follows. */
+  private long generation;
+
+  /**
+   * Opens the journal of a mappings file, replaying it over mappings
+   * that were just loaded from boardFile(filename).
+   *
+   * @param mappings the mappings loaded from the board file
+   * @param filename the mappings file
+   * @throws IOException if the journal cannot be read or opened
+   */
+  public AACJournal(AACMappings mappings, String filename) throws IOException {
+    this(() -> mappings, filename);
+  } // AACJournal(AACMappings, String)
+
+  /**
+   * Opens the journal of a mappings file for a board that may still be
+   * served from its snapshot. The board is only built as AACMappings if
+   * the journal has records to replay, or once an edit is made.
+   *
+   * @param page     the board loaded from boardFile(filename)
+   * @param filename the mappings file
+   * @throws IOException if the journal cannot be read or opened
+   */
+  public AACJournal(AACLazyMappings page, String filename) throws IOException {
+    this(page::mappings, filename);
+  } // AACJournal(AACLazyMappings, String)
+
+  /**
+   * Opens the journal of a mappings file, replaying it over the board.
+   *
+   * @param board    gives the mappings loaded from the board file
+   * @param filename the mappings file
+   * @throws IOException if the journal cannot be read or opened
+   */
+  private AACJournal(Supplier<AACMappings> board, String filename) throws IOException {
+    this.board = board;
+    this.filename = filename;
+    this.done = new ArrayDeque<>();
+    this.undone = new ArrayDeque<>();
+    this.records = 0;
+    this.skipped = 0;
+    Path path = Paths.get(filename + EXTENSION);
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.generation = generation(filename);
+    this.replay();
+    this.removeSavedBefore(this.generation);
+  } // AACJournal(Supplier, String)
+
+  /**
+   * Returns the file to load the board of a mappings file from: the
+   * newest board saved by compaction if there is one, otherwise the
+   * mappings file.
+   *
+   * @param filename the mappings file
+   * @return the file to load
+   * @throws UncheckedIOException if the directory cannot be read
+   */
+  public static String boardFile(String filename) {
+    long generation = generation(filename);
+    return (generation == 0) ? filename : filename + SAVED + generation;
+  } // boardFile(String)
+
+  /**
+   * Returns the generation of the newest board saved for a mappings file.
+   *
+   * @param filename the mappings file
+   * @return the generation, or 0 if no board has been saved
+   * @throws UncheckedIOException if the directory cannot be read
+   */
+  static long generation(String filename) {
+    long newest = 0;
+    for (long generation : savedGenerations(filename)) {
+      newest = Math.max(newest, generation);
+    } // for
+    return newest;
+  } // generation(String)
+
+  // +-------+-------------------------------------------------------
+  // | Edits |
+  // +-------+
+
+  /**
+   * Adds the image to the page the mappings are showing, as
+   * AACMappings.addItem does: a category on the home page, otherwise an
+   * item of the current category.
+   *
+   * @param imageLoc the location of the image
+   * @param text     the text (or category name) for the image
+   * @throws IOException if the journal cannot be written
+   */
+  public void addItem(String imageLoc, String text) throws IOException {
+    if (this.mappings().currentLoc == null) {
+      this.addCategory(imageLoc, text);
+    } else {
+      this.addItem(this.mappings().currentLoc, imageLoc, text);
+    } // if-else
+  } // addItem(String, String)
+
+  /**
+   * Adds a category, or renames it if it is already there.
+   *
+   * @param categoryLoc the location of the category's image
+   * @param name        the name of the category
+   * @throws IOException if the journal cannot be written
+   */
+  public void addCategory(String categoryLoc, String name) throws IOException {
+    AACCategory category = this.mappings().allCat.getOrDefault(categoryLoc, null);
+    this.perform(new String[] { "C", categoryLoc, name,
+        (category == null) ? null : category.getCategory() });
+  } // addCategory(String, String)
+
+  /**
+   * Adds an item to a category, or changes its text.
+   *
+   * @param categoryLoc the location of the category's image
+   * @param imageLoc    the location of the item's image
+   * @param text        the text to speak
+   * @throws IOException            if the journal cannot be written
+   * @throws NoSuchElementException if there is no such category
+   */
+  public void addItem(String categoryLoc, String imageLoc, String text) throws IOException {
+    AACCategory category = this.mappings().allCat.getOrDefault(categoryLoc, null);
+    if (category == null) {
+      throw new NoSuchElementException("No category " + categoryLoc);
+    } // if
+    this.perform(new String[] { "I", categoryLoc, imageLoc, text,
+        category.storage.getOrDefault(imageLoc, null) });
+  } // addItem(String, String, String)
+
+  /**
+   * Removes an item from a category. Does nothing if it is not there.
+   *
+   * @param categoryLoc the location of the category's image
+   * @param imageLoc    the location of the item's image
+   * @throws IOException if the journal cannot be written
+   */
+  public void removeItem(String categoryLoc, String imageLoc) throws IOException {
+    AACCategory category = this.mappings().allCat.getOrDefault(categoryLoc, null);
+    if (category == null || !category.hasImage(imageLoc)) {
+      return;
+    } // if
+    this.perform(new String[] { "X", categoryLoc, imageLoc,
+        category.storage.getOrDefault(imageLoc, null) });
+  } // removeItem(String, String)
+
+  /**
+   * Removes a category and its items. Does nothing if it is not there.
+   *
+   * @param categoryLoc the location of the category's image
+   * @throws IOException if the journal cannot be written
+   */
+  public void removeCategory(String categoryLoc) throws IOException {
+    AACCategory category = this.mappings().allCat.getOrDefault(categoryLoc, null);
+    if (category == null) {
+      return;
+    } // if
+    int count = category.storage.size();
+    String[] record = new String[3 + 2 * count];
+    record[0] = "R";
+    record[1] = categoryLoc;
+    record[2] = category.getCategory();
+    for (int n = 0; n < count; n++) {
+      record[3 + 2 * n] = category.storage.keyAt(n);
+      record[4 + 2 * n] = category.storage.valueAt(n);
+    } // for
+    this.perform(record);
+  } // removeCategory(String)
+
+  /**
+   * Undoes the most recent edit that has not been undone.
+   *
+   * @return true if there was an edit to undo, false otherwise
+   * @throws IOException if the journal cannot be written
+   */
+  public boolean undo() throws IOException {
+    if (!this.undoInMemory()) {
+      return false;
+    } // if
+    this.append(new String[] { "U" });
+    return true;
+  } // undo()
+
+  /**
+   * Redoes the most recently undone edit.
+   *
+   * @return true if there was an edit to redo, false otherwise
+   * @throws IOException if the journal cannot be written
+   */
+  public boolean redo() throws IOException {
+    if (!this.redoInMemory()) {
+      return false;
+    } // if
+    this.append(new String[] { "D" });
+    return true;
+  } // redo()
+
+  /**
+   * Makes the edits so far durable: appends a save record and forces the
+   * journal to disk, compacting it first if it has grown long.
+   *
+   * @throws IOException if the journal or mappings cannot be written
+   */
+  public void save() throws IOException {
+    if (this.records >= COMPACT_AFTER) {
+      this.compact();
+      return;
+    } // if
+    this.append(new String[] { "S" });
+    this.channel.force(false);
+  } // save()
+
+  /**
+   * Writes the whole board to the saved board of the next generation and
+   * starts the journal again with only the most recent HISTORY edits to
+   * undo and to redo; older ones are forgotten. The mappings file is left
+   * alone. The saved board is on disk (see AACMappings.writeToFile)
+   * before the journal is touched, and until the journal names the new
+   * generation, replay knows to drop the old records.
+   *
+   * @throws IOException if the journal or saved board cannot be written
+   */
+  public void compact() throws IOException {
+    long next = this.generation + 1;
+    this.mappings().writeToFile(this.filename + SAVED + next);
+    this.channel.truncate(0);
+    this.records = 0;
+    this.generation = next;
+    this.write(new String[] { "G", Long.toString(next) });
+    while (this.done.size() > HISTORY) {
+      this.done.removeLast();
+    } // while
+    while (this.undone.size() > HISTORY) {
+      this.undone.removeLast();
+    } // while
+    this.appendHistory("H", this.done);
+    this.appendHistory("K", this.undone);
+    this.channel.force(false);
+    this.removeSavedBefore(next);
+  } // compact()
+
+  /**
+   * Returns the number of records in the journal.
+   *
+   * @return the number of records
+   */
+  public int size() {
+    return this.records;
+  } // size()
+
+  /**
+   * Returns the number of records that replay skipped because they no
+   * longer applied.
+   *
+   * @return the number of skipped records
+   */
+  public int skipped() {
+    return this.skipped;
+  } // skipped()
+
+  /**
+   * Forces what has been written to disk and closes the journal file.
+   *
+   * @throws IOException if it cannot be forced or closed
+   */
+  public void close() throws IOException {
+    try {
+      if (this.channel.isOpen()) {
+        this.channel.force(false);
+      } // if
+    } finally {
+      this.channel.close();
+    } // try-finally
+  } // close()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Returns the mappings being edited, building them if need be.
+   *
+   * @return the mappings
+   */
+  private AACMappings mappings() {
+    return this.board.get();
+  } // mappings()
+
+  /**
+   * Applies an edit, remembers it for undo and journals it.
+   *
+   * @param record the edit
+   * @throws IOException if the journal cannot be written
+   */
+  private void perform(String[] record) throws IOException {
+    this.performInMemory(record);
+    this.append(record);
+  } // perform(String[])
+
+  /**
+   * Applies an edit and remembers it for undo.
+   *
+   * @param record the edit
+   */
+  private void performInMemory(String[] record) {
+    this.apply(record);
+    this.done.push(record);
+    this.undone.clear();
+  } // performInMemory(String[])
+
+  /**
+   * Undoes the most recent edit without journaling the undo.
+   *
+   * @return true if there was an edit to undo
+   */
+  private boolean undoInMemory() {
+    String[] record = this.done.poll();
+    if (record == null) {
+      return false;
+    } // if
+    for (String[] inverse : inverse(record)) {
+      this.apply(inverse);
+    } // for
+    this.undone.push(record);
+    return true;
+  } // undoInMemory()
+
+  /**
+   * Redoes the most recently undone edit without journaling the redo.
+   *
+   * @return true if there was an edit to redo
+   */
+  private boolean redoInMemory() {
+    String[] record = this.undone.poll();
+    if (record == null) {
+      return false;
+    } // if
+    this.apply(record);
+    this.done.push(record);
+    return true;
+  } // redoInMemory()
+
+  /**
+   * Makes the change that an edit record describes.
+   *
+   * @param record the edit
+   */
+  private void apply(String[] record) {
+    switch (record[0]) {
+      case "C":
+        this.mappings().addCategory(record[1], record[2]);
+        break;
+      case "R":
+        this.mappings().removeCategory(record[1]);
+        break;
+      case "I":
+        this.mappings().addItem(record[1], record[2], record[3]);
+        break;
+      case "X":
+        this.mappings().removeItem(record[1], record[2]);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown journal record " + record[0]);
+    } // switch
+  } // apply(String[])
+
+  /**
+   * Returns the edits that undo an edit, in the order to apply them.
+   *
+   * @param record the edit
+   * @return the inverse edits
+   */
+  static List<String[]> inverse(String[] record) {
+    List<String[]> result = new ArrayList<>();
+    switch (record[0]) {
+      case "C":
+        if (record[3] == null) {
+          result.add(new String[] { "R", record[1], record[2] });
+        } else {
+          result.add(new String[] { "C", record[1], record[3], record[2] });
+        } // if-else
+        break;
+      case "R":
+        result.add(new String[] { "C", record[1], record[2], null });
+        for (int n = 3; n + 1 < record.length; n += 2) {
+          result.add(new String[] { "I", record[1], record[n], record[n + 1], null });
+        } // for
+        break;
+      case "I":
+        if (record[4] == null) {
+          result.add(new String[] { "X", record[1], record[2], record[3] });
+        } else {
+          result.add(new String[] { "I", record[1], record[2], record[4], record[3] });
+        } // if-else
+        break;
+      case "X":
+        result.add(new String[] { "I", record[1], record[2], record[3], null });
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown journal record " + record[0]);
+    } // switch
+    return result;
+  } // inverse(String[])
+
+  /**
+   * Replays the complete records of the journal over the mappings, and
+   * cuts off a final record that was only partly written.
+   *
+   * @throws IOException if the journal cannot be read
+   */
+  private void replay() throws IOException {
+    long length = this.channel.size();
+    ByteBuffer buffer = ByteBuffer.allocate((int) length);
+    while (buffer.hasRemaining() && this.channel.read(buffer, buffer.position()) >= 0) {
+      // Keep reading until the buffer is full.
+    } // while
+    byte[] bytes = buffer.array();
+    int start = 0;
+    long follows = 0;
+    int newline = 0;
+    while (newline < bytes.length && bytes[newline] != '\n') {
+      newline++;
+    } // while
+    if (newline < bytes.length) {
+      String[] header = decode(new String(bytes, 0, newline, StandardCharsets.UTF_8));
+      if (header[0].equals("G") && header.length == 2) {
+        try {
+          follows = Long.parseLong(header[1]);
+          start = newline + 1;
+        } catch (NumberFormatException e) {
+          // Not a header after all; replay it as a record (and skip it).
+        } // try-catch
+      } // if
+    } // if
+    if (follows < this.generation) {
+      // Already compacted into the saved board; start afresh after it.
+      this.channel.truncate(0);
+      this.write(new String[] { "G", Long.toString(this.generation) });
+      this.channel.force(false);
+      return;
+    } // if
+    this.generation = follows;
+    if (length == 0) {
+      return;
+    } // if
+    for (int n = start; n < bytes.length; n++) {
+      if (bytes[n] == '\n') {
+        String[] record = decode(new String(bytes, start, n - start, StandardCharsets.UTF_8));
+        this.records++;
+        try {
+          switch (record[0]) {
+            case "U":
+              this.undoInMemory();
+              break;
+            case "D":
+              this.redoInMemory();
+              break;
+            case "S":
+              break;
+            case "H":
+              this.done.push(check(Arrays.copyOfRange(record, 1, record.length)));
+              break;
+            case "K":
+              this.undone.push(check(Arrays.copyOfRange(record, 1, record.length)));
+              break;
+            default:
+              this.performInMemory(check(record));
+          } // switch
+        } catch (NoSuchElementException | IllegalArgumentException e) {
+          // A record that no longer applies (say, to a category that the
+          // board never had); skip it.
+          this.skipped++;
+          System.err.println("Skipping journal record " + this.records + ": " + e.getMessage());
+        } // try-catch
+        start = n + 1;
+      } // if
+    } // for
+    if (start < bytes.length) {
+      this.channel.truncate(start);
+    } // if
+  } // replay()
+
+  /**
+   * Makes sure an edit record has the fields its kind needs.
+   *
+   * @param record the edit
+   * @return the edit
+   * @throws IllegalArgumentException if it is not a well-formed edit
+   */
+  static String[] check(String[] record) {
+    if (record.length == 0) {
+      throw new IllegalArgumentException("Empty journal record");
+    } // if
+    boolean ok;
+    switch (record[0]) {
+      case "C":
+      case "X":
+        ok = record.length == 4;
+        break;
+      case "I":
+        ok = record.length == 5;
+        break;
+      case "R":
+        ok = record.length >= 3 && record.length % 2 == 1;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown journal record " + record[0]);
+    } // switch
+    if (!ok) {
+      throw new IllegalArgumentException("Wrong number of fields in " + record[0] + " record");
+    } // if
+    return record;
+  } // check(String[])
+
+  /**
+   * Appends remembered edits to the journal as history records, oldest
+   * first, so that replaying them rebuilds the stack.
+   *
+   * @param kind  the kind of history record
+   * @param stack the edits, most recent first
+   * @throws IOException if the journal cannot be written
+   */
+  private void appendHistory(String kind, ArrayDeque<String[]> stack) throws IOException {
+    for (Iterator<String[]> edits = stack.descendingIterator(); edits.hasNext(); ) {
+      String[] edit = edits.next();
+      String[] record = new String[edit.length + 1];
+      record[0] = kind;
+      System.arraycopy(edit, 0, record, 1, edit.length);
+      this.append(record);
+    } // for
+  } // appendHistory(String, ArrayDeque)
+
+  /**
+   * Appends a record to the end of the journal.
+   *
+   * @param record the record
+   * @throws IOException if the journal cannot be written
+   */
+  private void append(String[] record) throws IOException {
+    this.write(record);
+    this.records++;
+  } // append(String[])
+
+  /**
+   * Writes a line at the end of the journal without counting it as a
+   * record, as for the "G" header.
+   *
+   * @param record the fields of the line
+   * @throws IOException if the journal cannot be written
+   */
+  private void write(String[] record) throws IOException {
+    ByteBuffer line = ByteBuffer.wrap(encode(record).getBytes(StandardCharsets.UTF_8));
+    long position = this.channel.size();
+    while (line.hasRemaining()) {
+      position += this.channel.write(line, position);
+    } // while
+  } // write(String[])
+
+  /**
+   * Returns the generations of the boards saved for a mappings file.
+   *
+   * @param filename the mappings file
+   * @return the generations, in no particular order
+   * @throws UncheckedIOException if the directory cannot be read
+   */
+  private static List<Long> savedGenerations(String filename) {
+    Path file = Paths.get(filename).toAbsolutePath();
+    String prefix = file.getFileName() + SAVED;
+    List<Long> result = new ArrayList<>();
+    try (DirectoryStream<Path> saved = Files.newDirectoryStream(file.getParent(),
+        (path) -> path.getFileName().toString().startsWith(prefix))) {
+      for (Path path : saved) {
+        try {
+          result.add(Long.parseLong(path.getFileName().toString().substring(prefix.length())));
+        } catch (NumberFormatException e) {
+          // Not a saved board (a temporary file, say).
+        } // try-catch
+      } // for
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } // try-catch
+    return result;
+  } // savedGenerations(String)
+
+  /**
+   * Removes the saved boards older than the given generation, which
+   * nothing will load again, and their snapshots.
+   *
+   * @param generation the oldest generation to keep
+   * @throws IOException if one cannot be removed
+   */
+  private void removeSavedBefore(long generation) throws IOException {
+    for (long old : savedGenerations(this.filename)) {
+      if (old < generation) {
+        Files.deleteIfExists(Paths.get(this.filename + SAVED + old));
+        Files.deleteIfExists(Paths.get(this.filename + SAVED + old + AACSnapshot.EXTENSION));
+      } // if
+    } // for
+  } // removeSavedBefore(long)
+
+  /**
+   * Encodes a record as one line of the journal, including the newline.
+   *
+   * @param record the fields
+   * @return the line
+   */
+  static String encode(String[] record) {
+    StringBuilder line = new StringBuilder();
+    for (int f = 0; f < record.length; f++) {
+      if (f > 0) {
+        line.append('\t');
+      } // if
+      String field = record[f];
+      if (field == null) {
+        line.append("\\0");
+        continue;
+      } // if
+      for (int i = 0; i < field.length(); i++) {
+        char ch = field.charAt(i);
+        if (ch == '\\') {
+          line.append("\\\\");
+        } else if (ch == '\t') {
+          line.append("\\t");
+        } else if (ch == '\n') {
+          line.append("\\n");
+        } else if (ch == '\r') {
+          line.append("\\r");
+        } else {
+          line.append(ch);
+        } // if-else
+      } // for
+    } // for
+    return line.append('\n').toString();
+  } // encode(String[])
+
+  /**
+   * Decodes one line of the journal (without its newline).
+   *
+   * @param line the line
+   * @return the fields
+   */
+  static String[] decode(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean isNull = false;
+    for (int i = 0; i <= line.length(); i++) {
+      if (i == line.length() || line.charAt(i) == '\t') {
+        fields.add(isNull ? null : field.toString());
+        field.setLength(0);
+        isNull = false;
+      } else if (line.charAt(i) == '\\' && i + 1 < line.length()) {
+        char escaped = line.charAt(++i);
+        if (escaped == '0') {
+          isNull = true;
+        } else if (escaped == 't') {
+          field.append('\t');
+        } else if (escaped == 'n') {
+          field.append('\n');
+        } else if (escaped == 'r') {
+          field.append('\r');
+        } else {
+          field.append(escaped);
+        } // if-else
+      } else {
+        field.append(line.charAt(i));
+      } // if-else
+    } // for
+    return fields.toArray(new String[0]);
+  } // decode(String)
+} // class AACJournal
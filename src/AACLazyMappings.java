@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * A board that is served straight from a memory-mapped AACSnapshot until
+ * it is first edited, and only then built as an AACMappings. Starting up
+ * therefore maps the snapshot rather than creating a category and a pair
+ * for every symbol, and a session that never edits the board never pays
+ * for them. The AACMappings is built by mappings(), which the journal
+ * calls before replaying or making an edit; the page it is on carries
+ * over, so the switch cannot be seen from outside.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class AACLazyMappings implements AACPage {
+
+  /** The snapshot being served, or null once the mappings are built. */
+  private AACSnapshot snapshot;
+
+  /** The mappings, or null until they are built. */
+  private AACMappings mappings;
+
+  /**
+   * Creates a board served from a snapshot.
+   *
+   * @param snapshot the snapshot
+   */
+  public AACLazyMappings(AACSnapshot snapshot) {
+    this.snapshot = snapshot;
+    this.mappings = null;
+  } // AACLazyMappings(AACSnapshot)
+
+  /**
+   * Creates a board over mappings that have already been built.
+   *
+   * @param mappings the mappings
+   */
+  public AACLazyMappings(AACMappings mappings) {
+    this.snapshot = null;
+    this.mappings = mappings;
+  } // AACLazyMappings(AACMappings)
+
+  // +----------+----------------------------------------------------
+  // | Mappings |
+  // +----------+
+
+  /**
+   * Returns the board as editable mappings, building them from the
+   * snapshot (on the page the snapshot is showing) the first time.
+   *
+   * @return the mappings
+   */
+  public AACMappings mappings() {
+    if (this.mappings == null) {
+      AACMappings built = this.snapshot.toMappings();
+      String currentLoc = this.snapshot.getCurrentLoc();
+      if (currentLoc != null) {
+        built.select(currentLoc);
+      } // if
+      this.mappings = built;
+      this.snapshot = null;
+    } // if
+    return this.mappings;
+  } // mappings()
+
+  /**
+   * Determines if the mappings have been built yet.
+   *
+   * @return true if they have, false if the board is still served from
+   *         the snapshot
+   */
+  public boolean isBuilt() {
+    return this.mappings != null;
+  } // isBuilt()
+
+  /**
+   * Writes the board in the text format of AACMappings.writeToFile,
+   * straight from the snapshot if the board has not been edited.
+   *
+   * @param filename the file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void writeToFile(String filename) throws IOException {
+    if (this.mappings == null) {
+      this.snapshot.writeText(filename);
+    } else {
+      this.mappings.writeToFile(filename);
+    } // if-else
+  } // writeToFile(String)
+
+  /**
+   * Returns the text an image in the current category would speak,
+   * without selecting it.
+   *
+   * @param imageLoc the location of the image
+   * @return its text, or null if it is not an item of the current category
+   */
+  public String peek(String imageLoc) {
+    return (this.mappings == null) ? this.snapshot.peek(imageLoc)
+        : this.mappings.peek(imageLoc);
+  } // peek(String)
+
+  // +---------------+-----------------------------------------------
+  // | AACPage views |
+  // +---------------+
+
+  /**
+   * Adds the image location, text pairing to the page shown, building
+   * the mappings if need be.
+   *
+   * @param imageLoc the location of the image
+   * @param text     the text (or category name) for the image
+   */
+  public void addItem(String imageLoc, String text) {
+    this.mappings().addItem(imageLoc, text);
+  } // addItem(String, String)
+
+  /**
+   * Returns the image locations on the current page.
+   *
+   * @return the array of image locations
+   */
+  public String[] getImageLocs() {
+    return this.page().getImageLocs();
+  } // getImageLocs()
+
+  /**
+   * Returns the number of images on the current page.
+   *
+   * @return the number of images
+   */
+  public int getImageCount() {
+    return this.page().getImageCount();
+  } // getImageCount()
+
+  /**
+   * Returns up to limit of the images on the current page, starting with
+   * the one at offset.
+   *
+   * @param offset the index of the first image
+   * @param limit  the largest number of images to return
+   * @return the image locations
+   * @throws IndexOutOfBoundsException if offset or limit is negative
+   */
+  public String[] getImageLocs(int offset, int limit) {
+    return this.page().getImageLocs(offset, limit);
+  } // getImageLocs(int, int)
+
+  /**
+   * Returns the name of the current category.
+   *
+   * @return the name, or the empty string on the home page
+   */
+  public String getCategory() {
+    return this.page().getCategory();
+  } // getCategory()
+
+  /**
+   * Moves into a category or returns the text of an item.
+   *
+   * @param imageLoc the location of the image
+   * @return the text to speak, or the empty string after changing category
+   * @throws NoSuchElementException if the image is not on the current page
+   */
+  public String select(String imageLoc) throws NoSuchElementException {
+    return this.page().select(imageLoc);
+  } // select(String)
+
+  /**
+   * Determines if the image is a category or belongs to any category.
+   *
+   * @param imageLoc the location of the image
+   * @return true if the board contains it, false otherwise
+   */
+  public boolean hasImage(String imageLoc) {
+    return this.page().hasImage(imageLoc);
+  } // hasImage(String)
+
+  /**
+   * Returns to the home page.
+   */
+  public void reset() {
+    this.page().reset();
+  } // reset()
+
+  /**
+   * Goes back to wherever the page was before the current category.
+   *
+   * @return true if it went back, false if there was nowhere to go
+   */
+  public boolean back() {
+    return this.page().back();
+  } // back()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Returns whichever of the snapshot and the mappings is serving the
+   * board.
+   *
+   * @return the page
+   */
+  private AACPage page() {
+    return (this.mappings == null) ? this.snapshot : this.mappings;
+  } // page()
+} // class AACLazyMappings
@@ -0,0 +1,161 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import edu.grinnell.csc207.util.LatencyHistogram;
+
+/**
+ * Simulates many AAC users at once against an AACSessionRuntime. Every
+ * simulated user taps as fast as their session answers: half the time an
+ * image in view (going into a category, or speaking an item), otherwise
+ * home, back or next, and one tap in a hundred adds an image. All the
+ * users are in flight at once, so 10,000 users means 10,000 sessions with
+ * a request waiting, served by one thread per processor.
+ *
+ * Usage: java AACLoadGenerator [users [taps [file]]], with 10000 users,
+ * 100 taps each and AACMappings.txt by default. Prints the throughput and
+ * the latency of a tap (from sending it to its reply).
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class AACLoadGenerator {
+
+  /** The commands a tap can send besides an image. */
+  static final String[] COMMANDS = { AACSession.HOME, AACSession.BACK, AACSession.NEXT };
+
+  /**
+   * The outcome of a run.
+   */
+  public static final class Result {
+    /** The number of taps answered. */
+    final long taps;
+
+    /** The number of taps that failed. */
+    final long failures;
+
+    /** How long the run took, in nanoseconds. */
+    final long nanos;
+
+    /** The latency of each tap, in nanoseconds. */
+    final LatencyHistogram latency;
+
+    /**
+     * Creates a result.
+     *
+     * @param taps     the number of taps answered
+     * @param failures the number of taps that failed
+     * @param nanos    how long the run took
+     * @param latency  the latency of each tap
+     */
+    Result(long taps, long failures, long nanos, LatencyHistogram latency) {
+      this.taps = taps;
+      this.failures = failures;
+      this.nanos = nanos;
+      this.latency = latency;
+    } // Result(long, long, long, LatencyHistogram)
+
+    /**
+     * Summarizes the result.
+     *
+     * @return a summary
+     */
+    public String toString() {
+      return String.format("%d taps (%d failed) in %.2f s: %.0f taps/s; "
+          + "latency p50 %.3f ms, p99 %.3f ms, max %.3f ms",
+          this.taps, this.failures, this.nanos / 1e9, this.taps / (this.nanos / 1e9),
+          this.latency.percentile(0.5) / 1e6, this.latency.percentile(0.99) / 1e6,
+          this.latency.max() / 1e6);
+    } // toString()
+  } // class Result
+
+  /**
+   * Runs simulated users against a runtime and waits for them to finish.
+   *
+   * @param runtime the runtime
+   * @param users   the number of users
+   * @param taps    the number of taps each user makes
+   * @return the outcome
+   */
+  public static Result run(AACSessionRuntime runtime, int users, int taps) {
+    LatencyHistogram latency = new LatencyHistogram();
+    AtomicLong answered = new AtomicLong();
+    AtomicLong failures = new AtomicLong();
+    CompletableFuture<?>[] done = new CompletableFuture<?>[users];
+    long start = System.nanoTime();
+    for (int u = 0; u < users; u++) {
+      CompletableFuture<Void> finished = new CompletableFuture<>();
+      done[u] = finished;
+      String user = "user" + u;
+      runtime.view(user).whenComplete((reply, error) -> {
+        tap(runtime, user, reply, taps, latency, answered, failures, finished);
+      });
+    } // for
+    CompletableFuture.allOf(done).join();
+    return new Result(answered.get(), failures.get(), System.nanoTime() - start, latency);
+  } // run(AACSessionRuntime, int, int)
+
+  /**
+   * Simulates users against a runtime on the board in a mappings file.
+   *
+   * @param args [users [taps [file]]]
+   */
+  public static void main(String[] args) {
+    int users = (args.length >= 1) ? Integer.parseInt(args[0]) : 10000;
+    int taps = (args.length >= 2) ? Integer.parseInt(args[1]) : 100;
+    String file = (args.length >= 3) ? args[2] : "AACMappings.txt";
+    AACSessionRuntime runtime = new AACSessionRuntime(AACBoard.of(new AACMappings(file)));
+    // A short run first, so the timed run measures compiled code.
+    run(runtime, Math.min(users, 1000), Math.min(taps, 10));
+    runtime.shutdown();
+    runtime = new AACSessionRuntime(AACBoard.of(new AACMappings(file)));
+    System.out.println(users + " users: " + run(runtime, users, taps));
+    System.out.println(runtime.edited() + " of " + runtime.users() + " boards edited");
+    runtime.shutdown();
+  } // main(String[])
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Sends a user's next tap, and when it is answered, the one after, until
+   * the user has no taps left. Runs in the user's session's mailbox (as
+   * the callback of the last reply), so it never blocks a thread.
+   *
+   * @param runtime  the runtime
+   * @param user     the user
+   * @param reply    the reply to the last tap, or null if it failed
+   * @param left     the number of taps left
+   * @param latency  records the latency of each tap
+   * @param answered counts the taps answered
+   * @param failures counts the taps that failed
+   * @param finished completed when the user is done
+   */
+  private static void tap(AACSessionRuntime runtime, String user, AACSessionRuntime.Reply reply,
+      int left, LatencyHistogram latency, AtomicLong answered, AtomicLong failures,
+      CompletableFuture<Void> finished) {
+    if (left == 0) {
+      finished.complete(null);
+      return;
+    } // if
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    CompletableFuture<AACSessionRuntime.Reply> next;
+    int shown = (reply == null) ? 0 : reply.getState().size();
+    long sent = System.nanoTime();
+    if (random.nextInt(100) == 0) {
+      next = runtime.add(user, "img/custom/" + user + "-" + left + ".png", "custom " + left);
+    } else if (shown > 0 && random.nextBoolean()) {
+      next = runtime.tap(user, reply.getState().getImage(random.nextInt(shown)));
+    } else {
+      next = runtime.tap(user, COMMANDS[random.nextInt(COMMANDS.length)]);
+    } // if-else
+    next.whenComplete((result, error) -> {
+      latency.record(System.nanoTime() - sent);
+      answered.incrementAndGet();
+      if (error != null) {
+        failures.incrementAndGet();
+      } // if
+      tap(runtime, user, result, left - 1, latency, answered, failures, finished);
+    });
+  } // tap(AACSessionRuntime, String, AACSessionRuntime.Reply, int, ...)
+} // class AACLoadGenerator
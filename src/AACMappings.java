@@ -1,6 +1,21 @@
-
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import edu.grinnell.csc207.util.AssociativeArray;
 import edu.grinnell.csc207.util.KVPair;
@@ -19,26 +34,87 @@ import edu.grinnell.csc207.util.KVPair;
 public class AACMappings implements AACPage {
 
   /**
-   * The category that it is currently in, and the associative array that combine
+   * The home page (whose items map each category's image to its name), the
+   * category that it is currently in, and the associative array that combine
    * all the categories.
    */
-  public final static AACCategory DEFAULT_CATEGORY = new AACCategory("Home");
+  AACCategory home;
   AACCategory currentCat;
   AssociativeArray<String, AACCategory> allCat;
 
+  /**
+   * The image location of the current category (null on the home page).
+   */
+  String currentLoc;
+
+  /**
+   * The image locations of the pages we navigated away from, most recent
+   * last (null stands for the home page), and how many are in use.
+   */
+  String[] history;
+  int depth;
+
+  /**
+   * The reverse index: for each image location used by an item, the image
+   * locations of the categories that contain it.
+   */
+  AssociativeArray<String, String[]> owners;
+
+  /**
+   * The file these mappings were last saved to (or null), its size and
+   * modification time just after the save, and whether the set of
+   * categories has changed since then.
+   */
+  Path savedTo;
+  long savedSize;
+  long savedModified;
+  boolean dirty;
+
+  /**
+   * Whether categories keep their items in compact storage.
+   */
+  final boolean compact;
+
   /**
    * Creates a set of mappings for the AAC based on the provided file.
+   * A missing file gives an empty set of mappings.
    *
    * @param filename the name of the file that stores the mapping information
+   * @throws UncheckedIOException if the file exists but cannot be read
    */
   public AACMappings(String filename) {
-    if (filename.equals(null)) {
-      this.currentCat = DEFAULT_CATEGORY;
-    } else {
-      this.currentCat = new AACCategory(filename);
-    } // if-else
+    this(filename, false);
+  } // AACMappings(String)
+
+  /**
+   * Creates a set of mappings for the AAC based on the provided file,
+   * optionally keeping the items of each category in compact storage
+   * (see AACCategory), which suits very large boards. Once loaded, the
+   * mappings release their unused capacity (see trimToSize).
+   *
+   * @param filename the name of the file that stores the mapping information
+   * @param compact  whether categories use compact storage
+   * @throws UncheckedIOException if the file exists but cannot be read
+   */
+  public AACMappings(String filename, boolean compact) {
+    this.compact = compact;
+    this.home = new AACCategory("");
+    this.currentCat = this.home;
     this.allCat = new AssociativeArray<>();
-  } // AACMappings
+    this.owners = new AssociativeArray<>();
+    this.history = new String[4];
+    this.depth = 0;
+    if (filename != null) {
+      try {
+        new AACMappingsLoader(this).load(Paths.get(filename));
+        this.trimToSize();
+      } catch (NoSuchFileException e) {
+        // Start with an empty board.
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } // try-catch
+    } // if
+  } // AACMappings(String, boolean)
 
   /**
    * Given the image location selected, it determines the action to be taken.
@@ -47,6 +123,8 @@ public class AACMappings implements AACPage {
    * AAC's current category to be the category associated with that image and
    * returns the empty string. If the AAC is currently in a category and the
    * image provided is in that category, it returns the text to be spoken.
+   * Changing category switches to the stored category (so its items are
+   * shown) and remembers where we came from for back().
    *
    * @param imageLoc the location where the image is stored
    * @return if there is text to be spoken, it returns that information, otherwise
@@ -55,15 +133,38 @@ public class AACMappings implements AACPage {
    *                                category
    */
   public String select(String imageLoc) throws NoSuchElementException {
-    if (this.allCat.hasKey(imageLoc)) {
-      this.currentCat = new AACCategory(imageLoc);
+    AACCategory category = null;
+    if (this.currentCat == this.home) {
+      category = this.allCat.getOrDefault(imageLoc, null);
+    } // if
+    if (category != null) {
+      if (this.depth == this.history.length) {
+        this.history = Arrays.copyOf(this.history, this.depth * 2);
+      } // if
+      this.history[this.depth++] = this.currentLoc;
+      this.currentCat = category;
+      this.currentLoc = imageLoc;
       return "";
-    } else if (this.currentCat.hasImage(imageLoc)) {
-      return currentCat.select(imageLoc);
-    } // if-else
-    throw new NoSuchElementException("Not in the current category.");
+    } // if
+    // A single lookup; it only throws when the image really is missing.
+    return this.currentCat.select(imageLoc);
   } // select (String)
 
+  /**
+   * Returns the text that select would speak for the given image, without
+   * changing category.
+   *
+   * @param imageLoc the location where the image is stored
+   * @return the text to be spoken, or null if selecting the image would
+   *         not speak (e.g., it is a category or is not on this page)
+   */
+  public String peek(String imageLoc) {
+    if (this.currentCat == this.home) {
+      return null;
+    } // if
+    return this.currentCat.storage.getOrDefault(imageLoc, null);
+  } // peek(String)
+
   /**
    * Provides an array of all the images in the current category.
    *
@@ -74,14 +175,62 @@ public class AACMappings implements AACPage {
     return this.currentCat.getImageLocs();
   } // getImageLocs()
 
+  /**
+   * Returns the number of images in the current category.
+   *
+   * @return the number of images
+   */
+  public int getImageCount() {
+    return this.currentCat.getImageCount();
+  } // getImageCount()
+
+  /**
+   * Returns up to limit of the images in the current category, starting
+   * with the one at offset.
+   *
+   * @param offset the index of the first image
+   * @param limit  the largest number of images to return
+   * @return the image locations
+   * @throws IndexOutOfBoundsException if offset or limit is negative
+   */
+  public String[] getImageLocs(int offset, int limit) {
+    return this.currentCat.getImageLocs(offset, limit);
+  } // getImageLocs(int, int)
+
   /**
    * Resets the current category of the AAC back to the default
    * category
    */
   public void reset() {
-    this.currentCat = DEFAULT_CATEGORY;
+    this.currentCat = this.home;
+    this.currentLoc = null;
+    this.depth = 0;
   } // rest()
 
+  /**
+   * Returns to the page we were on before the most recent change of
+   * category.
+   *
+   * @return true if we went back, false if there was nowhere to go back to
+   */
+  public boolean back() {
+    if (this.depth == 0) {
+      return false;
+    } // if
+    String previous = this.history[--this.depth];
+    AACCategory category = (previous == null) ? null
+        : this.allCat.getOrDefault(previous, null);
+    if (category == null) {
+      // The home page, or a category that has since been removed.
+      this.currentCat = this.home;
+      this.currentLoc = null;
+    } else {
+      this.currentCat = category;
+      this.currentLoc = previous;
+    } // if-else
+    return true;
+  } // back()
+
   /**
    * Writes the ACC mappings stored to a file. The file is formatted as
    * the text location of the category followed by the text name of the
@@ -99,23 +248,133 @@ public class AACMappings implements AACPage {
    * and food has french fries and watermelon and clothing has a
    * collared shirt
    *
+   * The mappings are streamed to a temporary file in the same directory,
+   * which is forced to disk, given the permissions of the file it replaces
+   * and then renamed over it, so a crash never leaves half a file behind.
+   * When saving again to the same file (and it has not been changed by
+   * anything else since), the lines of categories that have not changed
+   * are copied from it rather than written out again, and if nothing has
+   * changed at all the save does nothing.
+   *
    * @param filename the name of the file to write the
    *                 AAC mapping to
+   * @throws IOException if the file cannot be written
    */
-  public void writeToFile(String filename) {
+  public void writeToFile(String filename) throws IOException {
+    Path target = Paths.get(filename).toAbsolutePath();
+    boolean reuse = target.equals(this.savedTo) && Files.exists(target)
+        && Files.size(target) == this.savedSize
+        && Files.getLastModifiedTime(target).toMillis() == this.savedModified;
+    if (reuse && !this.hasUnsavedChanges()) {
+      return;
+    } // if
+    KVPair<String, AACCategory>[] mappings = this.allCat.getPair();
+    int count = this.allCat.size();
+    long[] offsets = new long[count + 1];
+    Path temp = target.resolveSibling("." + target.getFileName() + ".tmp");
     try {
-      PrintWriter pen = new PrintWriter(filename);
-      KVPair<String, AACCategory>[] mappings = allCat.getPair();
-      for (int n = 0; n < this.allCat.size(); n++) {
-        pen.println(mappings[n].toString());
-        pen.println(">" + mappings[n].val.storage.toString());
-      } // for
-      pen.close();
-    } catch (FileNotFoundException e) {
-      // Do nothing
-    } // try-catch
+      Files.deleteIfExists(temp);
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.WRITE);
+          FileChannel old = reuse ? FileChannel.open(target, StandardOpenOption.READ) : null) {
+        CountingStream bytes = new CountingStream(
+            new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        Writer pen = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        for (int n = 0; n < count; n++) {
+          AACCategory category = mappings[n].val;
+          offsets[n] = bytes.count;
+          if (reuse && !category.changed && category.savedOffset >= 0) {
+            bytes.flushThrough();
+            copy(old, category.savedOffset, category.savedLength, channel);
+            bytes.count += category.savedLength;
+          } else {
+            category.write(mappings[n].key, pen);
+            pen.flush();
+          } // if-else
+        } // for
+        offsets[count] = bytes.count;
+        bytes.flushThrough();
+        channel.force(true);
+      } // try
+      if (Files.exists(target)) {
+        try {
+          Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+        } catch (UnsupportedOperationException e) {
+          // Not a POSIX file system, so there are no permissions to keep.
+        } // try-catch
+      } // if
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      syncDirectory(target.getParent());
+    } finally {
+      Files.deleteIfExists(temp);
+    } // try-finally
+    for (int n = 0; n < count; n++) {
+      AACCategory category = mappings[n].val;
+      category.savedOffset = offsets[n];
+      category.savedLength = offsets[n + 1] - offsets[n];
+      category.changed = false;
+    } // for
+    this.savedTo = target;
+    this.savedSize = Files.size(target);
+    this.savedModified = Files.getLastModifiedTime(target).toMillis();
+    this.dirty = false;
   } // writeToFile(String)
 
+  /**
+   * Copies part of one file to the current position of another.
+   *
+   * @param from     the file to copy from
+   * @param position where the part starts
+   * @param length   the number of bytes
+   * @param to       the file to copy to
+   * @throws IOException if the files cannot be read or written
+   */
+  private static void copy(FileChannel from, long position, long length, FileChannel to)
+      throws IOException {
+    long done = 0;
+    while (done < length) {
+      long copied = from.transferTo(position + done, length - done, to);
+      if (copied <= 0) {
+        throw new IOException("The saved file is shorter than expected.");
+      } // if
+      done += copied;
+    } // while
+  } // copy(FileChannel, long, long, FileChannel)
+
+  /**
+   * Forces a directory to disk, so that a file just renamed into it stays
+   * renamed after a crash.
+   *
+   * @param dir the directory
+   */
+  static void syncDirectory(Path dir) {
+    try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Some platforms cannot open a directory; the rename is still atomic.
+    } // try-catch
+  } // syncDirectory(Path)
+
+  /**
+   * Determines if anything has changed since the mappings were last
+   * written to a file.
+   *
+   * @return true if there are changes to save, false otherwise
+   */
+  public boolean hasUnsavedChanges() {
+    if (this.dirty) {
+      return true;
+    } // if
+    KVPair<String, AACCategory>[] mappings = this.allCat.getPair();
+    for (int n = 0; n < this.allCat.size(); n++) {
+      if (mappings[n].val.changed) {
+        return true;
+      } // if
+    } // for
+    return false;
+  } // hasUnsavedChanges()
+
   /**
    * Adds the mapping to the current category (or the default category if
    * that is the current category)
@@ -124,9 +383,157 @@ public class AACMappings implements AACPage {
    * @param text     the text associated with the image
    */
   public void addItem(String imageLoc, String text) {
-    this.currentCat.addItem(imageLoc, text);
+    if (this.currentCat == this.home) {
+      this.addCategory(imageLoc, text);
+    } else {
+      this.addItem(this.currentLoc, imageLoc, text);
+    } // if-else
   } // addItem(String, String)
 
+  /**
+   * Adds the mapping to the category shown by the given image, keeping the
+   * reverse index up to date.
+   *
+   * @param categoryLoc the location of the category's image
+   * @param imageLoc    the location of the image
+   * @param text        the text associated with the image
+   * @throws NoSuchElementException if there is no such category
+   */
+  void addItem(String categoryLoc, String imageLoc, String text) {
+    AACCategory category = this.allCat.getOrDefault(categoryLoc, null);
+    if (category == null) {
+      throw new NoSuchElementException("No category " + categoryLoc);
+    } // if
+    if (!category.hasImage(imageLoc)) {
+      this.own(imageLoc, categoryLoc);
+    } // if
+    category.addItem(imageLoc, text);
+  } // addItem(String, String, String)
+
+  /**
+   * Adds many items to the category shown by the given image at once,
+   * as if by addItem for each, but growing the category only once.
+   *
+   * @param categoryLoc the location of the category's image
+   * @param items       the texts of the items, by image location
+   * @throws NoSuchElementException if there is no such category
+   */
+  void addItems(String categoryLoc, Map<String, String> items) {
+    AACCategory category = this.allCat.getOrDefault(categoryLoc, null);
+    if (category == null) {
+      throw new NoSuchElementException("No category " + categoryLoc);
+    } // if
+    for (String imageLoc : items.keySet()) {
+      if (!category.hasImage(imageLoc)) {
+        this.own(imageLoc, categoryLoc);
+      } // if
+    } // for
+    category.addAll(items);
+  } // addItems(String, Map)
+
+  /**
+   * Removes an item from the category shown by the given image. Does
+   * nothing if there is no such category or item.
+   *
+   * @param categoryLoc the location of the category's image
+   * @param imageLoc    the location of the item's image
+   */
+  void removeItem(String categoryLoc, String imageLoc) {
+    AACCategory category = this.allCat.getOrDefault(categoryLoc, null);
+    if (category == null || !category.hasImage(imageLoc)) {
+      return;
+    } // if
+    this.disown(imageLoc, categoryLoc);
+    category.removeItem(imageLoc);
+  } // removeItem(String, String)
+
+  /**
+   * Adds a category to the reverse index entry of an item.
+   *
+   * @param imageLoc    the location of the item's image
+   * @param categoryLoc the location of the category's image
+   */
+  private void own(String imageLoc, String categoryLoc) {
+    String[] was = this.owners.getOrDefault(imageLoc, null);
+    String[] now;
+    if (was == null) {
+      now = new String[] { categoryLoc };
+    } else {
+      now = Arrays.copyOf(was, was.length + 1);
+      now[was.length] = categoryLoc;
+    } // if-else
+    this.owners.set(imageLoc, now);
+  } // own(String, String)
+
+  /**
+   * Removes a category from the reverse index entry of an item. Does
+   * nothing if the entry does not list the category.
+   *
+   * @param imageLoc    the location of the item's image
+   * @param categoryLoc the location of the category's image
+   */
+  private void disown(String imageLoc, String categoryLoc) {
+    String[] was = this.owners.getOrDefault(imageLoc, null);
+    if (was == null || !Arrays.asList(was).contains(categoryLoc)) {
+      return;
+    } // if
+    if (was.length == 1) {
+      this.owners.remove(imageLoc);
+    } else {
+      String[] now = new String[was.length - 1];
+      int k = 0;
+      for (String owner : was) {
+        if (!owner.equals(categoryLoc)) {
+          now[k++] = owner;
+        } // if
+      } // for
+      this.owners.set(imageLoc, now);
+    } // if-else
+  } // disown(String, String)
+
+  /**
+   * Removes the category shown by the given image, along with its items.
+   * Does nothing if there is no such category.
+   *
+   * @param categoryLoc the location of the category's image
+   */
+  public void removeCategory(String categoryLoc) {
+    AACCategory category = this.allCat.getOrDefault(categoryLoc, null);
+    if (category == null) {
+      return;
+    } // if
+    for (int n = 0; n < category.storage.size(); n++) {
+      this.disown(category.storage.keyAt(n), categoryLoc);
+    } // for
+    this.allCat.remove(categoryLoc);
+    this.home.storage.remove(categoryLoc);
+    this.dirty = true;
+    if (categoryLoc.equals(this.currentLoc)) {
+      this.reset();
+    } // if
+  } // removeCategory(String)
+
+  /**
+   * Adds (or renames) the category shown on the home page by the given
+   * image.
+   *
+   * @param imageLoc the location of the category's image
+   * @param name     the name of the category
+   * @return the category stored for that image
+   */
+  AACCategory addCategory(String imageLoc, String name) {
+    AACCategory category = this.allCat.getOrDefault(imageLoc, null);
+    if (category == null) {
+      category = new AACCategory(name, this.compact);
+      this.allCat.set(imageLoc, category);
+    } else {
+      category.rename(name);
+    } // if-else
+    this.home.addItem(imageLoc, name);
+    this.dirty = true;
+    return category;
+  } // addCategory(String, String)
+
   /**
    * Gets the name of the current category
    *
@@ -134,7 +541,7 @@ public class AACMappings implements AACPage {
    *         on the default category
    */
   public String getCategory() {
-    if (this.currentCat.equals(DEFAULT_CATEGORY)) {
+    if (this.currentCat == this.home) {
       return "";
     } else {
       return this.currentCat.getCategory();
@@ -150,9 +557,108 @@ public class AACMappings implements AACPage {
    *         can be displayed, false otherwise
    */
   public boolean hasImage(String imageLoc) {
-    for (KVPair<String, AACCategory> x : allCat.getPair()) {
-      x.val.hasImage(imageLoc);
-    } // for
-    return false;
+    return this.allCat.hasKey(imageLoc) || this.owners.hasKey(imageLoc);
   } // hasImage (String)
+
+  /**
+   * Finds the categories that contain the given image.
+   *
+   * @param imageLoc the location of the image
+   * @return the image locations of the categories that contain it, in the
+   *         order the image was added to them; if there are none, an empty
+   *         array
+   */
+  public String[] findCategories(String imageLoc) {
+    String[] found = this.owners.getOrDefault(imageLoc, null);
+    if (found == null) {
+      return new String[0];
+    } // if
+    return found.clone();
+  } // findCategories(String)
+
+  /**
+   * Determines if the given image is used by more than one category.
+   *
+   * @param imageLoc the location of the image
+   * @return true if two or more categories contain it, false otherwise
+   */
+  public boolean isDuplicate(String imageLoc) {
+    String[] found = this.owners.getOrDefault(imageLoc, null);
+    return found != null && found.length > 1;
+  } // isDuplicate(String)
+
+  /**
+   * Releases the unused capacity of every category and index, so a
+   * freshly loaded board takes no more memory than it needs.
+   */
+  public void trimToSize() {
+    this.home.trimToSize();
+    this.allCat.trimToSize();
+    this.owners.trimToSize();
+    for (int n = 0; n < this.allCat.size(); n++) {
+      this.allCat.valueAt(n).trimToSize();
+    } // for
+  } // trimToSize()
+
+  /**
+   * Estimates how many bytes the mappings use: the categories and the
+   * indexes, but not the image locations and texts unless the categories
+   * are compact.
+   *
+   * @return the estimated number of bytes
+   */
+  public long footprint() {
+    long bytes = this.home.footprint() + this.allCat.footprint() + this.owners.footprint();
+    for (int n = 0; n < this.allCat.size(); n++) {
+      bytes += this.allCat.valueAt(n).footprint();
+    } // for
+    for (int n = 0; n < this.owners.size(); n++) {
+      bytes += 16 + 4L * this.owners.valueAt(n).length;
+    } // for
+    return bytes;
+  } // footprint()
+
+  /**
+   * Counts the bytes written through it. Its flush does nothing, so a
+   * writer above it can be flushed after every category (to bring the
+   * count up to date) without a write to the file each time; flushThrough
+   * flushes the stream below.
+   */
+  private static class CountingStream extends FilterOutputStream {
+    /** The number of bytes written. */
+    long count;
+
+    /**
+     * Creates a stream that counts what it writes to out.
+     *
+     * @param out the stream below
+     */
+    CountingStream(OutputStream out) {
+      super(out);
+      this.count = 0;
+    } // CountingStream(OutputStream)
+
+    public void write(int b) throws IOException {
+      this.out.write(b);
+      this.count++;
+    } // write(int)
+
+    public void write(byte[] b, int off, int len) throws IOException {
+      this.out.write(b, off, len);
+      this.count += len;
+    } // write(byte[], int, int)
+
+    public void flush() {
+      // See flushThrough.
+    } // flush()
+
+    /**
+     * Flushes the stream below.
+     *
+     * @throws IOException if it cannot be flushed
+     */
+    void flushThrough() throws IOException {
+      this.out.flush();
+    } // flushThrough()
+  } // class CountingStream
 } // AACMappings Class
\ No newline at end of file
@@ -0,0 +1,147 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+/**
+ * Reads the AAC mappings file format described in
+ * AACMappings.writeToFile into an AACMappings in a single pass.
+ * Each line is either a category ("image-location category-name") or,
+ * when it starts with '>', an item of the most recent category
+ * ("&gt;image-location spoken-text").
+ *
+ * The file is streamed through a reusable buffer on a FileChannel, and
+ * lines are split on the raw bytes, so the only Strings created are the
+ * image locations and texts that end up stored in the mappings. A
+ * category's items are gathered and added together when the category
+ * ends, so each category grows its storage once rather than doubling
+ * its way up.
+ *
+ * @author Tiffany Tang
+ *
+ */
+class AACMappingsLoader {
+
+  /** The initial size of the read buffer; it grows for longer lines. */
+  static final int BUFFER_SIZE = 1 << 16;
+
+  /** The mappings being populated. */
+  private final AACMappings mappings;
+
+  /** The image of the category that items are currently added to, if any. */
+  private String current;
+
+  /** The items read for the current category and not yet added. */
+  private final LinkedHashMap<String, String> items;
+
+  /**
+   * Creates a loader that adds what it reads to the given mappings.
+   *
+   * @param mappings the mappings to populate
+   */
+  AACMappingsLoader(AACMappings mappings) {
+    this.mappings = mappings;
+    this.current = null;
+    this.items = new LinkedHashMap<>();
+  } // AACMappingsLoader(AACMappings)
+
+  /**
+   * Reads every line of the given file into the mappings.
+   *
+   * @param file the mappings file
+   * @throws IOException if the file cannot be read
+   */
+  void load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      byte[] bytes = new byte[BUFFER_SIZE];
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      while (channel.read(buffer) != -1) {
+        int limit = buffer.position();
+        int start = 0;
+        for (int n = 0; n < limit; n++) {
+          if (bytes[n] == '\n') {
+            this.line(bytes, start, n);
+            start = n + 1;
+          } // if
+        } // for
+        if (start == 0 && limit == bytes.length) {
+          // A line longer than the buffer; grow it and keep reading.
+          bytes = Arrays.copyOf(bytes, bytes.length * 2);
+          buffer = ByteBuffer.wrap(bytes);
+          buffer.position(limit);
+        } else {
+          // Move the unfinished line to the front of the buffer.
+          System.arraycopy(bytes, start, bytes, 0, limit - start);
+          buffer.position(limit - start);
+        } // if-else
+      } // while
+      if (buffer.position() > 0) {
+        this.line(bytes, 0, buffer.position());
+      } // if
+    } // try
+    this.flush();
+  } // load(Path)
+
+  /**
+   * Handles the line stored in bytes[start..end).
+   *
+   * @param bytes the buffer holding the line
+   * @param start the index of the first byte of the line
+   * @param end   the index just past the last byte of the line
+   */
+  private void line(byte[] bytes, int start, int end) {
+    if (end > start && bytes[end - 1] == '\r') {
+      end--;
+    } // if
+    boolean item = start < end && bytes[start] == '>';
+    if (item) {
+      start++;
+    } // if
+    while (start < end && bytes[start] == ' ') {
+      start++;
+    } // while
+    if (start == end) {
+      return;
+    } // if
+    int space = start;
+    while (space < end && bytes[space] != ' ') {
+      space++;
+    } // while
+    String imageLoc = decode(bytes, start, space);
+    String text = (space < end) ? decode(bytes, space + 1, end) : "";
+    if (!item) {
+      this.flush();
+      this.mappings.addCategory(imageLoc, text);
+      this.current = imageLoc;
+    } else if (this.current != null) {
+      this.items.put(imageLoc, text);
+    } // if-else
+    // Items that appear before any category have nowhere to go.
+  } // line(byte[], int, int)
+
+  /**
+   * Adds the items gathered for the current category to it.
+   */
+  private void flush() {
+    if (!this.items.isEmpty()) {
+      this.mappings.addItems(this.current, this.items);
+      this.items.clear();
+    } // if
+  } // flush()
+
+  /**
+   * Decodes bytes[start..end) as UTF-8.
+   *
+   * @param bytes the buffer
+   * @param start the first byte
+   * @param end   just past the last byte
+   * @return the decoded string
+   */
+  private static String decode(byte[] bytes, int start, int end) {
+    return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+  } // decode(byte[], int, int)
+} // class AACMappingsLoader
@@ -26,6 +26,24 @@ public interface AACPage {
 	 */
 	public String[] getImageLocs();
 	
+	/**
+	 * Returns the number of images to be displayed on the page
+	 * @return the number of image locations
+	 */
+	public int getImageCount();
+	
+	/**
+	 * Returns the images from offset to offset + limit of those to be
+	 * displayed on the page, in the same order as getImageLocs(), so
+	 * that a screen only has to fetch the images it shows
+	 * @param offset the index of the first image
+	 * @param limit the largest number of images to return
+	 * @return the array of image locations; it is shorter than limit
+	 * (possibly empty) if the page runs out of images
+	 * @throws IndexOutOfBoundsException if offset or limit is negative
+	 */
+	public String[] getImageLocs(int offset, int limit);
+	
 	/**
 	 * Returns the name of the current category
 	 * @return the name of the current category
@@ -54,5 +72,19 @@ public interface AACPage {
 	 */
 	public boolean hasImage(String imageLoc);
 	
+	/**
+	 * Goes back to the home page. Pages without one do nothing.
+	 */
+	public default void reset() {
+	}
+	
+	/**
+	 * Goes back to wherever the page was before the current category
+	 * @return true if it went back, false if there was nowhere to go back
+	 * to (the default, for pages without categories)
+	 */
+	public default boolean back() {
+		return false;
+	}
 	
 }
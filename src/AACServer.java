@@ -0,0 +1,314 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves AAC boards to many users at once over HTTP on the loopback
+ * interface. The base board is loaded once and shared by every user; each
+ * user gets their own session on an AACBoardPage that starts out showing
+ * that very board. Because boards are persistent, a user's edits copy
+ * only the path to what they changed, so a user who never edits costs a
+ * session and nothing more, and one who adds an item costs a few tree
+ * nodes, however large the base vocabulary is.
+ *
+ * The sessions run in an AACSessionRuntime, each in its own mailbox. The
+ * HTTP threads only parse a request and hand it to the user's mailbox;
+ * the response is sent from the mailbox once the session has handled it,
+ * so a slow session never holds an HTTP thread.
+ *
+ * Requests and responses are plain UTF-8 text:
+ *
+ *   GET  /boards/USER                        what USER sees
+ *   POST /boards/USER/tap?command=C          a tap: an image or a command
+ *                                            ("", back, next)
+ *   POST /boards/USER/items?image=I&text=T   adds an image where USER is
+ *   GET  /stats                              users, and how many edited
+ *
+ * A board response is one "name TAB value" line each for category,
+ * start, count, back and next, a "spoken" line if the tap spoke, then
+ * one "image" line per image in view. Edits are kept in memory only.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class AACServer {
+
+  /** The sessions. */
+  private final AACSessionRuntime runtime;
+
+  /** The HTTP server. */
+  private final HttpServer server;
+
+  /** The threads that parse requests and hand them to the sessions. */
+  private final ExecutorService workers;
+
+  /**
+   * Creates a server on the loopback interface that gives every user the
+   * given board. Call start() to start serving.
+   *
+   * @param base    the board
+   * @param port    the port, or 0 for any free port
+   * @param threads the number of threads that parse requests
+   * @throws IOException if the port cannot be bound
+   */
+  public AACServer(AACBoard base, int port, int threads) throws IOException {
+    this.runtime = new AACSessionRuntime(base);
+    this.server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    this.workers = Executors.newFixedThreadPool(threads, (task) -> {
+      Thread thread = new Thread(task, "AAC server");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.server.setExecutor(this.workers);
+    this.server.createContext("/boards/", this::handleBoard);
+    this.server.createContext("/stats", this::handleStats);
+  } // AACServer(AACBoard, int, int)
+
+  /**
+   * Starts serving.
+   */
+  public void start() {
+    this.server.start();
+  } // start()
+
+  /**
+   * Stops serving and forgets every user.
+   */
+  public void stop() {
+    this.server.stop(0);
+    this.workers.shutdownNow();
+    this.runtime.shutdown();
+  } // stop()
+
+  /**
+   * Returns the port the server listens on.
+   *
+   * @return the port
+   */
+  public int getPort() {
+    return this.server.getAddress().getPort();
+  } // getPort()
+
+  /**
+   * Returns the number of users who have made a request.
+   *
+   * @return the number of users
+   */
+  public int users() {
+    return this.runtime.users();
+  } // users()
+
+  /**
+   * Returns the number of users whose board differs from the base board.
+   *
+   * @return the number of users
+   */
+  public int edited() {
+    return this.runtime.edited();
+  } // edited()
+
+  /**
+   * Returns the board a user sees.
+   *
+   * @param user the user
+   * @return their board, or the base board if they have made no requests
+   */
+  public AACBoard board(String user) {
+    return this.runtime.board(user);
+  } // board(String)
+
+  /**
+   * Serves the base board from a mappings file. The optional arguments
+   * are the port (8207 by default) and the file (AACMappings.txt).
+   *
+   * @param args [port [file]]
+   * @throws IOException if the port cannot be bound
+   */
+  public static void main(String[] args) throws IOException {
+    int port = (args.length >= 1) ? Integer.parseInt(args[0]) : 8207;
+    String file = (args.length >= 2) ? args[1] : "AACMappings.txt";
+    AACServer server = new AACServer(AACBoard.of(new AACMappings(file)), port,
+        Runtime.getRuntime().availableProcessors() * 2);
+    server.start();
+    System.err.println("Serving " + file + " on http://localhost:" + server.getPort() + "/");
+  } // main(String[])
+
+  // +----------+----------------------------------------------------
+  // | Handlers |
+  // +----------+
+
+  /**
+   * Handles a request under /boards/.
+   *
+   * @param exchange the request and response
+   * @throws IOException if the response cannot be sent
+   */
+  private void handleBoard(HttpExchange exchange) throws IOException {
+    String[] path = exchange.getRequestURI().getPath().substring("/boards/".length())
+        .split("/", -1);
+    String action = (path.length == 2) ? path[1] : "";
+    boolean post = exchange.getRequestMethod().equals("POST");
+    CompletableFuture<AACSessionRuntime.Reply> reply;
+    try {
+      if (path.length > 2 || path[0].isEmpty()) {
+        throw new NoSuchElementException("No such board.");
+      } // if
+      if (action.isEmpty() ? post : !post) {
+        send(exchange, 405, "Method not allowed.\n");
+        return;
+      } // if
+      Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+      switch (action) {
+        case "":
+          reply = this.runtime.view(path[0]);
+          break;
+        case "tap":
+          reply = this.runtime.tap(path[0], required(query, "command"));
+          break;
+        case "items":
+          reply = this.runtime.add(path[0], required(query, "image"), required(query, "text"));
+          break;
+        default:
+          throw new NoSuchElementException("No such action.");
+      } // switch
+    } catch (RuntimeException e) {
+      fail(exchange, e);
+      return;
+    } // try-catch
+    reply.whenComplete((result, error) -> {
+      try {
+        if (error == null) {
+          send(exchange, 200, describe(result));
+        } else {
+          fail(exchange, (error instanceof CompletionException) ? error.getCause() : error);
+        } // if-else
+      } catch (IOException e) {
+        // The client has gone away.
+        exchange.close();
+      } // try-catch
+    });
+  } // handleBoard(HttpExchange)
+
+  /**
+   * Handles a request for /stats.
+   *
+   * @param exchange the request and response
+   * @throws IOException if the response cannot be sent
+   */
+  private void handleStats(HttpExchange exchange) throws IOException {
+    send(exchange, 200, "users\t" + this.users() + "\nedited\t" + this.edited() + "\n");
+  } // handleStats(HttpExchange)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Describes what a user sees.
+   *
+   * @param reply the user's session's reply
+   * @return the response body
+   */
+  static String describe(AACSessionRuntime.Reply reply) {
+    AACSession.State state = reply.getState();
+    StringBuilder body = new StringBuilder();
+    body.append("category\t").append(state.getCategory()).append('\n');
+    body.append("start\t").append(state.getStart()).append('\n');
+    body.append("count\t").append(state.getImageCount()).append('\n');
+    body.append("back\t").append(state.hasBack()).append('\n');
+    body.append("next\t").append(state.hasNext()).append('\n');
+    if (reply.getSpoken() != null) {
+      body.append("spoken\t").append(reply.getSpoken()).append('\n');
+    } // if
+    for (int n = 0; n < state.size(); n++) {
+      body.append("image\t").append(state.getImage(n)).append('\n');
+    } // for
+    return body.toString();
+  } // describe(AACSessionRuntime.Reply)
+
+  /**
+   * Sends the error response for a failed request: 404 for something
+   * that is not there, 400 for a bad request, and 500 otherwise.
+   *
+   * @param exchange the request and response
+   * @param error    what went wrong
+   * @throws IOException if the response cannot be sent
+   */
+  static void fail(HttpExchange exchange, Throwable error) throws IOException {
+    if (error instanceof NoSuchElementException) {
+      send(exchange, 404, error.getMessage() + "\n");
+    } else if (error instanceof IllegalArgumentException) {
+      send(exchange, 400, error.getMessage() + "\n");
+    } else {
+      error.printStackTrace();
+      send(exchange, 500, "Internal error.\n");
+    } // if-else
+  } // fail(HttpExchange, Throwable)
+
+  /**
+   * Sends a plain-text response and closes the exchange.
+   *
+   * @param exchange the request and response
+   * @param status   the HTTP status
+   * @param body     the body
+   * @throws IOException if the response cannot be sent
+   */
+  static void send(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (exchange; OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    } // try
+  } // send(HttpExchange, int, String)
+
+  /**
+   * Parses a query string.
+   *
+   * @param raw the query, still URL-encoded, or null
+   * @return the parameters, by name
+   */
+  static Map<String, String> query(String raw) {
+    Map<String, String> params = new HashMap<>();
+    if (raw == null) {
+      return params;
+    } // if
+    for (String param : raw.split("&")) {
+      int equals = param.indexOf('=');
+      String name = (equals < 0) ? param : param.substring(0, equals);
+      String value = (equals < 0) ? "" : param.substring(equals + 1);
+      params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    } // for
+    return params;
+  } // query(String)
+
+  /**
+   * Returns a parameter that must be there.
+   *
+   * @param params the parameters
+   * @param name   the name of the parameter
+   * @return its value
+   * @throws IllegalArgumentException if it is missing
+   */
+  static String required(Map<String, String> params, String name) {
+    String value = params.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException("Missing parameter: " + name);
+    } // if
+    return value;
+  } // required(Map, String)
+} // class AACServer
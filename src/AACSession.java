@@ -0,0 +1,525 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * One person's use of an AAC board, without any screen: which category
+ * is shown, which page (or, when scrolling, which rows) of its images,
+ * and what happens on each command (home, back, next, select, add, save,
+ * undo and redo). A view shows the session's State and turns taps into
+ * commands; listeners are told of every new State. Selecting an item
+ * hands its text to the speaker given to the constructor.
+ *
+ * A session is not thread-safe: drive each one from a single thread (for
+ * the Swing view, the event thread). Separate sessions on separate pages
+ * are independent, so tests and benchmarks can run many at once.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class AACSession {
+
+  /** The commands that perform() understands, other than image locations. */
+  public static final String HOME = "";
+  public static final String BACK = "back";
+  public static final String NEXT = "next";
+  public static final String SAVE = "save";
+  public static final String UNDO = "undo";
+  public static final String REDO = "redo";
+
+  /** Where the board is saved when there is no journal. */
+  static final String SAVE_FILE = "AACMappingsNew.txt";
+
+  /** How long selecting an image, fetching a page and saving take. */
+  private static final Metrics.Timer SELECT = Metrics.timer("model.select");
+  private static final Metrics.Timer PAGE = Metrics.timer("model.page");
+  private static final Metrics.Timer SAVING = Metrics.timer("model.save");
+
+  /**
+   * What a view shows. States never change; each command that changes
+   * what is shown makes a new one.
+   */
+  public static final class State {
+    /** The name of the category shown, or "" on the home page. */
+    private final String category;
+
+    /** The images in view. */
+    private final String[] images;
+
+    /** The index of the first image in view. */
+    private final int start;
+
+    /** The number of images in the category (or on the home page). */
+    private final int imageCount;
+
+    /** Whether there is somewhere for back to go. */
+    private final boolean back;
+
+    /** Whether there is a next page. */
+    private final boolean next;
+
+    /** How many times the session has moved to a new page. */
+    private final int turns;
+
+    /**
+     * Creates a state.
+     *
+     * @param category   the name of the category shown
+     * @param images     the images in view
+     * @param start      the index of the first image in view
+     * @param imageCount the number of images
+     * @param back       whether back goes anywhere
+     * @param next       whether there is a next page
+     * @param turns      the number of page turns so far
+     */
+    State(String category, String[] images, int start, int imageCount, boolean back,
+        boolean next, int turns) {
+      this.category = category;
+      this.images = images;
+      this.start = start;
+      this.imageCount = imageCount;
+      this.back = back;
+      this.next = next;
+      this.turns = turns;
+    } // State(String, String[], int, int, boolean, boolean, int)
+
+    /**
+     * Returns the name of the category shown.
+     *
+     * @return the name, or "" on the home page
+     */
+    public String getCategory() {
+      return this.category;
+    } // getCategory()
+
+    /**
+     * Returns the image locations in view, in order.
+     *
+     * @return a copy of the image locations
+     */
+    public String[] getImages() {
+      return this.images.clone();
+    } // getImages()
+
+    /**
+     * Returns the number of images in view.
+     *
+     * @return the number of images
+     */
+    public int size() {
+      return this.images.length;
+    } // size()
+
+    /**
+     * Returns one of the images in view.
+     *
+     * @param n the position of the image in view
+     * @return its location
+     * @throws IndexOutOfBoundsException if there is no such image
+     */
+    public String getImage(int n) {
+      return this.images[n];
+    } // getImage(int)
+
+    /**
+     * Returns the index (in the whole category) of the first image in
+     * view.
+     *
+     * @return the index
+     */
+    public int getStart() {
+      return this.start;
+    } // getStart()
+
+    /**
+     * Returns one more than the index of the last image in view.
+     *
+     * @return the index
+     */
+    public int getEnd() {
+      return this.start + this.images.length;
+    } // getEnd()
+
+    /**
+     * Returns the number of images in the category, in view or not.
+     *
+     * @return the number of images
+     */
+    public int getImageCount() {
+      return this.imageCount;
+    } // getImageCount()
+
+    /**
+     * Determines if back would go anywhere (to the previous page, or out
+     * of the category).
+     *
+     * @return true if it would, false otherwise
+     */
+    public boolean hasBack() {
+      return this.back;
+    } // hasBack()
+
+    /**
+     * Determines if there is a next page.
+     *
+     * @return true if there is, false otherwise
+     */
+    public boolean hasNext() {
+      return this.next;
+    } // hasNext()
+
+    /**
+     * Returns the number of times the session has moved to a new page
+     * (or category). A view can compare this with the last state it
+     * showed to tell a page turn from a scroll.
+     *
+     * @return the number of page turns
+     */
+    public int getTurns() {
+      return this.turns;
+    } // getTurns()
+  } // class State
+
+  /**
+   * Something that wants to know whenever the state changes.
+   */
+  public interface Listener {
+    /**
+     * Reports a new state.
+     *
+     * @param state the state
+     */
+    void stateChanged(State state);
+  } // interface Listener
+
+  /** The board. */
+  private final AACPage page;
+
+  /** The journal that records edits, or null. */
+  private final AACJournal journal;
+
+  /** The number of images on a page. */
+  private final int pageSize;
+
+  /** Whether the view scrolls instead of paging. */
+  private final boolean scroll;
+
+  /** Speaks the text of selected items. */
+  private final Consumer<String> speaker;
+
+  /** Told of every new state. */
+  private final List<Listener> listeners;
+
+  /** What is shown now. */
+  private State state;
+
+  /**
+   * Creates a session that starts on the first page of the board's home
+   * page.
+   *
+   * @param page     the board
+   * @param journal  the journal to record edits in, or null to edit the
+   *                 board directly
+   * @param pageSize the number of images on a page
+   * @param scroll   whether the view scrolls instead of paging (so back
+   *                 leaves the category rather than turning pages)
+   * @param speaker  speaks the text of selected items
+   * @throws IllegalArgumentException if pageSize is less than 1
+   */
+  public AACSession(AACPage page, AACJournal journal, int pageSize, boolean scroll,
+      Consumer<String> speaker) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("A page must hold at least one image.");
+    } // if
+    this.page = page;
+    this.journal = journal;
+    this.pageSize = pageSize;
+    this.scroll = scroll;
+    this.speaker = speaker;
+    this.listeners = new ArrayList<>();
+    this.state = new State("", new String[0], 0, 0, false, false, 0);
+    this.turnTo(0);
+  } // AACSession(AACPage, AACJournal, int, boolean, Consumer)
+
+  // +-----------+---------------------------------------------------
+  // | Observers |
+  // +-----------+
+
+  /**
+   * Returns what is shown now.
+   *
+   * @return the state
+   */
+  public State getState() {
+    return this.state;
+  } // getState()
+
+  /**
+   * Returns the board, for views that fetch images themselves.
+   *
+   * @return the board
+   */
+  public AACPage getPage() {
+    return this.page;
+  } // getPage()
+
+  /**
+   * Returns the number of images on a page.
+   *
+   * @return the page size
+   */
+  public int getPageSize() {
+    return this.pageSize;
+  } // getPageSize()
+
+  /**
+   * Returns the text each image in view would speak, or null for images
+   * that would not speak (categories on the home page). Useful for
+   * rendering speech ahead of time.
+   *
+   * @return the texts, in the order of the images in view
+   */
+  public String[] getTexts() {
+    String[] texts = new String[this.state.size()];
+    for (int n = 0; n < texts.length; n++) {
+      if (this.page instanceof AACMappings) {
+        texts[n] = ((AACMappings) this.page).peek(this.state.getImage(n));
+      } else if (this.page instanceof AACLazyMappings) {
+        texts[n] = ((AACLazyMappings) this.page).peek(this.state.getImage(n));
+      } else if (this.page instanceof AACCategory) {
+        texts[n] = this.page.select(this.state.getImage(n));
+      } // if-else
+    } // for
+    return texts;
+  } // getTexts()
+
+  /**
+   * Adds a listener, which is told of every new state from now on.
+   *
+   * @param listener the listener
+   */
+  public void addListener(Listener listener) {
+    this.listeners.add(listener);
+  } // addListener(Listener)
+
+  /**
+   * Removes a listener.
+   *
+   * @param listener the listener
+   */
+  public void removeListener(Listener listener) {
+    this.listeners.remove(listener);
+  } // removeListener(Listener)
+
+  // +----------+----------------------------------------------------
+  // | Commands |
+  // +----------+
+
+  /**
+   * Performs the command a button or key sends: one of the command
+   * constants, or the location of an image to select.
+   *
+   * @param command the command
+   * @throws IOException if saving, undoing or redoing fails
+   * @throws NoSuchElementException if the command is an image that is
+   *                                not in view
+   */
+  public void perform(String command) throws IOException {
+    switch (command) {
+      case HOME:
+        this.home();
+        break;
+      case BACK:
+        this.back();
+        break;
+      case NEXT:
+        this.next();
+        break;
+      case SAVE:
+        this.save();
+        break;
+      case UNDO:
+        this.undo();
+        break;
+      case REDO:
+        this.redo();
+        break;
+      default:
+        this.select(command);
+    } // switch
+  } // perform(String)
+
+  /**
+   * Goes to the first page of the home page.
+   */
+  public void home() {
+    this.page.reset();
+    this.turnTo(0);
+  } // home()
+
+  /**
+   * Goes to the previous page, or, on the first page (or when
+   * scrolling), out of the category.
+   */
+  public void back() {
+    if (!this.scroll && this.state.getStart() > 0) {
+      this.turnTo(this.state.getStart() - this.pageSize);
+    } else if (this.page.back()) {
+      this.turnTo(0);
+    } // if-else
+  } // back()
+
+  /**
+   * Goes to the next page, if there is one.
+   */
+  public void next() {
+    if (this.state.hasNext()) {
+      this.turnTo(this.state.getStart() + this.pageSize);
+    } // if
+  } // next()
+
+  /**
+   * Selects an image: on the home page, goes into its category; in a
+   * category, speaks its text.
+   *
+   * @param imageLoc the location of the image
+   * @throws NoSuchElementException if the image is not on the board
+   *                                where the session is
+   */
+  public void select(String imageLoc) {
+    boolean home = this.page.getCategory().equals("");
+    long start = Metrics.start();
+    String text = this.page.select(imageLoc);
+    SELECT.stop(start);
+    if (home) {
+      this.turnTo(0);
+    } else if (this.speaker != null) {
+      this.speaker.accept(text);
+    } // if-else
+  } // select(String)
+
+  /**
+   * Adds an image to the board where the session is (a category on the
+   * home page, otherwise an item of the category), through the journal
+   * if there is one, and goes back to the first page.
+   *
+   * @param imageLoc the location of the image
+   * @param text     the text for the image
+   * @throws IOException if the journal cannot record the change
+   */
+  public void add(String imageLoc, String text) throws IOException {
+    try {
+      if (this.journal == null) {
+        this.page.addItem(imageLoc, text);
+      } else {
+        this.journal.addItem(imageLoc, text);
+      } // if-else
+    } finally {
+      this.turnTo(0);
+    } // try-finally
+  } // add(String, String)
+
+  /**
+   * Saves the board: through the journal if there is one, otherwise to
+   * AACMappingsNew.txt. Boards other than AACMappings (or AACLazyMappings)
+   * are not saved.
+   * Either way, goes back to the first page.
+   *
+   * @throws IOException if the board cannot be saved
+   */
+  public void save() throws IOException {
+    long start = Metrics.start();
+    try {
+      if (this.journal != null) {
+        this.journal.save();
+      } else if (this.page instanceof AACMappings) {
+        ((AACMappings) this.page).writeToFile(SAVE_FILE);
+      } else if (this.page instanceof AACLazyMappings) {
+        ((AACLazyMappings) this.page).writeToFile(SAVE_FILE);
+      } // if-else
+    } finally {
+      SAVING.stop(start);
+      this.turnTo(0);
+    } // try-finally
+  } // save()
+
+  /**
+   * Undoes the last edit, if there is a journal and an edit to undo.
+   *
+   * @throws IOException if the journal cannot record the change
+   */
+  public void undo() throws IOException {
+    try {
+      if (this.journal != null) {
+        this.journal.undo();
+      } // if
+    } finally {
+      this.turnTo(0);
+    } // try-finally
+  } // undo()
+
+  /**
+   * Redoes the last edit undone, if there is a journal and one to redo.
+   *
+   * @throws IOException if the journal cannot record the change
+   */
+  public void redo() throws IOException {
+    try {
+      if (this.journal != null) {
+        this.journal.redo();
+      } // if
+    } finally {
+      this.turnTo(0);
+    } // try-finally
+  } // redo()
+
+  /**
+   * Notes which images a scrolling view has in view. Does not count as
+   * a page turn.
+   *
+   * @param first the index of the first image in view
+   * @param last  one more than the index of the last image in view
+   */
+  public void showRange(int first, int last) {
+    String[] images = this.page.getImageLocs(first, Math.max(0, last - first));
+    this.publish(new State(this.state.getCategory(), images, first, this.state.getImageCount(),
+        this.state.hasBack(), this.state.hasNext(), this.state.getTurns()));
+  } // showRange(int, int)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Moves to the page of images that starts at the given index, fetching
+   * only the images on that page.
+   *
+   * @param start the index of the first image to show
+   */
+  private void turnTo(int start) {
+    long fetching = Metrics.start();
+    String category = this.page.getCategory();
+    int imageCount = this.page.getImageCount();
+    start = Math.max(0, Math.min(start, imageCount));
+    String[] images = this.page.getImageLocs(start, this.pageSize);
+    PAGE.stop(fetching);
+    boolean back = (!this.scroll && start > 0) || !category.equals("");
+    boolean next = !this.scroll && start + images.length < imageCount;
+    this.publish(new State(category, images, start, imageCount, back, next,
+        this.state.getTurns() + 1));
+  } // turnTo(int)
+
+  /**
+   * Makes a state current and tells the listeners.
+   *
+   * @param state the state
+   */
+  private void publish(State state) {
+    this.state = state;
+    for (Listener listener : this.listeners) {
+      listener.stateChanged(state);
+    } // for
+  } // publish(State)
+} // class AACSession
@@ -0,0 +1,302 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import edu.grinnell.csc207.util.Mailbox;
+
+/**
+ * Runs many AAC sessions at once, each as an actor: a session (its
+ * navigation, its board page and any edits) is only ever touched by the
+ * tasks in its own Mailbox, one at a time, so it needs no locks, and
+ * thousands of sessions share a pool of one thread per processor. A
+ * caller never waits for a session; every request returns a future.
+ *
+ * Every session starts on the same shared base board. Boards are
+ * persistent, so reading one (which is all a session does until it is
+ * edited) takes no locks either, and an edit copies only what it
+ * changes. See AACServer, which serves a runtime over HTTP, and
+ * AACLoadGenerator, which drives one with simulated users.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class AACSessionRuntime {
+
+  /** The default number of images on a page. */
+  static final int PAGE_SIZE = 9;
+
+  /**
+   * What a session shows after a request, and what it spoke.
+   */
+  public static final class Reply {
+    /** What the session shows. */
+    private final AACSession.State state;
+
+    /** What the request spoke, or null. */
+    private final String spoken;
+
+    /**
+     * Creates a reply.
+     *
+     * @param state  what the session shows
+     * @param spoken what the request spoke, or null
+     */
+    Reply(AACSession.State state, String spoken) {
+      this.state = state;
+      this.spoken = spoken;
+    } // Reply(AACSession.State, String)
+
+    /**
+     * Returns what the session shows.
+     *
+     * @return the state
+     */
+    public AACSession.State getState() {
+      return this.state;
+    } // getState()
+
+    /**
+     * Returns the text the request spoke.
+     *
+     * @return the text, or null if nothing was spoken
+     */
+    public String getSpoken() {
+      return this.spoken;
+    } // getSpoken()
+  } // class Reply
+
+  /**
+   * One user's session and the mailbox that runs everything done to it.
+   */
+  private static final class Actor {
+    /** The user's board. */
+    final AACBoardPage page;
+
+    /** The user's session. */
+    final AACSession session;
+
+    /** Runs the requests for this session, one at a time. */
+    final Mailbox mailbox;
+
+    /** The text spoken by the request being handled, or null. */
+    String spoken;
+
+    /**
+     * Creates an actor that starts on the given board.
+     *
+     * @param base     the board
+     * @param pageSize the number of images on a page
+     * @param workers  the threads that run mailboxes
+     */
+    Actor(AACBoard base, int pageSize, ExecutorService workers) {
+      this.page = new AACBoardPage(base);
+      this.session = new AACSession(this.page, null, pageSize, false,
+          (text) -> this.spoken = text);
+      this.mailbox = new Mailbox(workers);
+    } // Actor(AACBoard, int, ExecutorService)
+  } // class Actor
+
+  /**
+   * Something to do to a session.
+   *
+   * @param <T> the type of the result
+   */
+  public interface Request<T> {
+    /**
+     * Does it. Runs in the session's mailbox.
+     *
+     * @param session the session
+     * @return the result
+     * @throws Exception if it fails
+     */
+    T apply(AACSession session) throws Exception;
+  } // interface Request
+
+  /** The board every session starts with. */
+  private final AACBoard base;
+
+  /** The number of images on a page. */
+  private final int pageSize;
+
+  /** The sessions, by user. */
+  private final ConcurrentHashMap<String, Actor> actors;
+
+  /** The threads that run mailboxes. */
+  private final ExecutorService workers;
+
+  /** Makes the actor for a new user. */
+  private final Function<String, Actor> newActor;
+
+  /**
+   * Creates a runtime whose sessions start on the given board, with one
+   * worker thread per processor.
+   *
+   * @param base the board
+   */
+  public AACSessionRuntime(AACBoard base) {
+    this(base, PAGE_SIZE, Runtime.getRuntime().availableProcessors());
+  } // AACSessionRuntime(AACBoard)
+
+  /**
+   * Creates a runtime whose sessions start on the given board.
+   *
+   * @param base     the board
+   * @param pageSize the number of images on a page
+   * @param threads  the number of threads that run sessions
+   */
+  public AACSessionRuntime(AACBoard base, int pageSize, int threads) {
+    this.base = base;
+    this.pageSize = pageSize;
+    this.actors = new ConcurrentHashMap<>();
+    this.workers = Executors.newFixedThreadPool(threads, (task) -> {
+      Thread thread = new Thread(task, "AAC session");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.newActor = (user) -> new Actor(this.base, this.pageSize, this.workers);
+  } // AACSessionRuntime(AACBoard, int, int)
+
+  // +----------+----------------------------------------------------
+  // | Requests |
+  // +----------+
+
+  /**
+   * Returns what a user's session shows, starting the session if need be.
+   *
+   * @param user the user
+   * @return a future reply
+   */
+  public CompletableFuture<Reply> view(String user) {
+    return this.reply(user, (session) -> null);
+  } // view(String)
+
+  /**
+   * Sends a tap (an image, or a command such as back) to a user's
+   * session.
+   *
+   * @param user    the user
+   * @param command the tap, as for AACSession.perform
+   * @return a future reply, which fails with NoSuchElementException if
+   *         the image is not in view
+   */
+  public CompletableFuture<Reply> tap(String user, String command) {
+    return this.reply(user, (session) -> {
+      session.perform(command);
+      return null;
+    });
+  } // tap(String, String)
+
+  /**
+   * Adds an image where a user's session is.
+   *
+   * @param user     the user
+   * @param imageLoc the location of the image
+   * @param text     its text
+   * @return a future reply
+   */
+  public CompletableFuture<Reply> add(String user, String imageLoc, String text) {
+    return this.reply(user, (session) -> {
+      session.add(imageLoc, text);
+      return null;
+    });
+  } // add(String, String, String)
+
+  /**
+   * Runs a request in a user's session, after every request already sent
+   * to it.
+   *
+   * @param <T>     the type of the result
+   * @param user    the user
+   * @param request the request
+   * @return a future result
+   */
+  public <T> CompletableFuture<T> ask(String user, Request<T> request) {
+    Actor actor = this.actors.computeIfAbsent(user, this.newActor);
+    CompletableFuture<T> result = new CompletableFuture<>();
+    actor.mailbox.execute(() -> {
+      try {
+        result.complete(request.apply(actor.session));
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      } // try-catch
+    });
+    return result;
+  } // ask(String, Request)
+
+  // +-----------+---------------------------------------------------
+  // | Observers |
+  // +-----------+
+
+  /**
+   * Returns the number of users with a session.
+   *
+   * @return the number of users
+   */
+  public int users() {
+    return this.actors.size();
+  } // users()
+
+  /**
+   * Returns the number of users whose board differs from the base board.
+   *
+   * @return the number of users
+   */
+  public int edited() {
+    int edited = 0;
+    for (Actor actor : this.actors.values()) {
+      if (actor.page.board() != this.base) {
+        edited++;
+      } // if
+    } // for
+    return edited;
+  } // edited()
+
+  /**
+   * Returns the board a user sees. Boards never change, so this is safe
+   * to read from any thread.
+   *
+   * @param user the user
+   * @return their board, or the base board if they have no session
+   */
+  public AACBoard board(String user) {
+    Actor actor = this.actors.get(user);
+    return (actor == null) ? this.base : actor.page.board();
+  } // board(String)
+
+  /**
+   * Stops the worker threads and forgets every session. Requests still
+   * waiting are dropped.
+   */
+  public void shutdown() {
+    this.workers.shutdownNow();
+    this.actors.clear();
+  } // shutdown()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Runs a request in a user's session and replies with what the
+   * session then shows and what the request spoke.
+   *
+   * @param user    the user
+   * @param request the request
+   * @return a future reply
+   */
+  private CompletableFuture<Reply> reply(String user, Request<Void> request) {
+    Actor actor = this.actors.computeIfAbsent(user, this.newActor);
+    CompletableFuture<Reply> result = new CompletableFuture<>();
+    actor.mailbox.execute(() -> {
+      actor.spoken = null;
+      try {
+        request.apply(actor.session);
+        result.complete(new Reply(actor.session.getState(), actor.spoken));
+      } catch (Throwable e) {
+        result.completeExceptionally(e);
+      } // try-catch
+    });
+    return result;
+  } // reply(String, Request)
+} // class AACSessionRuntime
@@ -0,0 +1,818 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import edu.grinnell.csc207.util.AssociativeArray;
+import edu.grinnell.csc207.util.KVPair;
+
+/**
+ * A read-only, memory-mapped view of a binary snapshot of an AACMappings.
+ * Every image location, category name and spoken text is stored once in
+ * a length-prefixed string table, and the categories refer to it by
+ * index, so the page can answer getImageLocs() and select() straight from
+ * the mapped file, decoding each string at most once. loadPage starts a
+ * board this way and builds AACMappings only once it is edited (see
+ * AACLazyMappings).
+ *
+ * The layout (all ints and longs big-endian) is:
+ *
+ * header:     magic, version, stringCount, categoryCount, homeSlots,
+ *             stringsOffset, then (as longs) the size and modification
+ *             time in milliseconds of the text file the snapshot was
+ *             made from, or -1 if unknown
+ * home index: homeSlots ints (category number + 1, or 0)
+ * categories: categoryCount entries of
+ *             locId, nameId, itemCount, itemsOffset, indexOffset, indexSlots
+ * items:      for each category, itemCount (locId, textId) pairs followed
+ *             by indexSlots ints (item number + 1, or 0)
+ * strings:    stringCount offsets, then for each string its hash code,
+ *             its UTF-8 length and its bytes
+ * trailer:    the CRC32 of everything before it, as a long
+ *
+ * The indexes are open-addressing tables keyed by String.hashCode().
+ * Opening a snapshot checks its checksum and that every count, offset
+ * and string number in it is in range, so a damaged snapshot is turned
+ * away up front rather than failing part way through a session.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class AACSnapshot implements AACPage {
+
+  /** The first four bytes of every snapshot ("AACB"). */
+  static final int MAGIC = 0x41414342;
+
+  /** The current version of the format. */
+  static final int VERSION = 2;
+
+  /** The size of the header in bytes. */
+  static final int HEADER_BYTES = 40;
+
+  /** The size of one category directory entry in bytes. */
+  static final int CATEGORY_BYTES = 24;
+
+  /** The size of the checksum trailer in bytes. */
+  static final int TRAILER_BYTES = 8;
+
+  /** The extension added to a mappings file to name its snapshot. */
+  static final String EXTENSION = ".snapshot";
+
+  /** The category number that stands for the home page. */
+  static final int HOME = -1;
+
+  /** The source size and time recorded when there is no text file. */
+  static final long UNKNOWN = -1;
+
+  /** The mapped snapshot. */
+  private final ByteBuffer buffer;
+
+  /** The strings decoded so far, by string number. */
+  private final String[] strings;
+
+  /** Where the string offsets begin. */
+  private final int stringsOffset;
+
+  /** The number of categories. */
+  private final int categoryCount;
+
+  /** The number of slots in the home index. */
+  private final int homeSlots;
+
+  /** The category being shown, or HOME. */
+  private int current;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Creates a page over a snapshot that has already been checked.
+   *
+   * @param buffer the snapshot contents
+   */
+  private AACSnapshot(ByteBuffer buffer) {
+    this.buffer = buffer;
+    int stringCount = buffer.getInt(8);
+    this.categoryCount = buffer.getInt(12);
+    this.homeSlots = buffer.getInt(16);
+    this.strings = new String[stringCount];
+    this.stringsOffset = buffer.getInt(20);
+    this.current = HOME;
+  } // AACSnapshot(ByteBuffer)
+
+  /**
+   * Maps the snapshot in the given file, checking its magic number,
+   * version and checksum.
+   *
+   * @param filename the snapshot file
+   * @return the page over the snapshot
+   * @throws IOException if the file cannot be read or is not a valid
+   *                     snapshot
+   */
+  public static AACSnapshot open(String filename) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(Paths.get(filename),
+        StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } // try
+    int length = buffer.limit();
+    if (length < HEADER_BYTES + TRAILER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException(filename + " is not an AAC snapshot");
+    } // if
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException(filename + " has unsupported version " + buffer.getInt(4));
+    } // if
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate().limit(length - TRAILER_BYTES));
+    if (crc.getValue() != buffer.getLong(length - TRAILER_BYTES)) {
+      throw new IOException(filename + " is corrupt (checksum mismatch)");
+    } // if
+    if (!isWellFormed(buffer)) {
+      throw new IOException(filename + " is corrupt (bad structure)");
+    } // if
+    return new AACSnapshot(buffer);
+  } // open(String)
+
+  /**
+   * Determines if the snapshot was made from the given text file as it
+   * is now: the file's size and modification time must be exactly those
+   * recorded when the snapshot was written.
+   *
+   * @param text the text file
+   * @return true if the snapshot is up to date, false otherwise
+   * @throws IOException if the text file cannot be examined
+   */
+  public boolean isCurrent(Path text) throws IOException {
+    return this.buffer.getLong(24) == Files.size(text)
+        && this.buffer.getLong(32) == Files.getLastModifiedTime(text).toMillis();
+  } // isCurrent(Path)
+
+  // +---------------+-----------------------------------------------
+  // | AACPage views |
+  // +---------------+
+
+  /**
+   * Snapshots are read-only.
+   *
+   * @param imageLoc ignored
+   * @param text     ignored
+   * @throws UnsupportedOperationException always
+   */
+  public void addItem(String imageLoc, String text) {
+    throw new UnsupportedOperationException("Snapshots are read-only.");
+  } // addItem(String, String)
+
+  /**
+   * Returns the image locations on the current page.
+   *
+   * @return the array of image locations; if there are no images,
+   *         it returns an empty array
+   */
+  public String[] getImageLocs() {
+    return this.getImageLocs(0, this.getImageCount());
+  } // getImageLocs()
+
+  /**
+   * Returns the number of images on the current page.
+   *
+   * @return the number of images
+   */
+  public int getImageCount() {
+    if (this.current == HOME) {
+      return this.categoryCount;
+    } // if
+    return this.buffer.getInt(categoryEntry(this.current) + 8);
+  } // getImageCount()
+
+  /**
+   * Returns up to limit of the images on the current page, starting with
+   * the one at offset. Only the strings in the window are decoded.
+   *
+   * @param offset the index of the first image
+   * @param limit  the largest number of images to return
+   * @return the image locations
+   * @throws IndexOutOfBoundsException if offset or limit is negative
+   */
+  public String[] getImageLocs(int offset, int limit) {
+    if (offset < 0 || limit < 0) {
+      throw new IndexOutOfBoundsException("Invalid window: " + offset + ", " + limit);
+    } // if
+    int count = this.getImageCount();
+    int start = Math.min(offset, count);
+    int end = (int) Math.min((long) start + limit, count);
+    String[] result = new String[end - start];
+    if (this.current == HOME) {
+      for (int c = start; c < end; c++) {
+        result[c - start] = this.string(this.buffer.getInt(categoryEntry(c)));
+      } // for
+      return result;
+    } // if
+    int items = this.buffer.getInt(categoryEntry(this.current) + 12);
+    for (int n = start; n < end; n++) {
+      result[n - start] = this.string(this.buffer.getInt(items + 8 * n));
+    } // for
+    return result;
+  } // getImageLocs(int, int)
+
+  /**
+   * Returns the name of the current category.
+   *
+   * @return the name of the category, or the empty string on the home page
+   */
+  public String getCategory() {
+    if (this.current == HOME) {
+      return "";
+    } // if
+    return this.string(this.buffer.getInt(categoryEntry(this.current) + 4));
+  } // getCategory()
+
+  /**
+   * Moves into the category shown by imageLoc (on the home page), or
+   * returns the text of imageLoc (in a category).
+   *
+   * @param imageLoc the location where the image is stored
+   * @return the text to speak, or the empty string after changing category
+   * @throws NoSuchElementException if the image is not on the current page
+   */
+  public String select(String imageLoc) throws NoSuchElementException {
+    if (this.current == HOME) {
+      int category = this.lookupCategory(imageLoc);
+      if (category == HOME) {
+        throw new NoSuchElementException("Not in the current category.");
+      } // if
+      this.current = category;
+      return "";
+    } // if
+    int item = this.lookupItem(this.current, imageLoc);
+    if (item < 0) {
+      throw new NoSuchElementException("Not in the current category.");
+    } // if
+    int items = this.buffer.getInt(categoryEntry(this.current) + 12);
+    return this.string(this.buffer.getInt(items + 8 * item + 4));
+  } // select(String)
+
+  /**
+   * Determines if the image is a category or belongs to any category.
+   *
+   * @param imageLoc the location of the image
+   * @return true if the snapshot contains it, false otherwise
+   */
+  public boolean hasImage(String imageLoc) {
+    if (this.lookupCategory(imageLoc) != HOME) {
+      return true;
+    } // if
+    for (int c = 0; c < this.categoryCount; c++) {
+      if (this.lookupItem(c, imageLoc) >= 0) {
+        return true;
+      } // if
+    } // for
+    return false;
+  } // hasImage(String)
+
+  /**
+   * Returns to the home page.
+   */
+  public void reset() {
+    this.current = HOME;
+  } // reset()
+
+  /**
+   * Goes back to the home page from a category.
+   *
+   * @return true if it went back, false if it was already home
+   */
+  public boolean back() {
+    if (this.current == HOME) {
+      return false;
+    } // if
+    this.current = HOME;
+    return true;
+  } // back()
+
+  /**
+   * Returns the text an image in the current category would speak,
+   * without selecting it.
+   *
+   * @param imageLoc the location of the image
+   * @return its text, or null if it is not an item of the current
+   *         category (or the page is home)
+   */
+  public String peek(String imageLoc) {
+    if (this.current == HOME) {
+      return null;
+    } // if
+    int item = this.lookupItem(this.current, imageLoc);
+    if (item < 0) {
+      return null;
+    } // if
+    int items = this.buffer.getInt(categoryEntry(this.current) + 12);
+    return this.string(this.buffer.getInt(items + 8 * item + 4));
+  } // peek(String)
+
+  /**
+   * Returns the image of the category being shown.
+   *
+   * @return its location, or null on the home page
+   */
+  String getCurrentLoc() {
+    if (this.current == HOME) {
+      return null;
+    } // if
+    return this.string(this.buffer.getInt(categoryEntry(this.current)));
+  } // getCurrentLoc()
+
+  // +------------+--------------------------------------------------
+  // | Conversion |
+  // +------------+
+
+  /**
+   * Builds an editable AACMappings from the snapshot. Repeated strings
+   * are shared rather than copied.
+   *
+   * @return the mappings
+   */
+  public AACMappings toMappings() {
+    AACMappings mappings = new AACMappings(null);
+    for (int c = 0; c < this.categoryCount; c++) {
+      int entry = categoryEntry(c);
+      String categoryLoc = this.string(this.buffer.getInt(entry));
+      mappings.addCategory(categoryLoc, this.string(this.buffer.getInt(entry + 4)));
+      int count = this.buffer.getInt(entry + 8);
+      int items = this.buffer.getInt(entry + 12);
+      for (int n = 0; n < count; n++) {
+        mappings.addItem(categoryLoc, this.string(this.buffer.getInt(items + 8 * n)),
+            this.string(this.buffer.getInt(items + 8 * n + 4)));
+      } // for
+    } // for
+    return mappings;
+  } // toMappings()
+
+  /**
+   * Writes the snapshot out in the text format of AACMappings.writeToFile.
+   *
+   * @param filename the text file to write
+   * @throws IOException if the file cannot be written
+   */
+  public void writeText(String filename) throws IOException {
+    try (BufferedWriter pen = Files.newBufferedWriter(Paths.get(filename),
+        StandardCharsets.UTF_8)) {
+      for (int c = 0; c < this.categoryCount; c++) {
+        int entry = categoryEntry(c);
+        pen.write(this.string(this.buffer.getInt(entry)));
+        pen.write(' ');
+        pen.write(this.string(this.buffer.getInt(entry + 4)));
+        pen.newLine();
+        int count = this.buffer.getInt(entry + 8);
+        int items = this.buffer.getInt(entry + 12);
+        for (int n = 0; n < count; n++) {
+          pen.write('>');
+          pen.write(this.string(this.buffer.getInt(items + 8 * n)));
+          pen.write(' ');
+          pen.write(this.string(this.buffer.getInt(items + 8 * n + 4)));
+          pen.newLine();
+        } // for
+      } // for
+    } // try
+  } // writeText(String)
+
+  /**
+   * Writes a snapshot of the mappings to the given file. The snapshot is
+   * written to a temporary file first and then moved into place, so
+   * readers never see half a snapshot.
+   *
+   * @param mappings the mappings to save
+   * @param filename the snapshot file
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(AACMappings mappings, String filename) throws IOException {
+    write(mappings, filename, UNKNOWN, UNKNOWN);
+  } // write(AACMappings, String)
+
+  /**
+   * Writes a snapshot of mappings that were read from a text file of
+   * the given size and modification time, so that a later load can tell
+   * whether the text file has changed since.
+   *
+   * @param mappings       the mappings to save
+   * @param filename       the snapshot file
+   * @param sourceSize     the size of the text file, or UNKNOWN
+   * @param sourceModified its modification time in milliseconds, or UNKNOWN
+   * @throws IOException if the file cannot be written
+   */
+  static void write(AACMappings mappings, String filename, long sourceSize,
+      long sourceModified) throws IOException {
+    // Intern every string, in order of first appearance.
+    AssociativeArray<String, Integer> ids = new AssociativeArray<>();
+    KVPair<String, AACCategory>[] categories = mappings.allCat.getPair();
+    int categoryCount = mappings.allCat.size();
+    int itemBytes = 0;
+    for (int c = 0; c < categoryCount; c++) {
+      AACCategory category = categories[c].val;
+      intern(ids, categories[c].key);
+      intern(ids, category.getCategory());
+      int count = category.storage.size();
+      for (int n = 0; n < count; n++) {
+        intern(ids, category.storage.keyAt(n));
+        intern(ids, category.storage.valueAt(n));
+      } // for
+      itemBytes += 8 * count + 4 * slots(count);
+    } // for
+    int stringCount = ids.size();
+    byte[][] encoded = new byte[stringCount][];
+    KVPair<String, Integer>[] table = ids.getPair();
+    int stringBytes = 4 * stringCount;
+    for (int s = 0; s < stringCount; s++) {
+      encoded[s] = table[s].key.getBytes(StandardCharsets.UTF_8);
+      stringBytes += 8 + encoded[s].length;
+    } // for
+    int homeSlots = slots(categoryCount);
+    int itemsStart = HEADER_BYTES + 4 * homeSlots + CATEGORY_BYTES * categoryCount;
+    ByteBuffer out = ByteBuffer.allocate(itemsStart + itemBytes + stringBytes
+        + TRAILER_BYTES);
+
+    // Header and home index.
+    out.putInt(MAGIC).putInt(VERSION).putInt(stringCount).putInt(categoryCount)
+        .putInt(homeSlots).putInt(itemsStart + itemBytes)
+        .putLong(sourceSize).putLong(sourceModified);
+    int[] homeIndex = new int[homeSlots];
+    for (int c = 0; c < categoryCount; c++) {
+      index(homeIndex, categories[c].key.hashCode(), c);
+    } // for
+    for (int slot : homeIndex) {
+      out.putInt(slot);
+    } // for
+
+    // Category directory, items and their indexes.
+    int itemsOffset = itemsStart;
+    for (int c = 0; c < categoryCount; c++) {
+      AACCategory category = categories[c].val;
+      int count = category.storage.size();
+      out.position(HEADER_BYTES + 4 * homeSlots + CATEGORY_BYTES * c);
+      out.putInt(ids.getOrDefault(categories[c].key, 0))
+          .putInt(ids.getOrDefault(category.getCategory(), 0))
+          .putInt(count).putInt(itemsOffset)
+          .putInt(itemsOffset + 8 * count).putInt(slots(count));
+      int[] itemIndex = new int[slots(count)];
+      out.position(itemsOffset);
+      for (int n = 0; n < count; n++) {
+        String key = category.storage.keyAt(n);
+        out.putInt(ids.getOrDefault(key, 0))
+            .putInt(ids.getOrDefault(category.storage.valueAt(n), 0));
+        index(itemIndex, key.hashCode(), n);
+      } // for
+      for (int slot : itemIndex) {
+        out.putInt(slot);
+      } // for
+      itemsOffset = out.position();
+    } // for
+
+    // String table.
+    out.position(itemsOffset);
+    int offset = itemsOffset + 4 * stringCount;
+    for (int s = 0; s < stringCount; s++) {
+      out.putInt(offset);
+      offset += 8 + encoded[s].length;
+    } // for
+    for (int s = 0; s < stringCount; s++) {
+      out.putInt(table[s].key.hashCode()).putInt(encoded[s].length).put(encoded[s]);
+    } // for
+
+    CRC32 crc = new CRC32();
+    crc.update(out.array(), 0, out.position());
+    out.putLong(crc.getValue());
+    out.flip();
+
+    Path target = Paths.get(filename).toAbsolutePath();
+    Path temp = Files.createTempFile(target.getParent(), ".aac", ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+        while (out.hasRemaining()) {
+          channel.write(out);
+        } // while
+        channel.force(true);
+      } // try
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp);
+    } // try-finally
+  } // write(AACMappings, String, long, long)
+
+  /**
+   * Loads the board in a text mappings file. If its snapshot (the text
+   * file's name plus EXTENSION) is valid and was made from the text file
+   * as it is now, the board is served from the mapped snapshot and only
+   * built as AACMappings when it is first edited. Otherwise the text file
+   * is parsed, and a fresh snapshot is written for next time. A missing
+   * text file gives an empty board (and no snapshot).
+   *
+   * @param filename the text mappings file
+   * @return the board
+   */
+  public static AACLazyMappings loadPage(String filename) {
+    String snapshot = filename + EXTENSION;
+    Path text = Paths.get(filename);
+    long size;
+    long modified;
+    try {
+      size = Files.size(text);
+      modified = Files.getLastModifiedTime(text).toMillis();
+    } catch (IOException e) {
+      return new AACLazyMappings(new AACMappings(null));
+    } // try-catch
+    try {
+      AACSnapshot page = open(snapshot);
+      if (page.isCurrent(text)) {
+        return new AACLazyMappings(page);
+      } // if
+    } catch (IOException e) {
+      // Missing, stale or corrupt; fall back to the text file.
+    } // try-catch
+    AACMappings mappings = new AACMappings(filename);
+    try {
+      // The size and time were read before parsing, so an edit made
+      // while we parsed makes the snapshot stale rather than lost.
+      write(mappings, snapshot, size, modified);
+    } catch (IOException e) {
+      // The snapshot is only a cache; we can do without it.
+    } // try-catch
+    return new AACLazyMappings(mappings);
+  } // loadPage(String)
+
+  /**
+   * Loads the mappings for a text mappings file as loadPage does, but
+   * builds the editable AACMappings straight away.
+   *
+   * @param filename the text mappings file
+   * @return the mappings
+   */
+  public static AACMappings loadMappings(String filename) {
+    return loadPage(filename).mappings();
+  } // loadMappings(String)
+
+  /**
+   * Converts between the text and binary formats.
+   *
+   * @param args "text2bin" or "bin2text", followed by the input and
+   *             output file names
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 3 && args[0].equals("text2bin")) {
+      if (!Files.exists(Paths.get(args[1]))) {
+        throw new NoSuchFileException(args[1]);
+      } // if
+      write(new AACMappings(args[1]), args[2]);
+    } else if (args.length == 3 && args[0].equals("bin2text")) {
+      open(args[1]).writeText(args[2]);
+    } else {
+      System.err.println("Usage: java AACSnapshot (text2bin|bin2text) input output");
+      System.exit(1);
+    } // if-else
+  } // main(String[])
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Adds a string to the intern table if it is not already there.
+   *
+   * @param ids the intern table
+   * @param str the string
+   */
+  private static void intern(AssociativeArray<String, Integer> ids, String str) {
+    ids.putIfAbsent(str, ids.size());
+  } // intern(AssociativeArray, String)
+
+  /**
+   * Returns the index size for count entries: a power of two that keeps
+   * the table at most half full.
+   *
+   * @param count the number of entries
+   * @return the number of slots
+   */
+  static int slots(int count) {
+    int slots = 2;
+    while (slots < 2 * count) {
+      slots *= 2;
+    } // while
+    return slots;
+  } // slots(int)
+
+  /**
+   * Stores entry number n with the given hash in an index.
+   *
+   * @param index the index
+   * @param hash  the hash code of the entry's key
+   * @param n     the entry number
+   */
+  private static void index(int[] index, int hash, int n) {
+    int mask = index.length - 1;
+    int slot = spread(hash) & mask;
+    while (index[slot] != 0) {
+      slot = (slot + 1) & mask;
+    } // while
+    index[slot] = n + 1;
+  } // index(int[], int, int)
+
+  /**
+   * Spreads the high bits of a hash code downward.
+   *
+   * @param hash the hash code
+   * @return the spread hash
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  } // spread(int)
+
+  /**
+   * Determines if every count, offset and string number in a snapshot
+   * whose checksum matched is in range, and every index has an empty
+   * slot to end its probes, so that reading it can never fail or loop.
+   *
+   * @param buffer the snapshot
+   * @return true if it is well formed, false otherwise
+   */
+  static boolean isWellFormed(ByteBuffer buffer) {
+    long end = buffer.limit() - TRAILER_BYTES;
+    int stringCount = buffer.getInt(8);
+    int categoryCount = buffer.getInt(12);
+    int homeSlots = buffer.getInt(16);
+    int stringsOffset = buffer.getInt(20);
+    if (stringCount < 0 || categoryCount < 0 || homeSlots <= categoryCount
+        || Integer.bitCount(homeSlots) != 1) {
+      return false;
+    } // if
+    long itemsStart = HEADER_BYTES + 4L * homeSlots + (long) CATEGORY_BYTES * categoryCount;
+    long stringsStart = stringsOffset + 4L * stringCount;
+    if (itemsStart > stringsOffset || stringsStart > end
+        || !isIndex(buffer, HEADER_BYTES, homeSlots, categoryCount)) {
+      return false;
+    } // if
+    for (int c = 0; c < categoryCount; c++) {
+      int entry = HEADER_BYTES + 4 * homeSlots + CATEGORY_BYTES * c;
+      int count = buffer.getInt(entry + 8);
+      long items = buffer.getInt(entry + 12);
+      long index = buffer.getInt(entry + 16);
+      int slots = buffer.getInt(entry + 20);
+      if (!isString(buffer, entry, stringCount) || !isString(buffer, entry + 4, stringCount)
+          || count < 0 || items < itemsStart || index != items + 8L * count
+          || slots <= count || Integer.bitCount(slots) != 1
+          || index + 4L * slots > stringsOffset
+          || !isIndex(buffer, (int) index, slots, count)) {
+        return false;
+      } // if
+      for (int n = 0; n < 2 * count; n++) {
+        if (!isString(buffer, (int) items + 4 * n, stringCount)) {
+          return false;
+        } // if
+      } // for
+    } // for
+    for (int s = 0; s < stringCount; s++) {
+      long offset = buffer.getInt(stringsOffset + 4 * s);
+      if (offset < stringsStart || offset + 8 > end) {
+        return false;
+      } // if
+      int length = buffer.getInt((int) offset + 4);
+      if (length < 0 || offset + 8 + length > end) {
+        return false;
+      } // if
+    } // for
+    return true;
+  } // isWellFormed(ByteBuffer)
+
+  /**
+   * Determines if the int at a position is a valid string number.
+   *
+   * @param buffer      the snapshot
+   * @param position    where the string number is
+   * @param stringCount the number of strings
+   * @return true if it is, false otherwise
+   */
+  private static boolean isString(ByteBuffer buffer, int position, int stringCount) {
+    int s = buffer.getInt(position);
+    return s >= 0 && s < stringCount;
+  } // isString(ByteBuffer, int, int)
+
+  /**
+   * Determines if an index refers only to entries 1 to count (or 0, for
+   * empty) and has at least one empty slot.
+   *
+   * @param buffer the snapshot
+   * @param start  where the index begins
+   * @param slots  the number of slots
+   * @param count  the number of entries
+   * @return true if it does, false otherwise
+   */
+  private static boolean isIndex(ByteBuffer buffer, int start, int slots, int count) {
+    boolean empty = false;
+    for (int slot = 0; slot < slots; slot++) {
+      int found = buffer.getInt(start + 4 * slot);
+      if (found < 0 || found > count) {
+        return false;
+      } // if
+      empty |= (found == 0);
+    } // for
+    return empty;
+  } // isIndex(ByteBuffer, int, int, int)
+
+  /**
+   * Returns the position of category c's directory entry.
+   *
+   * @param c the category number
+   * @return its position in the snapshot
+   */
+  private int categoryEntry(int c) {
+    return HEADER_BYTES + 4 * this.homeSlots + CATEGORY_BYTES * c;
+  } // categoryEntry(int)
+
+  /**
+   * Decodes (once) and returns string number s.
+   *
+   * @param s the string number
+   * @return the string
+   */
+  private String string(int s) {
+    String result = this.strings[s];
+    if (result == null) {
+      int offset = this.buffer.getInt(this.stringsOffset + 4 * s);
+      int length = this.buffer.getInt(offset + 4);
+      byte[] bytes = new byte[length];
+      this.buffer.get(offset + 8, bytes);
+      result = new String(bytes, StandardCharsets.UTF_8);
+      this.strings[s] = result;
+    } // if
+    return result;
+  } // string(int)
+
+  /**
+   * Determines if string number s equals str, comparing hash codes before
+   * decoding anything.
+   *
+   * @param s   the string number
+   * @param str the string to compare with
+   * @return true if they are equal
+   */
+  private boolean stringEquals(int s, String str) {
+    int offset = this.buffer.getInt(this.stringsOffset + 4 * s);
+    return this.buffer.getInt(offset) == str.hashCode() && this.string(s).equals(str);
+  } // stringEquals(int, String)
+
+  /**
+   * Finds the category whose image is imageLoc.
+   *
+   * @param imageLoc the image location
+   * @return the category number, or HOME if there is none
+   */
+  private int lookupCategory(String imageLoc) {
+    if (imageLoc == null) {
+      return HOME;
+    } // if
+    int mask = this.homeSlots - 1;
+    int slot = spread(imageLoc.hashCode()) & mask;
+    int found;
+    while ((found = this.buffer.getInt(HEADER_BYTES + 4 * slot)) != 0) {
+      if (this.stringEquals(this.buffer.getInt(categoryEntry(found - 1)), imageLoc)) {
+        return found - 1;
+      } // if
+      slot = (slot + 1) & mask;
+    } // while
+    return HOME;
+  } // lookupCategory(String)
+
+  /**
+   * Finds the item of category c whose image is imageLoc.
+   *
+   * @param c        the category number
+   * @param imageLoc the image location
+   * @return the item number, or -1 if there is none
+   */
+  private int lookupItem(int c, String imageLoc) {
+    if (imageLoc == null) {
+      return -1;
+    } // if
+    int entry = categoryEntry(c);
+    int items = this.buffer.getInt(entry + 12);
+    int index = this.buffer.getInt(entry + 16);
+    int mask = this.buffer.getInt(entry + 20) - 1;
+    int slot = spread(imageLoc.hashCode()) & mask;
+    int found;
+    while ((found = this.buffer.getInt(index + 4 * slot)) != 0) {
+      if (this.stringEquals(this.buffer.getInt(items + 8 * (found - 1)), imageLoc)) {
+        return found - 1;
+      } // if
+      slot = (slot + 1) & mask;
+    } // while
+    return -1;
+  } // lookupItem(int, String)
+} // class AACSnapshot
@@ -0,0 +1,314 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+
+/**
+ * A cache of decoded, pre-scaled icons for the AAC grid. Images are read
+ * and scaled on background threads, never on the Swing event thread; until
+ * an image is ready, callers get a blank placeholder of the right size and
+ * are called back on the event thread with the real icon. Decoded icons are
+ * kept in least-recently-used order up to a budget of decoded bytes.
+ * Images that could not be read are remembered apart from them, at no
+ * cost to the budget, and tried again after RETRY_NANOS.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class IconCache {
+
+  /** The number of threads that decode images. */
+  static final int DECODERS = 2;
+
+  /** The bytes per decoded pixel (ARGB). */
+  static final int BYTES_PER_PIXEL = 4;
+
+  /** How long to wait before trying an image that could not be read again. */
+  static final long RETRY_NANOS = 30_000_000_000L;
+
+  /** How long reading and scaling an image takes. */
+  private static final Metrics.Timer DECODE = Metrics.timer("icons.decode");
+
+  /** Lookups that found a decoded icon, and lookups that did not. */
+  private static final Metrics.Counter HITS = Metrics.counter("icons.hits");
+  private static final Metrics.Counter MISSES = Metrics.counter("icons.misses");
+
+  /** The decoded icons, least recently used first. */
+  private final LinkedHashMap<String, ImageIcon> icons;
+
+  /** When each image that could not be read failed (System.nanoTime), by key. */
+  private final Map<String, Long> failed;
+
+  /** How long to wait before trying a failed image again, in nanoseconds. */
+  private final long retryNanos;
+
+  /** The callbacks waiting for images that are being decoded, by key. */
+  private final Map<String, List<Consumer<Icon>>> waiting;
+
+  /** Blank placeholders, by size. */
+  private final Map<String, ImageIcon> placeholders;
+
+  /** The largest number of decoded bytes to keep. */
+  private final long maxBytes;
+
+  /** The number of decoded bytes kept. */
+  private long bytes;
+
+  /** The threads that decode images. */
+  private final ExecutorService decoders;
+
+  /**
+   * Creates a cache that keeps up to maxBytes of decoded images.
+   *
+   * @param maxBytes the budget for decoded images, in bytes
+   */
+  public IconCache(long maxBytes) {
+    this(maxBytes, RETRY_NANOS);
+  } // IconCache(long)
+
+  /**
+   * Creates a cache that keeps up to maxBytes of decoded images and tries
+   * images that could not be read again after retryNanos.
+   *
+   * @param maxBytes   the budget for decoded images, in bytes
+   * @param retryNanos how long to remember a failure, in nanoseconds
+   */
+  IconCache(long maxBytes, long retryNanos) {
+    this.maxBytes = maxBytes;
+    this.retryNanos = retryNanos;
+    this.bytes = 0;
+    this.icons = new LinkedHashMap<>(16, 0.75f, true);
+    this.failed = new HashMap<>();
+    this.waiting = new HashMap<>();
+    this.placeholders = new HashMap<>();
+    this.decoders = Executors.newFixedThreadPool(DECODERS, (task) -> {
+      Thread thread = new Thread(task, "AAC icon decoder");
+      thread.setDaemon(true);
+      return thread;
+    });
+  } // IconCache(long, long)
+
+  /**
+   * Returns the icon for an image, scaled down (once) to fit in a
+   * width-by-height cell. If the icon is not decoded yet, returns a blank
+   * placeholder and later calls whenReady on the event thread with the
+   * real icon.
+   *
+   * @param path      the location of the image
+   * @param width     the width of the cell, or 0 for the natural size
+   * @param height    the height of the cell, or 0 for the natural size
+   * @param whenReady called with the icon once it has been decoded
+   * @return the icon, or a placeholder until it is ready
+   */
+  public Icon get(String path, int width, int height, Consumer<Icon> whenReady) {
+    String key = path + "@" + width + "x" + height;
+    synchronized (this) {
+      ImageIcon icon = this.icons.get(key);
+      if (icon != null) {
+        HITS.increment();
+        return icon;
+      } // if
+      if (this.hasFailed(key)) {
+        HITS.increment();
+        return this.placeholder(width, height);
+      } // if
+      MISSES.increment();
+      List<Consumer<Icon>> callbacks = this.waiting.get(key);
+      if (callbacks == null) {
+        callbacks = new ArrayList<>();
+        this.waiting.put(key, callbacks);
+        this.decoders.execute(() -> this.decode(key, path, width, height));
+      } // if
+      callbacks.add(whenReady);
+      return this.placeholder(width, height);
+    } // synchronized
+  } // get(String, int, int, Consumer)
+
+  /**
+   * Returns the icon for an image if it has already been decoded at the
+   * given size, without starting to decode it, so that painting never
+   * loads anything.
+   *
+   * @param path   the location of the image
+   * @param width  the width of the cell, or 0 for the natural size
+   * @param height the height of the cell, or 0 for the natural size
+   * @return the icon, or a placeholder if it is not ready
+   */
+  public Icon peek(String path, int width, int height) {
+    synchronized (this) {
+      ImageIcon icon = this.icons.get(path + "@" + width + "x" + height);
+      if (icon != null) {
+        return icon;
+      } // if
+    } // synchronized
+    return this.placeholder(width, height);
+  } // peek(String, int, int)
+
+  /**
+   * Returns the number of decoded bytes kept.
+   *
+   * @return the number of bytes
+   */
+  public synchronized long memoryBytes() {
+    return this.bytes;
+  } // memoryBytes()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Decodes and scales an image, then stores it (or notes that it could
+   * not be read) and hands it (or a placeholder) to everyone waiting for
+   * it. Runs on a decoder thread. Whatever happens, even an error such as
+   * running out of memory, the image stops being waited for, so a later
+   * lookup can decode it again.
+   *
+   * @param key    the cache key
+   * @param path   the location of the image
+   * @param width  the width of the cell, or 0
+   * @param height the height of the cell, or 0
+   */
+  private void decode(String key, String path, int width, int height) {
+    ImageIcon icon = null;
+    long start = Metrics.start();
+    try {
+      BufferedImage image = ImageIO.read(new File(path));
+      if (image != null) {
+        icon = new ImageIcon(scale(image, width, height));
+      } // if
+    } catch (Exception e) {
+      // Missing or unreadable; the icon stays null.
+    } finally {
+      DECODE.stop(start);
+      List<Consumer<Icon>> callbacks;
+      synchronized (this) {
+        callbacks = this.waiting.remove(key);
+        if (icon != null) {
+          this.remember(key, icon);
+        } else {
+          // Remember the failure rather than retrying on every redraw.
+          this.failed.put(key, System.nanoTime());
+        } // if-else
+      } // synchronized
+      Icon ready = (icon != null) ? icon : this.placeholder(width, height);
+      SwingUtilities.invokeLater(() -> {
+        for (Consumer<Icon> callback : callbacks) {
+          callback.accept(ready);
+        } // for
+      });
+    } // try-catch-finally
+  } // decode(String, String, int, int)
+
+  /**
+   * Determines if an image failed recently enough not to be tried again,
+   * forgetting the failure if not. Call with the lock held.
+   *
+   * @param key the cache key
+   * @return true if the image should not be decoded yet
+   */
+  private boolean hasFailed(String key) {
+    Long when = this.failed.get(key);
+    if (when == null) {
+      return false;
+    } // if
+    if (System.nanoTime() - when < this.retryNanos) {
+      return true;
+    } // if
+    this.failed.remove(key);
+    return false;
+  } // hasFailed(String)
+
+  /**
+   * Keeps an icon, evicting the least recently used icons to stay within
+   * the byte budget.
+   *
+   * @param key  the cache key
+   * @param icon the icon
+   */
+  private void remember(String key, ImageIcon icon) {
+    this.icons.put(key, icon);
+    this.bytes += footprint(icon);
+    Iterator<Map.Entry<String, ImageIcon>> oldest = this.icons.entrySet().iterator();
+    while (this.bytes > this.maxBytes && oldest.hasNext()) {
+      Map.Entry<String, ImageIcon> entry = oldest.next();
+      if (!entry.getKey().equals(key)) {
+        this.bytes -= footprint(entry.getValue());
+        oldest.remove();
+      } // if
+    } // while
+  } // remember(String, ImageIcon)
+
+  /**
+   * Returns a blank icon of the given size, shared between callers, for
+   * a symbol whose image is not ready (or not known yet).
+   *
+   * @param width  the width, or 0
+   * @param height the height, or 0
+   * @return the placeholder
+   */
+  public synchronized ImageIcon placeholder(int width, int height) {
+    String size = width + "x" + height;
+    ImageIcon blank = this.placeholders.get(size);
+    if (blank == null) {
+      blank = new ImageIcon(new BufferedImage(Math.max(width, 1), Math.max(height, 1),
+          BufferedImage.TYPE_INT_ARGB));
+      this.placeholders.put(size, blank);
+    } // if
+    return blank;
+  } // placeholder(int, int)
+
+  /**
+   * Scales an image down, keeping its proportions, so it fits within a
+   * width-by-height cell. Images that already fit are left alone.
+   *
+   * @param image  the image
+   * @param width  the width of the cell, or 0 for no limit
+   * @param height the height of the cell, or 0 for no limit
+   * @return the scaled image
+   */
+  static BufferedImage scale(BufferedImage image, int width, int height) {
+    double factor = 1.0;
+    if (width > 0) {
+      factor = Math.min(factor, (double) width / image.getWidth());
+    } // if
+    if (height > 0) {
+      factor = Math.min(factor, (double) height / image.getHeight());
+    } // if
+    if (factor >= 1.0) {
+      return image;
+    } // if
+    int w = Math.max(1, (int) Math.round(image.getWidth() * factor));
+    int h = Math.max(1, (int) Math.round(image.getHeight() * factor));
+    BufferedImage scaled = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D pen = scaled.createGraphics();
+    pen.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+    pen.drawImage(image, 0, 0, w, h, null);
+    pen.dispose();
+    return scaled;
+  } // scale(BufferedImage, int, int)
+
+  /**
+   * Estimates the decoded size of an icon.
+   *
+   * @param icon the icon
+   * @return its size in bytes
+   */
+  static long footprint(ImageIcon icon) {
+    return (long) icon.getIconWidth() * icon.getIconHeight() * BYTES_PER_PIXEL;
+  } // footprint(ImageIcon)
+} // class IconCache
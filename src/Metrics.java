@@ -0,0 +1,393 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import edu.grinnell.csc207.util.AssociativeArray;
+import edu.grinnell.csc207.util.ConcurrentAssociativeArray;
+import edu.grinnell.csc207.util.LatencyHistogram;
+
+/**
+ * Timers and counters for finding out where the time goes in a tap: the
+ * model, the screen, icon decoding and speech. Metrics are off unless the
+ * program is started with -Daac.metrics=true. ENABLED is a constant, so
+ * when it is false the JIT drops the timing and counting code entirely,
+ * and timers do not allocate their histograms (about 30 KB each), so all
+ * that is left is an object per metric.
+ *
+ * When metrics are on, every timer and counter is registered with JMX
+ * (as AAC:type=Timer,name=... and AAC:type=Counter,name=...) so jconsole
+ * can watch them, and startReporting() appends them to a CSV file
+ * periodically. The CSV values are running totals since the start (or
+ * the last reset through JMX); subtract successive rows for rates.
+ *
+ * Usage:
+ *
+ *   private static final Metrics.Timer SELECT = Metrics.timer("model.select");
+ *   ...
+ *   long start = Metrics.start();
+ *   page.select(imageLoc);
+ *   SELECT.stop(start);
+ *
+ * @author Tiffany Tang
+ *
+ */
+public final class Metrics {
+
+  /** Whether metrics are recorded. */
+  public static final boolean ENABLED = Boolean.getBoolean("aac.metrics");
+
+  /** The header of the CSV file. */
+  static final String CSV_HEADER = "time,metric,count,mean_ms,p50_ms,p90_ms,p99_ms,max_ms";
+
+  /** Nanoseconds per millisecond, for reporting. */
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  /**
+   * What JMX shows of a timer.
+   */
+  public interface TimerMXBean {
+    /**
+     * Returns the number of times recorded.
+     *
+     * @return the number of times
+     */
+    long getCount();
+
+    /**
+     * Returns the mean time.
+     *
+     * @return the mean, in milliseconds
+     */
+    double getMeanMillis();
+
+    /**
+     * Returns the median time.
+     *
+     * @return the median, in milliseconds
+     */
+    double getP50Millis();
+
+    /**
+     * Returns the 90th percentile time.
+     *
+     * @return the time, in milliseconds
+     */
+    double getP90Millis();
+
+    /**
+     * Returns the 99th percentile time.
+     *
+     * @return the time, in milliseconds
+     */
+    double getP99Millis();
+
+    /**
+     * Returns the longest time.
+     *
+     * @return the time, in milliseconds
+     */
+    double getMaxMillis();
+
+    /**
+     * Forgets the times recorded.
+     */
+    void reset();
+  } // interface TimerMXBean
+
+  /**
+   * What JMX shows of a counter.
+   */
+  public interface CounterMXBean {
+    /**
+     * Returns the count.
+     *
+     * @return the count
+     */
+    long getCount();
+
+    /**
+     * Sets the count back to zero.
+     */
+    void reset();
+  } // interface CounterMXBean
+
+  /**
+   * Records how long something takes, in a latency histogram.
+   */
+  public static final class Timer implements TimerMXBean {
+    /** The name of the timer. */
+    final String name;
+
+    /** The times, in nanoseconds, or null if metrics are disabled. */
+    final LatencyHistogram histogram;
+
+    /**
+     * Creates a timer.
+     *
+     * @param name the name
+     */
+    Timer(String name) {
+      this.name = name;
+      this.histogram = ENABLED ? new LatencyHistogram() : null;
+    } // Timer(String)
+
+    /**
+     * Records the time since start, if metrics are enabled.
+     *
+     * @param start the result of Metrics.start()
+     */
+    public void stop(long start) {
+      if (ENABLED) {
+        this.histogram.record(System.nanoTime() - start);
+      } // if
+    } // stop(long)
+
+    /**
+     * Records a time measured some other way, if metrics are enabled.
+     *
+     * @param nanos the time, in nanoseconds
+     */
+    public void record(long nanos) {
+      if (ENABLED) {
+        this.histogram.record(nanos);
+      } // if
+    } // record(long)
+
+    public long getCount() {
+      return ENABLED ? this.histogram.count() : 0;
+    } // getCount()
+
+    public double getMeanMillis() {
+      return ENABLED ? this.histogram.mean() / NANOS_PER_MILLI : 0;
+    } // getMeanMillis()
+
+    public double getP50Millis() {
+      return ENABLED ? this.histogram.percentile(0.50) / NANOS_PER_MILLI : 0;
+    } // getP50Millis()
+
+    public double getP90Millis() {
+      return ENABLED ? this.histogram.percentile(0.90) / NANOS_PER_MILLI : 0;
+    } // getP90Millis()
+
+    public double getP99Millis() {
+      return ENABLED ? this.histogram.percentile(0.99) / NANOS_PER_MILLI : 0;
+    } // getP99Millis()
+
+    public double getMaxMillis() {
+      return ENABLED ? this.histogram.max() / NANOS_PER_MILLI : 0;
+    } // getMaxMillis()
+
+    public void reset() {
+      if (ENABLED) {
+        this.histogram.reset();
+      } // if
+    } // reset()
+  } // class Timer
+
+  /**
+   * Counts events, such as cache hits.
+   */
+  public static final class Counter implements CounterMXBean {
+    /** The name of the counter. */
+    final String name;
+
+    /** The count. */
+    final LongAdder count;
+
+    /**
+     * Creates a counter.
+     *
+     * @param name the name
+     */
+    Counter(String name) {
+      this.name = name;
+      this.count = new LongAdder();
+    } // Counter(String)
+
+    /**
+     * Adds one to the count, if metrics are enabled.
+     */
+    public void increment() {
+      if (ENABLED) {
+        this.count.increment();
+      } // if
+    } // increment()
+
+    public long getCount() {
+      return this.count.sum();
+    } // getCount()
+
+    public void reset() {
+      this.count.reset();
+    } // reset()
+  } // class Counter
+
+  /** Every timer and counter, by name, in the order they were made. */
+  private static final ConcurrentAssociativeArray<String, Object> METRICS =
+      new ConcurrentAssociativeArray<>();
+
+  /** The thread that writes the CSV file, once started. */
+  private static ScheduledExecutorService reporter;
+
+  /**
+   * Do not make any.
+   */
+  private Metrics() {
+  } // Metrics()
+
+  /**
+   * Returns the time to pass to Timer.stop.
+   *
+   * @return the current time in nanoseconds, or 0 if metrics are disabled
+   */
+  public static long start() {
+    return ENABLED ? System.nanoTime() : 0L;
+  } // start()
+
+  /**
+   * Returns the timer with the given name, making it if need be.
+   *
+   * @param name the name
+   * @return the timer
+   * @throws IllegalArgumentException if there is a counter with that name
+   */
+  public static Timer timer(String name) {
+    Object metric = register(name, new Timer(name));
+    if (!(metric instanceof Timer)) {
+      throw new IllegalArgumentException(name + " is not a timer");
+    } // if
+    return (Timer) metric;
+  } // timer(String)
+
+  /**
+   * Returns the counter with the given name, making it if need be.
+   *
+   * @param name the name
+   * @return the counter
+   * @throws IllegalArgumentException if there is a timer with that name
+   */
+  public static Counter counter(String name) {
+    Object metric = register(name, new Counter(name));
+    if (!(metric instanceof Counter)) {
+      throw new IllegalArgumentException(name + " is not a counter");
+    } // if
+    return (Counter) metric;
+  } // counter(String)
+
+  /**
+   * Starts appending every metric to a CSV file periodically, and once
+   * more when the program exits. The file is named by the property
+   * aac.metrics.csv (aac-metrics.csv by default) and the period, in
+   * seconds, by aac.metrics.period (60 by default). Does nothing if
+   * metrics are disabled or reporting has already started.
+   */
+  public static synchronized void startReporting() {
+    if (!ENABLED || reporter != null) {
+      return;
+    } // if
+    Path csv = Paths.get(System.getProperty("aac.metrics.csv", "aac-metrics.csv"));
+    long period = Long.getLong("aac.metrics.period", 60L);
+    reporter = Executors.newSingleThreadScheduledExecutor((task) -> {
+      Thread thread = new Thread(task, "AAC metrics");
+      thread.setDaemon(true);
+      return thread;
+    });
+    Runnable report = () -> {
+      try {
+        appendCsv(csv);
+      } catch (IOException e) {
+        e.printStackTrace();
+      } // try-catch
+    };
+    reporter.scheduleAtFixedRate(report, period, period, TimeUnit.SECONDS);
+    Runtime.getRuntime().addShutdownHook(new Thread(report, "AAC metrics at exit"));
+  } // startReporting()
+
+  /**
+   * Appends the current value of every metric to a CSV file, writing the
+   * header first if the file is new.
+   *
+   * @param csv the file
+   * @throws IOException if the file cannot be written
+   */
+  public static synchronized void appendCsv(Path csv) throws IOException {
+    boolean fresh = !Files.exists(csv) || Files.size(csv) == 0;
+    try (Writer out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      if (fresh) {
+        out.write(CSV_HEADER);
+        out.write('\n');
+      } // if
+      writeCsv(out, System.currentTimeMillis());
+    } // try
+  } // appendCsv(Path)
+
+  /**
+   * Writes one CSV row per metric, without the header.
+   *
+   * @param out  where to write
+   * @param time the time to stamp the rows with, in milliseconds
+   * @throws IOException if the rows cannot be written
+   */
+  static void writeCsv(Appendable out, long time) throws IOException {
+    AssociativeArray<String, Object> metrics = METRICS.snapshot();
+    for (int n = 0; n < metrics.size(); n++) {
+      Object metric = metrics.valueAt(n);
+      if (metric instanceof Timer) {
+        Timer timer = (Timer) metric;
+        out.append(String.format(Locale.ROOT, "%d,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f%n", time,
+            timer.name, timer.getCount(), timer.getMeanMillis(), timer.getP50Millis(),
+            timer.getP90Millis(), timer.getP99Millis(), timer.getMaxMillis()));
+      } else {
+        Counter counter = (Counter) metric;
+        out.append(String.format(Locale.ROOT, "%d,%s,%d,,,,,%n", time, counter.name,
+            counter.getCount()));
+      } // if-else
+    } // for
+  } // writeCsv(Appendable, long)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Adds a metric unless there is one with the same name, and (the first
+   * time, if metrics are enabled) registers it with JMX.
+   *
+   * @param name   the name
+   * @param metric the new metric
+   * @return the metric with that name
+   */
+  private static Object register(String name, Object metric) {
+    Object existing = METRICS.putIfAbsent(name, metric);
+    if (existing != null) {
+      return existing;
+    } // if
+    if (ENABLED) {
+      try {
+        StandardMBean bean = (metric instanceof Timer)
+            ? new StandardMBean((Timer) metric, TimerMXBean.class, true)
+            : new StandardMBean((Counter) metric, CounterMXBean.class, true);
+        String type = (metric instanceof Timer) ? "Timer" : "Counter";
+        ManagementFactory.getPlatformMBeanServer().registerMBean(bean,
+            new ObjectName("AAC:type=" + type + ",name=" + ObjectName.quote(name)));
+      } catch (JMException e) {
+        // Still recorded and written to the CSV file, just not visible in JMX.
+        e.printStackTrace();
+      } // try-catch
+    } // if
+    return metric;
+  } // register(String, Object)
+} // class Metrics
@@ -0,0 +1,532 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.LineEvent;
+import com.sun.speech.freetts.Voice;
+import com.sun.speech.freetts.VoiceManager;
+import com.sun.speech.freetts.audio.AudioPlayer;
+
+/**
+ * A cache of synthesized speech, keyed by voice and text. Each phrase is
+ * rendered to PCM once; the most recently used clips are kept in memory up
+ * to a byte budget, and every clip is also written to a spill directory as
+ * a WAV file so that it survives eviction and restarts. Cached clips are
+ * played directly through javax.sound.sampled, so a tap only costs the
+ * time it takes to start the audio line.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class SpeechCache {
+
+  /**
+   * Rendered audio: its format and raw PCM bytes.
+   */
+  public static class Sound {
+    /** The format of the samples. */
+    final AudioFormat format;
+
+    /** The samples. */
+    final byte[] pcm;
+
+    /**
+     * Creates a sound.
+     *
+     * @param format the format of the samples
+     * @param pcm    the samples
+     */
+    public Sound(AudioFormat format, byte[] pcm) {
+      this.format = format;
+      this.pcm = pcm;
+    } // Sound(AudioFormat, byte[])
+  } // class Sound
+
+  /**
+   * Something that turns text into audio.
+   */
+  public interface Renderer {
+    /**
+     * Renders the text.
+     *
+     * @param text the text to render
+     * @return the audio
+     * @throws Exception if rendering fails
+     */
+    Sound render(String text) throws Exception;
+  } // interface Renderer
+
+  /** How long rendering a phrase takes. */
+  private static final Metrics.Timer RENDER = Metrics.timer("speech.render");
+
+  /** Lookups answered from memory, from disk, and by rendering. */
+  private static final Metrics.Counter MEMORY_HITS = Metrics.counter("speech.memoryHits");
+  private static final Metrics.Counter DISK_HITS = Metrics.counter("speech.diskHits");
+  private static final Metrics.Counter MISSES = Metrics.counter("speech.misses");
+
+  /** The name of the voice, which is part of every key. */
+  private final String voiceName;
+
+  /** Renders phrases that are not cached. */
+  private final Renderer renderer;
+
+  /** The most recently used clips, least recent first. */
+  private final LinkedHashMap<String, Sound> memory;
+
+  /** The largest number of PCM bytes to keep in memory. */
+  private final long maxBytes;
+
+  /** The number of PCM bytes in memory. */
+  private long bytes;
+
+  /** Where rendered clips are written, or null to keep them in memory only. */
+  private final Path spillDir;
+
+  /** The clip being played, if any. */
+  private Clip playing;
+
+  /** The phrases being rendered or read from disk, by key. */
+  private final Map<String, CompletableFuture<Sound>> loading;
+
+  /** The low-priority thread that pre-warms phrases. */
+  private final ExecutorService prewarmer;
+
+  /** Bumped by every prewarm, so that older pending work is skipped. */
+  private long prewarmGeneration;
+
+  /**
+   * Creates a cache.
+   *
+   * @param voiceName the name of the voice the renderer uses
+   * @param renderer  renders phrases that are not cached
+   * @param maxBytes  the largest number of PCM bytes to keep in memory
+   * @param spillDir  the directory for rendered clips, or null for none
+   * @throws IOException if the spill directory cannot be created
+   */
+  public SpeechCache(String voiceName, Renderer renderer, long maxBytes, Path spillDir)
+      throws IOException {
+    this.voiceName = voiceName;
+    this.renderer = renderer;
+    this.maxBytes = maxBytes;
+    this.memory = new LinkedHashMap<>(16, 0.75f, true);
+    this.bytes = 0;
+    this.spillDir = spillDir;
+    this.loading = new HashMap<>();
+    this.prewarmer = Executors.newSingleThreadExecutor((task) -> {
+      Thread thread = new Thread(task, "AAC speech prewarm");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    this.prewarmGeneration = 0;
+    if (spillDir != null) {
+      Files.createDirectories(spillDir);
+    } // if
+  } // SpeechCache(String, Renderer, long, Path)
+
+  /**
+   * Creates a cache that renders with a FreeTTS voice.
+   *
+   * @param voiceName the name of the voice (e.g., "kevin16")
+   * @param maxBytes  the largest number of PCM bytes to keep in memory
+   * @param spillDir  the directory for rendered clips, or null for none
+   * @return the cache
+   * @throws IOException if the voice is unknown or the spill directory
+   *                     cannot be created
+   */
+  public static SpeechCache forFreeTTS(String voiceName, long maxBytes, Path spillDir)
+      throws IOException {
+    Voice voice = VoiceManager.getInstance().getVoice(voiceName);
+    if (voice == null) {
+      throw new IOException("No FreeTTS voice named " + voiceName);
+    } // if
+    voice.allocate();
+    PcmRecorder recorder = new PcmRecorder();
+    voice.setAudioPlayer(recorder);
+    return new SpeechCache(voiceName, (text) -> {
+      synchronized (recorder) {
+        recorder.reset();
+        voice.speak(text);
+        return new Sound(recorder.getAudioFormat(), recorder.samples.toByteArray());
+      } // synchronized
+    }, maxBytes, spillDir);
+  } // forFreeTTS(String, long, Path)
+
+  /**
+   * Returns the audio for the text, rendering it (once) if necessary. If
+   * another thread is already loading the same phrase, waits for it
+   * rather than rendering it twice.
+   *
+   * @param text the text
+   * @return its audio
+   * @throws Exception if the audio cannot be rendered
+   */
+  public Sound get(String text) throws Exception {
+    String key = this.voiceName + "\n" + text;
+    CompletableFuture<Sound> pending;
+    CompletableFuture<Sound> mine = null;
+    synchronized (this) {
+      Sound sound = this.memory.get(key);
+      if (sound != null) {
+        MEMORY_HITS.increment();
+        return sound;
+      } // if
+      pending = this.loading.get(key);
+      if (pending == null) {
+        mine = new CompletableFuture<>();
+        this.loading.put(key, mine);
+      } // if
+    } // synchronized
+    if (mine == null) {
+      try {
+        return pending.get();
+      } catch (ExecutionException e) {
+        throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+      } // try-catch
+    } // if
+    try {
+      Sound sound = this.readSpill(key);
+      if (sound != null) {
+        DISK_HITS.increment();
+      } else {
+        long start = Metrics.start();
+        sound = this.renderer.render(text);
+        RENDER.stop(start);
+        MISSES.increment();
+        this.writeSpill(key, sound);
+      } // if-else
+      this.remember(key, sound);
+      mine.complete(sound);
+      return sound;
+    } catch (Exception e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      synchronized (this) {
+        this.loading.remove(key);
+      } // synchronized
+    } // try-catch-finally
+  } // get(String)
+
+  /**
+   * Renders the given phrases in the background at low priority, so that
+   * the first tap on any of them plays immediately. Work still pending
+   * from an earlier call is cancelled; passing no phrases just cancels.
+   *
+   * @param texts the phrases that are likely to be spoken next
+   */
+  public void prewarm(String... texts) {
+    long generation;
+    synchronized (this) {
+      generation = ++this.prewarmGeneration;
+    } // synchronized
+    for (String text : texts) {
+      if (text == null || text.isEmpty()) {
+        continue;
+      } // if
+      this.prewarmer.execute(() -> {
+        synchronized (this) {
+          if (generation != this.prewarmGeneration) {
+            return;
+          } // if
+        } // synchronized
+        try {
+          this.get(text);
+        } catch (Exception e) {
+          // The tap will try again and report the problem.
+        } // try-catch
+      });
+    } // for
+  } // prewarm(String...)
+
+  /**
+   * Determines if the text has already been rendered, in memory or on disk.
+   *
+   * @param text the text
+   * @return true if playing it will not need the renderer
+   */
+  public boolean contains(String text) {
+    String key = this.voiceName + "\n" + text;
+    synchronized (this) {
+      if (this.memory.containsKey(key)) {
+        return true;
+      } // if
+    } // synchronized
+    return this.spillDir != null && Files.exists(this.spillFile(key));
+  } // contains(String)
+
+  /**
+   * Returns the number of PCM bytes held in memory.
+   *
+   * @return the number of bytes
+   */
+  public synchronized long memoryBytes() {
+    return this.bytes;
+  } // memoryBytes()
+
+  /**
+   * Plays a sound, returning once it has finished or been stopped.
+   *
+   * @param sound the sound
+   * @throws Exception if the audio line cannot be opened
+   */
+  public void play(Sound sound) throws Exception {
+    this.play(sound, () -> false);
+  } // play(Sound)
+
+  /**
+   * Plays a sound unless it is cancelled first, returning once it has
+   * finished or been stopped. The check and the start happen under the
+   * same lock as stop, so a stop that comes before the start is not lost.
+   *
+   * @param sound     the sound
+   * @param cancelled tells whether the sound has been cancelled
+   * @throws Exception if the audio line cannot be opened
+   */
+  public void play(Sound sound, BooleanSupplier cancelled) throws Exception {
+    Clip clip = AudioSystem.getClip();
+    CountDownLatch finished = new CountDownLatch(1);
+    clip.addLineListener((event) -> {
+      if (event.getType() == LineEvent.Type.STOP) {
+        finished.countDown();
+      } // if
+    });
+    clip.open(sound.format, sound.pcm, 0, sound.pcm.length);
+    boolean started;
+    synchronized (this) {
+      started = !cancelled.getAsBoolean();
+      if (started) {
+        this.playing = clip;
+        clip.start();
+      } // if
+    } // synchronized
+    try {
+      if (started) {
+        finished.await();
+      } // if
+    } finally {
+      synchronized (this) {
+        this.playing = null;
+      } // synchronized
+      clip.close();
+    } // try-finally
+  } // play(Sound, BooleanSupplier)
+
+  /**
+   * Stops the sound being played, if any.
+   */
+  public synchronized void stop() {
+    if (this.playing != null) {
+      this.playing.stop();
+    } // if
+  } // stop()
+
+  /**
+   * Returns a speech engine that plays phrases from this cache.
+   *
+   * @return the engine
+   */
+  public SpeechScheduler.Engine engine() {
+    return new SpeechScheduler.Engine() {
+      public void speak(String text, BooleanSupplier cancelled) throws Exception {
+        play(get(text), cancelled);
+      } // speak(String, BooleanSupplier)
+
+      public void cancel() {
+        stop();
+      } // cancel()
+    };
+  } // engine()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Keeps a sound in memory, evicting the least recently used sounds to
+   * stay within the byte budget.
+   *
+   * @param key   the key
+   * @param sound the sound
+   */
+  private synchronized void remember(String key, Sound sound) {
+    Sound old = this.memory.put(key, sound);
+    if (old != null) {
+      this.bytes -= old.pcm.length;
+    } // if
+    this.bytes += sound.pcm.length;
+    Iterator<Map.Entry<String, Sound>> oldest = this.memory.entrySet().iterator();
+    while (this.bytes > this.maxBytes && oldest.hasNext()) {
+      Map.Entry<String, Sound> entry = oldest.next();
+      if (entry.getValue() != sound) {
+        this.bytes -= entry.getValue().pcm.length;
+        oldest.remove();
+      } // if
+    } // while
+  } // remember(String, Sound)
+
+  /**
+   * Returns the spill file for a key.
+   *
+   * @param key the key
+   * @return the path of its WAV file
+   */
+  private Path spillFile(String key) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(key.getBytes(StandardCharsets.UTF_8));
+      StringBuilder name = new StringBuilder();
+      for (int n = 0; n < 16; n++) {
+        name.append(String.format("%02x", digest[n]));
+      } // for
+      return this.spillDir.resolve(name.append(".wav").toString());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    } // try-catch
+  } // spillFile(String)
+
+  /**
+   * Reads a key's sound from the spill directory.
+   *
+   * @param key the key
+   * @return the sound, or null if it has not been spilled
+   */
+  private Sound readSpill(String key) {
+    if (this.spillDir == null) {
+      return null;
+    } // if
+    Path file = this.spillFile(key);
+    if (!Files.exists(file)) {
+      return null;
+    } // if
+    try (AudioInputStream in = AudioSystem.getAudioInputStream(file.toFile())) {
+      return new Sound(in.getFormat(), in.readAllBytes());
+    } catch (Exception e) {
+      // An unreadable spill file is treated as missing.
+      return null;
+    } // try-catch
+  } // readSpill(String)
+
+  /**
+   * Writes a key's sound to the spill directory, if there is one.
+   *
+   * @param key   the key
+   * @param sound the sound
+   */
+  private void writeSpill(String key, Sound sound) {
+    if (this.spillDir == null) {
+      return;
+    } // if
+    try {
+      Path temp = Files.createTempFile(this.spillDir, ".clip", ".tmp");
+      try (AudioInputStream in = new AudioInputStream(new ByteArrayInputStream(sound.pcm),
+          sound.format, sound.pcm.length / sound.format.getFrameSize())) {
+        AudioSystem.write(in, AudioFileFormat.Type.WAVE, temp.toFile());
+      } // try
+      Files.move(temp, this.spillFile(key), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // The spill directory is only a second-level cache.
+    } // try-catch
+  } // writeSpill(String, Sound)
+
+  /**
+   * A FreeTTS audio player that records the samples it is given instead
+   * of playing them.
+   */
+  static class PcmRecorder implements AudioPlayer {
+    /** The samples recorded since the last reset. */
+    final ByteArrayOutputStream samples = new ByteArrayOutputStream();
+
+    /** The format of the samples. */
+    private AudioFormat format = new AudioFormat(16000f, 16, 1, true, true);
+
+    /** The volume (recorded, not applied). */
+    private float volume = 1.0f;
+
+    public void setAudioFormat(AudioFormat format) {
+      this.format = format;
+    } // setAudioFormat(AudioFormat)
+
+    public AudioFormat getAudioFormat() {
+      return this.format;
+    } // getAudioFormat()
+
+    public void pause() {
+    } // pause()
+
+    public void resume() {
+    } // resume()
+
+    public void reset() {
+      this.samples.reset();
+    } // reset()
+
+    public boolean drain() {
+      return true;
+    } // drain()
+
+    public void begin(int size) {
+    } // begin(int)
+
+    public boolean end() {
+      return true;
+    } // end()
+
+    public void cancel() {
+    } // cancel()
+
+    public void close() {
+    } // close()
+
+    public float getVolume() {
+      return this.volume;
+    } // getVolume()
+
+    public void setVolume(float volume) {
+      this.volume = volume;
+    } // setVolume(float)
+
+    public long getTime() {
+      return 0;
+    } // getTime()
+
+    public void resetTime() {
+    } // resetTime()
+
+    public void startFirstSampleTimer() {
+    } // startFirstSampleTimer()
+
+    public boolean write(byte[] audioData) {
+      return this.write(audioData, 0, audioData.length);
+    } // write(byte[])
+
+    public boolean write(byte[] audioData, int offset, int size) {
+      this.samples.write(audioData, offset, size);
+      return true;
+    } // write(byte[], int, int)
+
+    public void showMetrics() {
+    } // showMetrics()
+  } // class PcmRecorder
+} // class SpeechCache
@@ -0,0 +1,294 @@
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import javax.speech.synthesis.Synthesizer;
+
+/**
+ * Speaks utterances one at a time on a dedicated background thread, so
+ * that a tap on the AAC returns to the Swing event thread immediately
+ * even while the speech engine is busy.
+ *
+ * Each utterance is submitted with a policy: QUEUE waits its turn (so
+ * taps build up a sentence), INTERRUPT stops whatever is being said and
+ * drops anything waiting, and COALESCE reuses an identical utterance that
+ * is still waiting instead of saying it twice. The returned future is
+ * completed with true once the text has been spoken and false if it was
+ * interrupted or dropped.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class SpeechScheduler {
+
+  /**
+   * How a new utterance relates to the ones already waiting.
+   */
+  public enum Policy {
+    /** Speak after everything already waiting. */
+    QUEUE,
+    /** Stop the current utterance, drop the waiting ones, then speak. */
+    INTERRUPT,
+    /** Like QUEUE, but reuse an identical utterance that is still waiting. */
+    COALESCE
+  } // enum Policy
+
+  /**
+   * Something that can speak text, blocking until it is done.
+   */
+  public interface Engine {
+    /**
+     * Speaks the text, returning once it has been said or cancelled. An
+     * interrupt can come just as the engine is starting, when cancel has
+     * nothing to stop yet, so once the engine has started speaking (or
+     * queued the text) it must check cancelled, and stop if it is set.
+     *
+     * @param text      the text to speak
+     * @param cancelled tells whether this utterance has been cancelled
+     * @throws Exception if the engine fails
+     */
+    void speak(String text, BooleanSupplier cancelled) throws Exception;
+
+    /**
+     * Stops the utterance in progress, if any. Called from another thread,
+     * after the utterance has been marked cancelled.
+     */
+    void cancel();
+  } // interface Engine
+
+  /** How long utterances wait before the engine starts on them. */
+  private static final Metrics.Timer QUEUED = Metrics.timer("speech.queued");
+
+  /** How long the engine takes to say an utterance. */
+  private static final Metrics.Timer SPEAK = Metrics.timer("speech.speak");
+
+  /**
+   * An utterance and the future that reports its outcome.
+   */
+  private static class Utterance {
+    /** The text to speak. */
+    final String text;
+
+    /** Completed when the utterance is spoken, dropped or interrupted. */
+    final CompletableFuture<Boolean> done;
+
+    /** When the utterance was scheduled, from Metrics.start(). */
+    final long scheduled;
+
+    /**
+     * Creates an utterance.
+     *
+     * @param text the text to speak
+     */
+    Utterance(String text) {
+      this.text = text;
+      this.done = new CompletableFuture<>();
+      this.scheduled = Metrics.start();
+    } // Utterance(String)
+  } // class Utterance
+
+  /** The engine that does the speaking. */
+  private final Engine engine;
+
+  /** The single thread that calls the engine. */
+  private final ExecutorService executor;
+
+  /** The utterances waiting their turn, oldest first. */
+  private final ArrayDeque<Utterance> waiting;
+
+  /** The utterance being spoken, if any. */
+  private Utterance speaking;
+
+  /**
+   * Creates a scheduler that speaks through the given engine.
+   *
+   * @param engine the engine
+   */
+  public SpeechScheduler(Engine engine) {
+    this.engine = engine;
+    this.waiting = new ArrayDeque<>();
+    this.executor = Executors.newSingleThreadExecutor((task) -> {
+      Thread thread = new Thread(task, "AAC speech");
+      thread.setDaemon(true);
+      return thread;
+    });
+  } // SpeechScheduler(Engine)
+
+  /**
+   * Creates a scheduler that speaks through a JSAPI synthesizer that has
+   * already been allocated and resumed.
+   *
+   * @param synthesizer the synthesizer
+   * @return the scheduler
+   */
+  public static SpeechScheduler forSynthesizer(Synthesizer synthesizer) {
+    return new SpeechScheduler(engine(synthesizer));
+  } // forSynthesizer(Synthesizer)
+
+  /**
+   * Returns an engine that speaks through a JSAPI synthesizer that has
+   * already been allocated and resumed.
+   *
+   * @param synthesizer the synthesizer
+   * @return the engine
+   */
+  public static Engine engine(Synthesizer synthesizer) {
+    return new Engine() {
+      public void speak(String text, BooleanSupplier cancelled) throws Exception {
+        synthesizer.speakPlainText(text, null);
+        if (cancelled.getAsBoolean()) {
+          // Cancelled before it was queued; cancelAll may have missed it.
+          synthesizer.cancelAll();
+        } // if
+        synthesizer.waitEngineState(Synthesizer.QUEUE_EMPTY);
+      } // speak(String, BooleanSupplier)
+
+      public void cancel() {
+        synthesizer.cancelAll();
+      } // cancel()
+    };
+  } // engine(Synthesizer)
+
+  /**
+   * Returns an engine that speaks through primary, and through a backup
+   * engine for any utterance that primary fails to say (say, because no
+   * audio line can be opened for a clip). The backup comes from fallback
+   * the first time it is needed, so an expensive engine is only made if
+   * it is used; the first failure is reported on standard error. If
+   * fallback gives null, the failures are passed on.
+   *
+   * @param primary  the engine to try first
+   * @param fallback makes the backup engine, or gives null if there is none
+   * @return the engine
+   */
+  public static Engine withFallback(Engine primary, Supplier<Engine> fallback) {
+    return new Engine() {
+      /** The backup engine, once made. */
+      private Engine backup;
+
+      /** Whether fallback has been asked for the backup. */
+      private boolean asked;
+
+      public void speak(String text, BooleanSupplier cancelled) throws Exception {
+        try {
+          primary.speak(text, cancelled);
+        } catch (Exception e) {
+          Engine backup = this.backup(e);
+          if (backup == null) {
+            throw e;
+          } // if
+          if (!cancelled.getAsBoolean()) {
+            backup.speak(text, cancelled);
+          } // if
+        } // try-catch
+      } // speak(String, BooleanSupplier)
+
+      public void cancel() {
+        primary.cancel();
+        Engine backup;
+        synchronized (this) {
+          backup = this.backup;
+        } // synchronized
+        if (backup != null) {
+          backup.cancel();
+        } // if
+      } // cancel()
+
+      /**
+       * Returns the backup engine, making it the first time.
+       *
+       * @param failure why the primary engine failed
+       * @return the backup, or null if there is none
+       */
+      private synchronized Engine backup(Exception failure) {
+        if (!this.asked) {
+          this.asked = true;
+          System.err.println("Speaking through the fallback engine: " + failure);
+          this.backup = fallback.get();
+        } // if
+        return this.backup;
+      } // backup(Exception)
+    };
+  } // withFallback(Engine, Supplier)
+
+  /**
+   * Schedules text to be spoken.
+   *
+   * @param text   the text to speak
+   * @param policy how to treat utterances that are already waiting
+   * @return a future completed with true once the text is spoken, or false
+   *         if it is interrupted or dropped
+   */
+  public synchronized CompletableFuture<Boolean> speak(String text, Policy policy) {
+    if (policy == Policy.COALESCE) {
+      for (Utterance utterance : this.waiting) {
+        if (utterance.text.equals(text)) {
+          return utterance.done;
+        } // if
+      } // for
+    } else if (policy == Policy.INTERRUPT) {
+      this.interrupt();
+    } // if-else
+    Utterance utterance = new Utterance(text);
+    this.waiting.addLast(utterance);
+    this.executor.execute(this::speakNext);
+    return utterance.done;
+  } // speak(String, Policy)
+
+  /**
+   * Stops the current utterance and drops every waiting one.
+   */
+  public synchronized void interrupt() {
+    Iterator<Utterance> dropped = this.waiting.iterator();
+    while (dropped.hasNext()) {
+      dropped.next().done.complete(false);
+      dropped.remove();
+    } // while
+    if (this.speaking != null) {
+      this.speaking.done.complete(false);
+      this.engine.cancel();
+    } // if
+  } // interrupt()
+
+  /**
+   * Stops speaking and releases the background thread.
+   */
+  public void shutdown() {
+    this.interrupt();
+    this.executor.shutdownNow();
+  } // shutdown()
+
+  /**
+   * Speaks the oldest waiting utterance, if it has not been dropped. Runs
+   * on the background thread, once per call to speak.
+   */
+  private void speakNext() {
+    Utterance utterance;
+    synchronized (this) {
+      utterance = this.waiting.pollFirst();
+      if (utterance == null || utterance.done.isDone()) {
+        // Dropped or interrupted before it started.
+        return;
+      } // if
+      // From here on, an interrupt completes done and cancels the engine,
+      // and the engine checks done once it starts, so neither is lost.
+      this.speaking = utterance;
+    } // synchronized
+    QUEUED.stop(utterance.scheduled);
+    long start = Metrics.start();
+    try {
+      this.engine.speak(utterance.text, utterance.done::isDone);
+      SPEAK.stop(start);
+      utterance.done.complete(true);
+    } catch (Exception e) {
+      utterance.done.completeExceptionally(e);
+    } finally {
+      synchronized (this) {
+        this.speaking = null;
+      } // synchronized
+    } // try-catch-finally
+  } // speakNext()
+} // class SpeechScheduler
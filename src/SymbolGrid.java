@@ -0,0 +1,382 @@
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import javax.swing.Icon;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeListener;
+
+/**
+ * A virtualized, scrollable grid of symbols. Instead of one button per
+ * symbol, the grid paints the symbols of the rows in the viewport itself
+ * and only asks the icon cache for those rows (plus a viewport's worth of
+ * rows on either side, so scrolling finds them ready). Clicking a symbol
+ * sends its image location as the action command, just like the buttons
+ * of the paged grid. Memory therefore depends on the viewport, not on the
+ * number of symbols in the category.
+ *
+ * Painting only draws what it already has: the icons that are decoded,
+ * for the image locations already fetched. Which symbols are in view is
+ * worked out when the viewport scrolls or the grid is resized or given a
+ * new page, after the event that caused it, and that is when image
+ * locations are fetched from the page, icons are requested and the range
+ * listener is told.
+ *
+ * @author Tiffany Tang
+ *
+ */
+public class SymbolGrid extends JComponent implements Scrollable {
+
+  /** Version of the serialized form, which Swing components have. */
+  private static final long serialVersionUID = 1L;
+
+  /** The space between a symbol and the edge of its cell. */
+  static final int CELL_PADDING = 8;
+
+  /** The icons. */
+  private final IconCache icons;
+
+  /** The number of symbols across. */
+  private final int columns;
+
+  /** The number of rows that should fit in the viewport. */
+  private final int visibleRows;
+
+  /** Told when a symbol is clicked. */
+  private final ActionListener listener;
+
+  /** Told the range [first, last) of symbols in view whenever it changes. */
+  private final RangeListener rangeListener;
+
+  /** The page whose symbols are shown, if any. */
+  private AACPage page;
+
+  /** The number of symbols on the page. */
+  private int count;
+
+  /** The image locations of the symbols near the viewport, and where they start. */
+  private String[] window;
+  private int windowStart;
+
+  /** The last range reported to the range listener, and its cell size. */
+  private int shownFirst;
+  private int shownLast;
+  private int shownCell;
+
+  /** Whether an update of the range in view is waiting to run. */
+  private boolean updatePending;
+
+  /** Schedules an update whenever the enclosing viewport scrolls or resizes. */
+  private final transient ChangeListener viewportListener;
+
+  /**
+   * Something that wants to know which symbols are in view.
+   */
+  public interface RangeListener {
+    /**
+     * Reports the symbols in view.
+     *
+     * @param first the index of the first symbol in view
+     * @param last  one more than the index of the last symbol in view
+     */
+    void rangeChanged(int first, int last);
+  } // interface RangeListener
+
+  /**
+   * Creates an empty grid.
+   *
+   * @param icons         the icon cache
+   * @param columns       the number of symbols across
+   * @param visibleRows   the number of rows that should fit in the viewport
+   * @param listener      told when a symbol is clicked
+   * @param rangeListener told which symbols are in view
+   */
+  public SymbolGrid(IconCache icons, int columns, int visibleRows, ActionListener listener,
+      RangeListener rangeListener) {
+    this.icons = icons;
+    this.columns = columns;
+    this.visibleRows = visibleRows;
+    this.listener = listener;
+    this.rangeListener = rangeListener;
+    this.page = null;
+    this.count = 0;
+    this.window = new String[0];
+    this.windowStart = 0;
+    this.shownFirst = -1;
+    this.shownLast = -1;
+    this.shownCell = -1;
+    this.updatePending = false;
+    this.viewportListener = (e) -> this.scheduleUpdate();
+    this.setOpaque(true);
+    this.addComponentListener(new ComponentAdapter() {
+      public void componentResized(ComponentEvent e) {
+        // The cells are square, so a new width means a new height.
+        revalidate();
+        scheduleUpdate();
+      } // componentResized(ComponentEvent)
+    });
+    this.addMouseListener(new MouseAdapter() {
+      public void mouseClicked(MouseEvent e) {
+        int index = indexAt(e.getX(), e.getY());
+        if (index >= 0) {
+          SymbolGrid.this.listener.actionPerformed(new ActionEvent(SymbolGrid.this,
+              ActionEvent.ACTION_PERFORMED, SymbolGrid.this.fetch(index)));
+        } // if
+      } // mouseClicked(MouseEvent)
+    });
+  } // SymbolGrid(IconCache, int, int, ActionListener, RangeListener)
+
+  /**
+   * Shows the symbols of a page, scrolled to the top. Only the image
+   * locations near the viewport are fetched from the page.
+   *
+   * @param page the page
+   */
+  public void setPage(AACPage page) {
+    this.page = page;
+    this.count = page.getImageCount();
+    this.window = new String[0];
+    this.windowStart = 0;
+    this.shownFirst = -1;
+    this.shownLast = -1;
+    this.revalidate();
+    this.scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+    this.repaint();
+    this.scheduleUpdate();
+  } // setPage(AACPage)
+
+  /**
+   * Listens to the viewport the grid is added to.
+   */
+  public void addNotify() {
+    super.addNotify();
+    if (this.getParent() instanceof JViewport) {
+      ((JViewport) this.getParent()).addChangeListener(this.viewportListener);
+    } // if
+  } // addNotify()
+
+  /**
+   * Stops listening to the viewport the grid is removed from.
+   */
+  public void removeNotify() {
+    if (this.getParent() instanceof JViewport) {
+      ((JViewport) this.getParent()).removeChangeListener(this.viewportListener);
+    } // if
+    super.removeNotify();
+  } // removeNotify()
+
+  /**
+   * Returns the image location of a symbol, fetching the three viewports'
+   * worth of symbols around it from the page if it is not in the window.
+   *
+   * @param index the index of the symbol
+   * @return its image location
+   */
+  String fetch(int index) {
+    if (this.imageAt(index) == null) {
+      int span = this.columns * this.visibleRows;
+      this.windowStart = Math.max(0, index - span);
+      this.window = this.page.getImageLocs(this.windowStart, 3 * span);
+    } // if
+    return this.window[index - this.windowStart];
+  } // fetch(int)
+
+  /**
+   * Returns the image location of a symbol if it is in the window,
+   * without fetching anything.
+   *
+   * @param index the index of the symbol
+   * @return its image location, or null if it is not in the window
+   */
+  String imageAt(int index) {
+    if (index < this.windowStart || index >= this.windowStart + this.window.length) {
+      return null;
+    } // if
+    return this.window[index - this.windowStart];
+  } // imageAt(int)
+
+  /**
+   * Returns the side of a (square) cell.
+   *
+   * @return the cell size in pixels
+   */
+  int cellSize() {
+    int width = this.getWidth();
+    if (width <= 0 && this.getParent() != null) {
+      width = this.getParent().getWidth();
+    } // if
+    return Math.max(width / this.columns, 1);
+  } // cellSize()
+
+  /**
+   * Returns the number of rows needed for all the symbols.
+   *
+   * @return the number of rows
+   */
+  int rows() {
+    return (this.count + this.columns - 1) / this.columns;
+  } // rows()
+
+  /**
+   * Finds the symbol at a point.
+   *
+   * @param x the x coordinate
+   * @param y the y coordinate
+   * @return the index of the symbol, or -1 if there is none
+   */
+  int indexAt(int x, int y) {
+    int cell = this.cellSize();
+    int column = x / cell;
+    int index = (y / cell) * this.columns + column;
+    if (column >= this.columns || index < 0 || index >= this.count) {
+      return -1;
+    } // if
+    return index;
+  } // indexAt(int, int)
+
+  /**
+   * Paints the symbols in the rows that intersect the clip, using
+   * whichever icons are already decoded, and placeholders for the rest
+   * (including symbols outside the window, until updateVisible fetches
+   * them).
+   *
+   * @param pen the graphics context
+   */
+  protected void paintComponent(Graphics pen) {
+    Rectangle clip = pen.getClipBounds();
+    pen.setColor(this.getBackground());
+    pen.fillRect(clip.x, clip.y, clip.width, clip.height);
+    int cell = this.cellSize();
+    int firstRow = clip.y / cell;
+    int lastRow = Math.min(this.rows(), (clip.y + clip.height) / cell + 1);
+    for (int row = firstRow; row < lastRow; row++) {
+      for (int column = 0; column < this.columns; column++) {
+        int index = row * this.columns + column;
+        if (index >= this.count) {
+          break;
+        } // if
+        int x = column * cell;
+        int y = row * cell;
+        int size = Math.max(cell - 2 * CELL_PADDING, 1);
+        String imageLoc = this.imageAt(index);
+        Icon icon = (imageLoc == null) ? this.icons.placeholder(size, size)
+            : this.icons.peek(imageLoc, size, size);
+        icon.paintIcon(this, pen, x + (cell - icon.getIconWidth()) / 2,
+            y + (cell - icon.getIconHeight()) / 2);
+        pen.setColor(Color.LIGHT_GRAY);
+        pen.drawRect(x, y, cell - 1, cell - 1);
+      } // for
+    } // for
+  } // paintComponent(Graphics)
+
+  /**
+   * Asks for the icon of a symbol, repainting its cell once it is ready.
+   *
+   * @param index the index of the symbol
+   * @param cell  the cell size
+   */
+  private void request(int index, int cell) {
+    int x = (index % this.columns) * cell;
+    int y = (index / this.columns) * cell;
+    int size = Math.max(cell - 2 * CELL_PADDING, 1);
+    this.icons.get(this.fetch(index), size, size,
+        (icon) -> this.repaint(x, y, cell, cell));
+  } // request(int, int)
+
+  /**
+   * Arranges for updateVisible to run once the current event is done.
+   * Several requests before then lead to one update. Running later also
+   * keeps the range listener (which may change what the session shows)
+   * from being called in the middle of a state change or a layout.
+   */
+  private void scheduleUpdate() {
+    if (!this.updatePending) {
+      this.updatePending = true;
+      SwingUtilities.invokeLater(this::updateVisible);
+    } // if
+  } // scheduleUpdate()
+
+  /**
+   * Works out which symbols are in view. If that (or the cell size) has
+   * changed, fetches the window around them if need be (and repaints, so
+   * that symbols painted as placeholders before are drawn), asks for
+   * their icons and those of the rows within a viewport of them, and
+   * tells the range listener.
+   */
+  private void updateVisible() {
+    this.updatePending = false;
+    if (this.page == null) {
+      return;
+    } // if
+    int cell = this.cellSize();
+    Rectangle view = this.getVisibleRect();
+    int first = Math.min(this.count, (view.y / cell) * this.columns);
+    int last = Math.min(this.count,
+        ((view.y + view.height + cell - 1) / cell) * this.columns);
+    if (first == this.shownFirst && last == this.shownLast && cell == this.shownCell) {
+      return;
+    } // if
+    this.shownFirst = first;
+    this.shownLast = last;
+    this.shownCell = cell;
+    int span = last - first;
+    if (first < last && (this.imageAt(first) == null || this.imageAt(last - 1) == null)) {
+      int around = Math.max(span, this.columns * this.visibleRows);
+      this.windowStart = Math.max(0, first - around);
+      this.window = this.page.getImageLocs(this.windowStart, span + 2 * around);
+      this.repaint();
+    } // if
+    for (int index = first; index < last; index++) {
+      this.request(index, cell);
+    } // for
+    for (int index = Math.max(0, first - span); index < first; index++) {
+      this.request(index, cell);
+    } // for
+    for (int index = last; index < Math.min(this.count, last + span); index++) {
+      this.request(index, cell);
+    } // for
+    if (this.rangeListener != null) {
+      this.rangeListener.rangeChanged(first, last);
+    } // if
+  } // updateVisible()
+
+  // +------------+--------------------------------------------------
+  // | Scrollable |
+  // +------------+
+
+  public Dimension getPreferredSize() {
+    int cell = this.cellSize();
+    return new Dimension(cell * this.columns, cell * this.rows());
+  } // getPreferredSize()
+
+  public Dimension getPreferredScrollableViewportSize() {
+    int cell = this.cellSize();
+    return new Dimension(cell * this.columns, cell * this.visibleRows);
+  } // getPreferredScrollableViewportSize()
+
+  public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+    return Math.max(this.cellSize() / 4, 1);
+  } // getScrollableUnitIncrement(Rectangle, int, int)
+
+  public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+    return (orientation == SwingConstants.VERTICAL) ? visible.height : visible.width;
+  } // getScrollableBlockIncrement(Rectangle, int, int)
+
+  public boolean getScrollableTracksViewportWidth() {
+    return true;
+  } // getScrollableTracksViewportWidth()
+
+  public boolean getScrollableTracksViewportHeight() {
+    return false;
+  } // getScrollableTracksViewportHeight()
+} // class SymbolGrid
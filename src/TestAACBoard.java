@@ -0,0 +1,78 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of AACBoard and AACBoardPage.
+ *
+ * @author Tiffany Tang
+ */
+public class TestAACBoard {
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Is a board built from mappings the same as the mappings, and are
+   * older boards left alone by edits?
+   */
+  @Test
+  void testSnapshots() throws IOException {
+    Path file = Files.createTempFile("board", ".txt");
+    Files.writeString(file, "one fruit\n>a apple\n>b banana\ntwo clothes\n>d dress\n");
+    AACMappings mappings = new AACMappings(file.toString());
+    AACBoard before = AACBoard.of(mappings);
+    AACBoard after = before.withItem("one", "c", "cherry").withoutCategory("two")
+        .withCategory("three", "toys");
+
+    assertEquals(2, before.getCategories().size(), "old board has two categories");
+    assertEquals(2, before.getCategory("one").getItems().size(), "old board has two fruits");
+    assertEquals(3, after.getCategory("one").getItems().size(), "new board has three fruits");
+    assertEquals("toys", after.getCategory("three").getName(), "new category");
+    assertTrue(before.hasImage("d") && !after.hasImage("d"), "d left with its category");
+    assertTrue(after.hasImage("c") && !before.hasImage("c"), "c added to the new board");
+
+    AACBoard shared = after.withItem("three", "a", "apple toy");
+    assertTrue(shared.withoutItem("one", "a").hasImage("a"), "a is still in toys");
+    assertFalse(shared.withoutItem("one", "a").withoutItem("three", "a").hasImage("a"),
+        "a is in neither");
+
+    AACMappings back = after.toMappings();
+    assertArrayEquals(new String[] { "one", "three" }, back.getImageLocs(), "categories");
+    back.select("one");
+    assertArrayEquals(new String[] { "a", "b", "c" }, back.getImageLocs(), "fruits");
+    Files.deleteIfExists(file);
+  } // testSnapshots()
+
+  /**
+   * Does the page keep showing its board until a new one is published?
+   */
+  @Test
+  void testPublish() {
+    AACBoard board = AACBoard.empty().withCategory("one", "fruit").withItem("one", "a", "apple");
+    AACBoardPage page = new AACBoardPage(board);
+    assertEquals("", page.select("one"), "selecting one");
+    assertEquals("fruit", page.getCategory(), "in fruit");
+
+    AACBoard draft = page.board().withItem("one", "b", "banana");
+    assertArrayEquals(new String[] { "a" }, page.getImageLocs(), "draft is not shown");
+    page.publish(draft);
+    assertArrayEquals(new String[] { "a", "b" }, page.getImageLocs(), "published");
+    assertEquals("banana", page.select("b"), "speaking b");
+
+    page.addItem("c", "cherry");
+    assertEquals(3, page.getImageCount(), "added through the page");
+    assertTrue(page.hasImage("c"), "c is on the board");
+    assertFalse(draft.getCategory("one").getItems().hasKey("c"), "draft is unchanged");
+
+    page.publish(page.board().withoutCategory("one"));
+    assertEquals("", page.getCategory(), "back home once the category is gone");
+  } // testPublish()
+} // class TestAACBoard
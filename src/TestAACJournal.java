@@ -0,0 +1,190 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of AACJournal.
+ *
+ * @author Tiffany Tang
+ */
+public class TestAACJournal {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The mappings file. */
+  Path file;
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Creates a small mappings file with no journal.
+   */
+  @BeforeEach
+  void createFile() throws IOException {
+    this.file = Files.createTempFile("journal", ".txt");
+    Files.writeString(this.file, "one fruit\n>a apple\ntwo clothes\n>d dress\n");
+  } // createFile()
+
+  /**
+   * Removes the mappings file, its journal and its saved board.
+   */
+  @AfterEach
+  void removeFile() throws IOException {
+    Files.deleteIfExists(this.file);
+    Files.deleteIfExists(Path.of(this.file + AACJournal.EXTENSION));
+    for (int generation = 1; generation <= 3; generation++) {
+      Files.deleteIfExists(Path.of(this.file + AACJournal.SAVED + generation));
+    } // for
+  } // removeFile()
+
+  /**
+   * Loads the mappings file and opens its journal.
+   */
+  AACJournal open(AACMappings mappings) throws IOException {
+    return new AACJournal(mappings, this.file.toString());
+  } // open(AACMappings)
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Are edits, undos and redos recovered by replaying the journal, are
+   * records that no longer apply skipped, and is a half-written last
+   * record dropped?
+   */
+  @Test
+  void testReplay() throws IOException {
+    AACMappings mappings = new AACMappings(this.file.toString());
+    try (AACJournal journal = open(mappings)) {
+      journal.addItem("one", "b", "banana");
+      journal.addItem("one", "a", "avocado");
+      journal.addCategory("three", "toys\twith a tab");
+      journal.removeCategory("two");
+      assertTrue(journal.undo(), "undo removing two");
+      assertTrue(journal.undo(), "undo adding three");
+      assertTrue(journal.redo(), "redo adding three");
+      journal.removeItem("one", "b");
+      journal.save();
+    } // try
+    Files.writeString(Path.of(this.file + AACJournal.EXTENSION),
+        "I\tnine\tz\tzebra\t\\0\nI\tone\n" + "I\tone\tz",
+        StandardOpenOption.APPEND);
+
+    AACMappings recovered = new AACMappings(this.file.toString());
+    try (AACJournal journal = open(recovered)) {
+      assertEquals(2, journal.skipped(), "no category nine, and a short record");
+      assertArrayEquals(new String[] { "one", "two", "three" }, recovered.getImageLocs(),
+          "categories after replay");
+      recovered.select("three");
+      assertEquals("toys\twith a tab", recovered.getCategory(), "escaped name");
+      recovered.reset();
+      recovered.select("one");
+      assertArrayEquals(new String[] { "a" }, recovered.getImageLocs(), "b was removed");
+      assertEquals("avocado", recovered.select("a"), "a was changed");
+      assertTrue(journal.undo(), "undo history survives replay");
+      assertArrayEquals(new String[] { "a", "b" }, recovered.getImageLocs(), "b is back");
+    } // try
+  } // testReplay()
+
+  /**
+   * Does compaction write the saved board, leave the mappings file alone
+   * and keep the undo history, and is the saved board loaded next time?
+   */
+  @Test
+  void testCompact() throws IOException {
+    String original = Files.readString(this.file, StandardCharsets.UTF_8);
+    assertEquals(this.file.toString(), AACJournal.boardFile(this.file.toString()),
+        "no saved board yet");
+    AACMappings mappings = new AACMappings(this.file.toString());
+    try (AACJournal journal = open(mappings)) {
+      journal.addItem("two", "e", "earrings");
+      journal.addItem("two", "f", "flip-flops");
+      assertTrue(journal.undo(), "undo f");
+      journal.compact();
+      assertEquals(2, journal.size(), "only the history is left");
+    } // try
+    assertEquals(original, Files.readString(this.file, StandardCharsets.UTF_8),
+        "mappings file is unchanged");
+    String saved = AACJournal.boardFile(this.file.toString());
+    assertEquals(this.file + AACJournal.SAVED + 1, saved, "saved board is loaded");
+    assertTrue(Files.readString(Path.of(saved), StandardCharsets.UTF_8).contains(">e earrings"),
+        "saved board has the edit");
+
+    AACMappings reloaded = new AACMappings(saved);
+    try (AACJournal journal = open(reloaded)) {
+      reloaded.select("two");
+      assertArrayEquals(new String[] { "d", "e" }, reloaded.getImageLocs(), "e is kept");
+      assertTrue(journal.redo(), "redo f after compaction");
+      assertArrayEquals(new String[] { "d", "e", "f" }, reloaded.getImageLocs(), "f is back");
+      assertTrue(journal.undo(), "undo f");
+      assertTrue(journal.undo(), "undo e after compaction");
+      assertArrayEquals(new String[] { "d" }, reloaded.getImageLocs(), "e is gone");
+      assertFalse(journal.undo(), "nothing older to undo");
+      journal.compact();
+    } // try
+    assertEquals(this.file + AACJournal.SAVED + 2, AACJournal.boardFile(this.file.toString()),
+        "second generation is loaded");
+    assertFalse(Files.exists(Path.of(saved)), "first generation removed");
+  } // testCompact()
+
+  /**
+   * If a crash comes after the saved board is written but before the
+   * journal is started again, are the old records dropped rather than
+   * replayed over the board that already has them?
+   */
+  @Test
+  void testCrashDuringCompact() throws IOException {
+    AACMappings mappings = new AACMappings(this.file.toString());
+    Path journalFile = Path.of(this.file + AACJournal.EXTENSION);
+    byte[] before;
+    try (AACJournal journal = open(mappings)) {
+      journal.addItem("two", "e", "earrings");
+      journal.removeCategory("one");
+      assertTrue(journal.undo(), "undo removing one");
+      journal.addCategory("three", "toys");
+      journal.removeItem("two", "d");
+      journal.save();
+      before = Files.readAllBytes(journalFile);
+      journal.compact();
+    } // try
+    // The journal as it was before compaction, with the board saved.
+    Files.write(journalFile, before);
+
+    AACMappings reloaded = new AACMappings(AACJournal.boardFile(this.file.toString()));
+    try (AACJournal journal = open(reloaded)) {
+      assertEquals(0, journal.size(), "old records dropped");
+      assertEquals(0, journal.skipped(), "not replayed at all");
+      assertArrayEquals(new String[] { "two", "one", "three" }, reloaded.getImageLocs(),
+          "categories");
+      reloaded.select("two");
+      assertArrayEquals(new String[] { "e" }, reloaded.getImageLocs(), "items of two");
+    } // try
+  } // testCrashDuringCompact()
+
+  /**
+   * Do records with awkward characters survive encoding?
+   */
+  @Test
+  void testEncoding() {
+    String[] record = { "I", "a\\b", "tab\there", "line\nbreak", null };
+    String line = AACJournal.encode(record);
+    assertEquals(1, line.split("\n", -1).length - 1, "one line");
+    assertArrayEquals(record, AACJournal.decode(line.substring(0, line.length() - 1)),
+        "round trip");
+  } // testEncoding()
+} // class TestAACJournal
@@ -9,6 +9,7 @@ import org.junit.jupiter.api.BeforeAll;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
 
 import java.io.IOException;
 import java.io.File;
@@ -208,6 +209,25 @@ public class TestAACMappings {
     assertEquals("miscellaneous", mappings.getCategory(), "selected three");
   } // testGetCategoryB()
 
+  /**
+   * Does loading cope with Windows line endings, blank lines, and a
+   * missing final newline?
+   *
+   * @throws IOException
+   *                     If an IO operation fails.
+   */
+  @Test
+  public void testLoadLineEndings() throws IOException {
+    AACMappings mappings = new AACMappings(
+        configFile("one fruit\r\n>a apple pie\r\n\r\ntwo clothes\n>d dress"));
+    assertArrayEquals(new String[] { "one", "two" }, mappings.getImageLocs(),
+        "two categories, in file order");
+    assertEquals("apple pie", mappings.allCat.getOrDefault("one", null).select("a"),
+        "text keeps its spaces");
+    assertEquals("dress", mappings.allCat.getOrDefault("two", null).select("d"),
+        "last line without newline");
+  } // testLoadLineEndings()
+
   /**
    * Do we get the appropriate list of image locations with no
    * top-level categories?
@@ -412,6 +432,158 @@ public class TestAACMappings {
     } // try/catch
   } // testSelectExceptional()
 
+  /**
+   * Does writeToFile produce the documented format, which reads back the
+   * same?
+   *
+   * @throws IOException
+   *                     If an IO operation fails.
+   */
+  @Test
+  public void testWriteToFile() throws IOException {
+    AACMappings mappings = new AACMappings(configFile(TEST_CONFIG));
+    String saved = configFile("");
+    mappings.writeToFile(saved);
+    assertEquals(TEST_CONFIG, Files.readString(Path.of(saved)),
+        "saved file matches the original");
+    assertTrue(!mappings.hasUnsavedChanges(), "nothing left to save");
+
+    mappings.addItem("four", "more");
+    assertTrue(mappings.hasUnsavedChanges(), "new category to save");
+    mappings.writeToFile(saved);
+    assertEquals(TEST_CONFIG + "four more\n", Files.readString(Path.of(saved)),
+        "saved file has the new category");
+  } // testWriteToFile()
+
+  /**
+   * Does saving again copy unchanged categories, notice a file changed by
+   * something else, and keep the file's permissions?
+   *
+   * @throws IOException
+   *                     If an IO operation fails.
+   */
+  @Test
+  public void testWriteAgain() throws IOException {
+    AACMappings mappings = new AACMappings(configFile(TEST_CONFIG));
+    String saved = configFile("");
+    Files.setPosixFilePermissions(Path.of(saved), PosixFilePermissions.fromString("rw-r--r--"));
+    mappings.writeToFile(saved);
+    mappings.addItem("one", "g", "grape");
+    mappings.removeItem("two", "e");
+    mappings.writeToFile(saved);
+    assertEquals(TEST_CONFIG.replace(">c cherry\n", ">c cherry\n>g grape\n")
+        .replace(">e extra ear rings\n", ""), Files.readString(Path.of(saved)),
+        "changed categories written, three copied");
+    assertEquals("rw-r--r--",
+        PosixFilePermissions.toString(Files.getPosixFilePermissions(Path.of(saved))),
+        "permissions kept");
+
+    Files.writeString(Path.of(saved), "one fruit\n");
+    mappings.addItem("one", "h", "honeydew");
+    mappings.writeToFile(saved);
+    assertTrue(Files.readString(Path.of(saved)).contains(">d dress\n"),
+        "rewritten in full after an outside change");
+  } // testWriteAgain()
+
+  /**
+   * Do hasImage and the reverse index track categories and items?
+   *
+   * @throws IOException
+   *                     If an IO operation fails.
+   */
+  @Test
+  public void testHasImage() throws IOException {
+    AACMappings mappings = new AACMappings(configFile(TEST_CONFIG + ">a apple again\n"));
+    assertTrue(mappings.hasImage("one"), "categories are images");
+    assertTrue(mappings.hasImage("e"), "items are images");
+    assertTrue(!mappings.hasImage("z"), "z is nowhere");
+    assertArrayEquals(new String[] { "two" }, mappings.findCategories("d"),
+        "d is in two");
+    assertArrayEquals(new String[] { "one", "three" }, mappings.findCategories("a"),
+        "a is in one and three");
+    assertTrue(mappings.isDuplicate("a"), "a is a duplicate");
+    assertTrue(!mappings.isDuplicate("b"), "b is not a duplicate");
+
+    mappings.removeCategory("one");
+    assertTrue(!mappings.hasImage("one"), "one is gone");
+    assertTrue(!mappings.hasImage("b"), "b went with one");
+    assertArrayEquals(new String[] { "three" }, mappings.findCategories("a"),
+        "a is only in three now");
+    assertArrayEquals(new String[] { "two", "three" }, mappings.getImageLocs(),
+        "two categories left");
+  } // testHasImage()
+
+  /**
+   * Does back() return to the page we came from, keeping the items of the
+   * categories we visit?
+   *
+   * @throws IOException
+   *                     If an IO operation fails.
+   */
+  @Test
+  public void testBack() throws IOException {
+    AACMappings mappings = new AACMappings(configFile(TEST_CONFIG));
+    assertTrue(!mappings.back(), "nowhere to go back to from home");
+    assertEquals("", mappings.select("one"), "selecting one");
+    mappings.addItem("z", "zucchini");
+    assertTrue(mappings.back(), "back from one");
+    assertEquals("", mappings.getCategory(), "back at home");
+    assertEquals("", mappings.select("one"), "selecting one again");
+    assertEquals("zucchini", mappings.select("z"), "one kept the new item");
+    assertEquals(4, mappings.getImageLocs().length, "four fruits now");
+  } // testBack()
+
+  /**
+   * Does getImageLocs(offset, limit) return the right slice of the
+   * current category?
+   *
+   * @throws IOException
+   *                     If an IO operation fails.
+   */
+  @Test
+  public void testImageWindow() throws IOException {
+    AACMappings mappings = new AACMappings(configFile(TEST_CONFIG));
+    assertEquals(3, mappings.getImageCount(), "three categories");
+    assertArrayEquals(new String[] { "two" }, mappings.getImageLocs(1, 1),
+        "second category");
+    assertEquals("", mappings.select("two"), "selecting two");
+    assertEquals(4, mappings.getImageCount(), "four pieces of clothing");
+    assertArrayEquals(new String[] { "d", "e", "f" }, mappings.getImageLocs(0, 3),
+        "first page of clothes");
+    assertArrayEquals(new String[] { "g" }, mappings.getImageLocs(3, 3),
+        "second page of clothes is short");
+    assertArrayEquals(new String[] {}, mappings.getImageLocs(9, 3),
+        "nothing past the end");
+    try {
+      mappings.getImageLocs(-1, 3);
+      fail("negative offset");
+    } catch (IndexOutOfBoundsException e) {
+      // Expected
+    } // try/catch
+  } // testImageWindow()
+
+  /**
+   * Do mappings with compact categories behave like ordinary ones?
+   *
+   * @throws IOException
+   *                     If an IO operation fails.
+   */
+  @Test
+  public void testCompact() throws IOException {
+    AACMappings plain = new AACMappings(configFile(TEST_CONFIG));
+    AACMappings compact = new AACMappings(configFile(TEST_CONFIG), true);
+    for (String category : plain.getImageLocs()) {
+      plain.select(category);
+      compact.select(category);
+      assertArrayEquals(plain.getImageLocs(), compact.getImageLocs(), "items of " + category);
+      for (String item : plain.getImageLocs()) {
+        assertEquals(plain.select(item), compact.select(item), "text of " + item);
+      } // for
+      plain.reset();
+      compact.reset();
+    } // for
+  } // testCompact()
+
   /**
    * Test adding new values to the empty state.
    *
@@ -0,0 +1,154 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of AACServer.
+ *
+ * @author Tiffany Tang
+ */
+public class TestAACServer {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The board every user starts with. */
+  AACBoard base;
+
+  /** The server. */
+  AACServer server;
+
+  /** The client. */
+  HttpClient client;
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Starts a server with a small base board.
+   */
+  @BeforeEach
+  void start() throws Exception {
+    this.base = AACBoard.empty()
+        .withCategory("one", "fruit")
+        .withItem("one", "a", "apple")
+        .withItem("one", "b", "banana")
+        .withCategory("two", "clothes")
+        .withItem("two", "d", "dress");
+    this.server = new AACServer(this.base, 0, 4);
+    this.server.start();
+    this.client = HttpClient.newHttpClient();
+  } // start()
+
+  /**
+   * Stops the server.
+   */
+  @AfterEach
+  void stop() {
+    this.server.stop();
+  } // stop()
+
+  /**
+   * Sends a request and returns the response.
+   */
+  HttpResponse<String> send(String method, String path) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(
+        URI.create("http://localhost:" + this.server.getPort() + path))
+        .method(method, HttpRequest.BodyPublishers.noBody())
+        .build();
+    return this.client.send(request, HttpResponse.BodyHandlers.ofString());
+  } // send(String, String)
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Do users share the base board until they edit, and do their edits
+   * stay their own?
+   */
+  @Test
+  void testOverlays() throws Exception {
+    HttpResponse<String> home = this.send("GET", "/boards/ann");
+    assertEquals(200, home.statusCode());
+    assertTrue(home.body().contains("image\tone\nimage\ttwo\n"), home.body());
+
+    assertTrue(this.send("POST", "/boards/ann/tap?command=one").body()
+        .contains("category\tfruit\n"));
+    HttpResponse<String> spoken = this.send("POST", "/boards/ann/tap?command=b");
+    assertTrue(spoken.body().contains("spoken\tbanana\n"), spoken.body());
+    HttpResponse<String> added = this.send("POST",
+        "/boards/ann/items?image=c&text=cherry%20pie");
+    assertTrue(added.body().contains("image\tc\n"), added.body());
+    assertTrue(this.send("POST", "/boards/ann/tap?command=c").body()
+        .contains("spoken\tcherry pie\n"));
+
+    this.send("POST", "/boards/bob/tap?command=one");
+    assertFalse(this.send("GET", "/boards/bob").body().contains("image\tc\n"));
+    assertEquals(404, this.send("POST", "/boards/bob/tap?command=c").statusCode());
+
+    assertEquals(2, this.server.users());
+    assertEquals(1, this.server.edited());
+    assertSame(this.base, this.server.board("bob"));
+    assertSame(this.base.getCategory("two"), this.server.board("ann").getCategory("two"));
+    assertFalse(this.base.getCategory("one").getItems().hasKey("c"));
+    assertEquals("users\t2\nedited\t1\n", this.send("GET", "/stats").body());
+  } // testOverlays()
+
+  /**
+   * Are bad requests turned away?
+   */
+  @Test
+  void testErrors() throws Exception {
+    assertEquals(405, this.send("GET", "/boards/ann/tap?command=one").statusCode());
+    assertEquals(405, this.send("POST", "/boards/ann").statusCode());
+    assertEquals(400, this.send("POST", "/boards/ann/tap").statusCode());
+    assertEquals(404, this.send("POST", "/boards/ann/dance").statusCode());
+    assertEquals(404, this.send("GET", "/boards/").statusCode());
+  } // testErrors()
+
+  /**
+   * Can many users tap at once?
+   */
+  @Test
+  void testConcurrentUsers() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int u = 0; u < 64; u++) {
+      String user = "/boards/user" + u;
+      boolean edits = (u % 4 == 0);
+      results.add(pool.submit(() -> {
+        this.send("POST", user + "/tap?command=two");
+        if (edits) {
+          this.send("POST", user + "/items?image=e&text=earrings");
+        } // if
+        String body = this.send("POST", user + "/tap?command=d").body();
+        this.send("POST", user + "/tap?command=");
+        return body.contains("spoken\tdress\n")
+            && body.contains("image\te\n") == edits;
+      }));
+    } // for
+    for (Future<Boolean> result : results) {
+      assertTrue(result.get());
+    } // for
+    pool.shutdown();
+    assertEquals(64, this.server.users());
+    assertEquals(16, this.server.edited());
+  } // testConcurrentUsers()
+} // class TestAACServer
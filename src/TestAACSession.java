@@ -0,0 +1,132 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of AACSession.
+ *
+ * @author Tiffany Tang
+ */
+public class TestAACSession {
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Builds a board with a category of five fruits and one of two clothes.
+   */
+  static AACMappings board() {
+    AACMappings mappings = new AACMappings(null);
+    mappings.addCategory("one", "fruit");
+    mappings.addCategory("two", "clothes");
+    String[] fruits = { "a", "b", "c", "d", "e" };
+    for (String fruit : fruits) {
+      mappings.addItem("one", fruit, fruit + "pple");
+    } // for
+    mappings.addItem("two", "f", "fitted shirt");
+    mappings.addItem("two", "g", "gloves");
+    return mappings;
+  } // board()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Do paging, selecting and going back work like the screen did?
+   */
+  @Test
+  void testCommands() throws Exception {
+    List<String> spoken = new ArrayList<>();
+    List<AACSession.State> states = new ArrayList<>();
+    AACSession session = new AACSession(board(), null, 2, false, spoken::add);
+    session.addListener(states::add);
+
+    AACSession.State home = session.getState();
+    assertEquals("", home.getCategory());
+    assertArrayEquals(new String[] { "one", "two" }, home.getImages());
+    assertFalse(home.hasBack());
+    assertFalse(home.hasNext());
+
+    session.perform("one");
+    AACSession.State first = session.getState();
+    assertEquals("fruit", first.getCategory());
+    assertArrayEquals(new String[] { "a", "b" }, first.getImages());
+    assertEquals(5, first.getImageCount());
+    assertTrue(first.hasBack());
+    assertTrue(first.hasNext());
+    assertTrue(first.getTurns() > home.getTurns());
+
+    session.perform(AACSession.NEXT);
+    session.perform(AACSession.NEXT);
+    assertArrayEquals(new String[] { "e" }, session.getState().getImages());
+    assertFalse(session.getState().hasNext());
+    session.perform(AACSession.NEXT);
+    assertEquals(4, session.getState().getStart());
+
+    session.perform("e");
+    assertEquals(List.of("epple"), spoken);
+    assertEquals(3, states.size());
+
+    session.perform(AACSession.BACK);
+    assertEquals(2, session.getState().getStart());
+    session.perform(AACSession.BACK);
+    session.perform(AACSession.BACK);
+    assertEquals("", session.getState().getCategory());
+
+    session.perform("two");
+    session.perform(AACSession.HOME);
+    assertEquals("", session.getState().getCategory());
+    assertEquals(8, states.size());
+  } // testCommands()
+
+  /**
+   * In scroll mode, does back leave the category even when scrolled, and
+   * does scrolling keep the page turn count?
+   */
+  @Test
+  void testScroll() throws Exception {
+    AACSession session = new AACSession(board(), null, 2, true, null);
+    session.select("one");
+    assertFalse(session.getState().hasNext());
+    int turns = session.getState().getTurns();
+    session.showRange(3, 5);
+    assertArrayEquals(new String[] { "d", "e" }, session.getState().getImages());
+    assertEquals(turns, session.getState().getTurns());
+    session.back();
+    assertEquals("", session.getState().getCategory());
+  } // testScroll()
+
+  /**
+   * Can thousands of sessions run quickly without a screen? Each gets a
+   * random walk of taps, and must still agree with its own page.
+   */
+  @Test
+  void testManySessions() throws Exception {
+    Random random = new Random(207);
+    String[] commands = { AACSession.HOME, AACSession.BACK, AACSession.NEXT };
+    int[] spoken = new int[1];
+    long start = System.nanoTime();
+    for (int s = 0; s < 5000; s++) {
+      AACSession session = new AACSession(board(), null, 3, false, (text) -> spoken[0]++);
+      for (int tap = 0; tap < 20; tap++) {
+        AACSession.State state = session.getState();
+        if (state.size() > 0 && random.nextBoolean()) {
+          session.perform(state.getImage(random.nextInt(state.size())));
+        } else {
+          session.perform(commands[random.nextInt(commands.length)]);
+        } // if-else
+        assertEquals(session.getPage().getCategory(), session.getState().getCategory());
+      } // for
+    } // for
+    assertTrue(spoken[0] > 0);
+    assertTrue(System.nanoTime() - start < 10_000_000_000L);
+  } // testManySessions()
+} // class TestAACSession
@@ -0,0 +1,116 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of AACSessionRuntime and AACLoadGenerator.
+ *
+ * @author Tiffany Tang
+ */
+public class TestAACSessionRuntime {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The runtime. */
+  AACSessionRuntime runtime;
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Starts a runtime on a small board.
+   */
+  @BeforeEach
+  void start() {
+    AACBoard base = AACBoard.empty()
+        .withCategory("one", "fruit")
+        .withItem("one", "a", "apple")
+        .withItem("one", "b", "banana")
+        .withCategory("two", "clothes")
+        .withItem("two", "d", "dress");
+    this.runtime = new AACSessionRuntime(base, 9, 4);
+  } // start()
+
+  /**
+   * Stops the runtime.
+   */
+  @AfterEach
+  void stop() {
+    this.runtime.shutdown();
+  } // stop()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Does a session handle its requests in order, one at a time, even
+   * when they come from many threads at once?
+   */
+  @Test
+  void testSingleWriter() throws Exception {
+    List<Integer> order = new ArrayList<>();
+    List<CompletableFuture<Boolean>> added = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      int n = i;
+      added.add(this.runtime.ask("ann", (session) -> order.add(n)));
+    } // for
+    int[] count = new int[1];
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          this.runtime.ask("ann", (session) -> count[0]++);
+        } // for
+      });
+      threads[t].start();
+    } // for
+    for (Thread thread : threads) {
+      thread.join();
+    } // for
+    assertEquals(8000, (int) this.runtime.ask("ann", (session) -> count[0]).get());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, (int) order.get(i));
+    } // for
+  } // testSingleWriter()
+
+  /**
+   * Do taps reach the right session and report what they spoke?
+   */
+  @Test
+  void testTaps() throws Exception {
+    this.runtime.tap("ann", "one");
+    AACSessionRuntime.Reply reply = this.runtime.tap("ann", "b").get();
+    assertEquals("banana", reply.getSpoken());
+    assertEquals("fruit", reply.getState().getCategory());
+    assertEquals("", this.runtime.view("bob").get().getState().getCategory());
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> this.runtime.tap("bob", "b").get());
+    assertTrue(e.getCause() instanceof NoSuchElementException);
+    assertEquals(2, this.runtime.users());
+  } // testTaps()
+
+  /**
+   * Can the load generator drive 10,000 sessions at once?
+   */
+  @Test
+  void testLoad() {
+    AACLoadGenerator.Result result = AACLoadGenerator.run(this.runtime, 10000, 5);
+    assertEquals(50000, result.taps);
+    assertEquals(0, result.failures);
+    assertEquals(10000, this.runtime.users());
+    assertEquals(50000, result.latency.count());
+  } // testLoad()
+} // class TestAACSessionRuntime
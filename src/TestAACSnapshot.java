@@ -0,0 +1,192 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeAll;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.CRC32;
+
+/**
+ * Tests of AACSnapshot.
+ *
+ * @author Tiffany Tang
+ */
+public class TestAACSnapshot {
+  /** A small configuration with a repeated text. */
+  static final String TEST_CONFIG = """
+      one fruit
+      >a apple
+      >b banana
+      two clothes
+      >d dress
+      >e apple
+      """;
+
+  /** The place we store temporary files. */
+  static Path tempDir;
+
+  /**
+   * Set up our temporary directory.
+   */
+  @BeforeAll
+  static void setup() throws IOException {
+    tempDir = Files.createTempDirectory("TestAACSnapshot");
+  } // setup()
+
+  /**
+   * Write the test configuration and a snapshot of it.
+   *
+   * @return the name of the text file.
+   */
+  String textFile() throws IOException {
+    Path text = Files.createTempFile(tempDir, "", ".txt");
+    Files.writeString(text, TEST_CONFIG);
+    return text.toString();
+  } // textFile()
+
+  /**
+   * Can we navigate and select straight from the snapshot?
+   */
+  @Test
+  void testRoundTrip() throws IOException {
+    String text = textFile();
+    AACSnapshot.write(new AACMappings(text), text + AACSnapshot.EXTENSION);
+    AACSnapshot page = AACSnapshot.open(text + AACSnapshot.EXTENSION);
+
+    assertArrayEquals(new String[] { "one", "two" }, page.getImageLocs(),
+        "categories in order");
+    assertEquals("", page.getCategory(), "starts at home");
+    assertTrue(page.hasImage("e"), "e is in a category");
+    assertFalse(page.hasImage("z"), "z is nowhere");
+    assertEquals("", page.select("two"), "selecting two");
+    assertEquals("clothes", page.getCategory(), "in clothes");
+    assertArrayEquals(new String[] { "d", "e" }, page.getImageLocs(),
+        "clothes in order");
+    assertEquals(2, page.getImageCount(), "two pieces of clothing");
+    assertArrayEquals(new String[] { "e" }, page.getImageLocs(1, 5),
+        "window past the end is cut short");
+    assertEquals("apple", page.select("e"), "e shares its text with a");
+    try {
+      page.select("a");
+      fail("a is not a piece of clothing");
+    } catch (Exception e) {
+      // Expected
+    } // try/catch
+
+    AACMappings mappings = page.toMappings();
+    assertArrayEquals(new String[] { "one", "two" }, mappings.getImageLocs(),
+        "converted mappings have the same categories");
+  } // testRoundTrip()
+
+  /**
+   * Does a corrupt snapshot fall back to the text file?
+   */
+  @Test
+  void testCorruptFallsBack() throws IOException {
+    String text = textFile();
+    String snapshot = text + AACSnapshot.EXTENSION;
+    AACSnapshot.loadMappings(text);
+    AACSnapshot.open(snapshot);
+    try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+      file.seek(file.length() / 2);
+      int b = file.read();
+      file.seek(file.length() / 2);
+      file.write(b ^ 0xFF);
+    } // try
+    try {
+      AACSnapshot.open(snapshot);
+      fail("opened a corrupt snapshot");
+    } catch (IOException e) {
+      // Expected
+    } // try/catch
+    AACMappings mappings = AACSnapshot.loadMappings(text);
+    assertArrayEquals(new String[] { "one", "two" }, mappings.getImageLocs(),
+        "fell back to the text file");
+    AACSnapshot.open(snapshot);
+  } // testCorruptFallsBack()
+
+  /**
+   * Does a snapshot whose checksum matches but whose contents are out of
+   * range get turned away, so loading falls back to the text file?
+   */
+  @Test
+  void testBadStructureFallsBack() throws IOException {
+    String text = textFile();
+    Path snapshot = Paths.get(text + AACSnapshot.EXTENSION);
+    AACSnapshot.loadMappings(text);
+    ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+    // Claim far more categories than there are, and fix the checksum.
+    bytes.putInt(12, 1000);
+    CRC32 crc = new CRC32();
+    crc.update(bytes.array(), 0, bytes.limit() - AACSnapshot.TRAILER_BYTES);
+    bytes.putLong(bytes.limit() - AACSnapshot.TRAILER_BYTES, crc.getValue());
+    Files.write(snapshot, bytes.array());
+    try {
+      AACSnapshot.open(snapshot.toString());
+      fail("opened a snapshot with a bad category count");
+    } catch (IOException e) {
+      // Expected
+    } // try/catch
+    AACMappings mappings = AACSnapshot.loadMappings(text);
+    assertArrayEquals(new String[] { "one", "two" }, mappings.getImageLocs(),
+        "fell back to the text file");
+  } // testBadStructureFallsBack()
+
+  /**
+   * Is the board served from the snapshot until it is edited, and does
+   * the edit land on the page being shown?
+   */
+  @Test
+  void testLazyPage() throws IOException {
+    String text = textFile();
+    assertTrue(AACSnapshot.loadPage(text).isBuilt(), "parsed the text the first time");
+    AACLazyMappings page = AACSnapshot.loadPage(text);
+    assertFalse(page.isBuilt(), "served from the snapshot the second time");
+    try (AACJournal journal = new AACJournal(page, text)) {
+      assertEquals(0, journal.size(), "the journal is empty");
+      assertFalse(page.isBuilt(), "an empty journal does not build the mappings");
+    } // try
+    assertEquals("", page.select("two"), "selecting two");
+    assertEquals("dress", page.peek("d"), "peeking at d");
+    assertArrayEquals(new String[] { "e" }, page.getImageLocs(1, 5), "a window");
+    assertFalse(page.isBuilt(), "reading does not build the mappings");
+    page.addItem("f", "fan");
+    assertTrue(page.isBuilt(), "editing builds the mappings");
+    assertEquals("clothes", page.getCategory(), "still in clothes");
+    assertArrayEquals(new String[] { "d", "e", "f" }, page.getImageLocs(), "f added");
+    assertTrue(page.back(), "back goes home");
+    assertArrayEquals(new String[] { "one", "two" }, page.getImageLocs(), "home");
+  } // testLazyPage()
+
+  /**
+   * Is a text file that changed without its time changing noticed, and
+   * is no snapshot written for a missing text file?
+   */
+  @Test
+  void testStaleness() throws IOException {
+    String text = textFile();
+    Path path = Paths.get(text);
+    FileTime time = Files.getLastModifiedTime(path);
+    AACSnapshot.loadPage(text);
+    Files.writeString(path, TEST_CONFIG + "three toys\n");
+    Files.setLastModifiedTime(path, time);
+    AACLazyMappings page = AACSnapshot.loadPage(text);
+    assertTrue(page.isBuilt(), "the snapshot was stale");
+    assertArrayEquals(new String[] { "one", "two", "three" }, page.getImageLocs(),
+        "read the new text");
+
+    String missing = tempDir.resolve("missing.txt").toString();
+    assertEquals(0, AACSnapshot.loadPage(missing).getImageCount(), "an empty board");
+    assertFalse(Files.exists(Paths.get(missing + AACSnapshot.EXTENSION)), "no snapshot");
+  } // testStaleness()
+} // class TestAACSnapshot
@@ -0,0 +1,239 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.grinnell.csc207.util.AssociativeArray;
+import edu.grinnell.csc207.util.CompactStringArray;
+import edu.grinnell.csc207.util.KVPair;
+import edu.grinnell.csc207.util.KeyNotFoundException;
+
+/**
+ * Tests of AssociativeArray.
+ *
+ * @author Tiffany Tang
+ */
+public class TestAssociativeArray {
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Do set and get agree across several expansions?
+   */
+  @Test
+  void testManyKeys() throws Exception {
+    AssociativeArray<String, Integer> arr = new AssociativeArray<>();
+    for (int i = 0; i < 1000; i++) {
+      arr.set("key" + i, i);
+    } // for
+    assertEquals(1000, arr.size(), "size after 1000 sets");
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, arr.get("key" + i), "value of key" + i);
+    } // for
+    arr.set("key7", -7);
+    assertEquals(-7, arr.get("key7"), "replacing a value");
+    assertEquals(1000, arr.size(), "replacing does not change the size");
+    assertFalse(arr.hasKey("key1000"), "never added key1000");
+    assertFalse(arr.hasKey(null), "null is never a key");
+  } // testManyKeys()
+
+  /**
+   * Do the pairs stay in insertion order, even after removals?
+   */
+  @Test
+  void testInsertionOrder() throws Exception {
+    AssociativeArray<String, String> arr = new AssociativeArray<>();
+    arr.set("c", "cherry");
+    arr.set("a", "apple");
+    arr.set("b", "banana");
+    arr.set("d", "durian");
+    arr.remove("a");
+    arr.remove("z");
+    KVPair<String, String>[] pairs = arr.getPair();
+    assertEquals(3, arr.size(), "size after removing a");
+    assertEquals("c", pairs[0].key, "first key");
+    assertEquals("b", pairs[1].key, "second key");
+    assertEquals("d", pairs[2].key, "third key");
+    assertEquals("durian", arr.get("d"), "d survives removing a");
+    try {
+      arr.get("a");
+      fail("get(\"a\") did not throw after removal");
+    } catch (KeyNotFoundException e) {
+      // Expected
+    } // try/catch
+  } // testInsertionOrder()
+
+  /**
+   * Do removals keep every lookup right, even among keys that collide
+   * in the hash table?
+   */
+  @Test
+  void testRemoveCollisions() throws Exception {
+    Random random = new Random(207);
+    AssociativeArray<Integer, Integer> arr = new AssociativeArray<>();
+    CompactStringArray compact = new CompactStringArray();
+    Map<Integer, Integer> expected = new LinkedHashMap<>();
+    for (int round = 0; round < 20000; round++) {
+      // Multiples of 64 share their low bits, so they crowd one probe run.
+      int key = random.nextInt(200) * 64;
+      if (random.nextInt(3) == 0) {
+        arr.remove(key);
+        compact.remove("k" + key);
+        expected.remove(key);
+      } else {
+        arr.set(key, round);
+        compact.set("k" + key, "v" + round);
+        expected.put(key, round);
+      } // if-else
+    } // for
+    assertEquals(expected.size(), arr.size(), "size");
+    assertEquals(expected.size(), compact.size(), "compact size");
+    int n = 0;
+    for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+      assertEquals(entry.getKey(), arr.keyAt(n), "key at " + n);
+      assertEquals(entry.getValue(), arr.get(entry.getKey()), "value of " + entry.getKey());
+      assertEquals("v" + entry.getValue(), compact.get("k" + entry.getKey()), "compact value");
+      n++;
+    } // for
+    for (int key = 0; key < 200 * 64; key += 64) {
+      assertEquals(expected.containsKey(key), arr.hasKey(key), "hasKey " + key);
+      assertEquals(expected.containsKey(key), compact.hasKey("k" + key), "compact hasKey " + key);
+    } // for
+  } // testRemoveCollisions()
+
+  /**
+   * Are clones independent of the original?
+   */
+  @Test
+  void testClone() throws Exception {
+    AssociativeArray<String, String> arr = new AssociativeArray<>();
+    arr.set("a", "apple");
+    AssociativeArray<String, String> copy = arr.clone();
+    copy.set("b", "banana");
+    arr.remove("a");
+    assertTrue(copy.hasKey("a"), "clone keeps a");
+    assertFalse(arr.hasKey("b"), "original does not see b");
+    assertEquals("apple", copy.get("a"), "clone keeps a's value");
+  } // testClone()
+
+  /**
+   * Do the non-throwing lookups behave?
+   */
+  @Test
+  void testDefaults() throws Exception {
+    AssociativeArray<String, String> arr = new AssociativeArray<>();
+    assertEquals("none", arr.getOrDefault("a", "none"), "missing key");
+    assertEquals(null, arr.putIfAbsent("a", "apple"), "first putIfAbsent");
+    assertEquals("apple", arr.putIfAbsent("a", "avocado"), "second putIfAbsent");
+    assertEquals("apple", arr.getOrDefault("a", "none"), "present key");
+    assertEquals("none", arr.getOrDefault(null, "none"), "null key");
+  } // testDefaults()
+
+  /**
+   * Do the bulk operations add every pair once, in order, with later
+   * duplicates winning?
+   */
+  @Test
+  void testAddAll() throws Exception {
+    Map<String, String> map = new LinkedHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put("img/" + i + ".png", "text " + i);
+    } // for
+    List<AssociativeArray<String, String>> arrays = List.of(new AssociativeArray<>(),
+        new CompactStringArray());
+    for (AssociativeArray<String, String> arr : arrays) {
+      arr.set("img/5.png", "old");
+      arr.addAll(map);
+      arr.addAll(List.of(new KVPair<>("img/1000.png", "new"),
+          new KVPair<>("img/7.png", "seven")));
+      assertEquals(1001, arr.size(), "size of " + arr.getClass());
+      assertEquals("img/5.png", arr.keyAt(0), "an existing key keeps its place");
+      assertEquals("text 5", arr.get("img/5.png"), "addAll replaces a value");
+      assertEquals("img/0.png", arr.keyAt(1), "pairs follow the map's order");
+      assertEquals("seven", arr.get("img/7.png"), "later pairs win");
+      assertEquals("new", arr.valueAt(1000), "new pairs go at the end");
+    } // for
+  } // testAddAll()
+
+  /**
+   * Does a builder allocate its pairs once and merge duplicates?
+   */
+  @Test
+  void testBuilder() throws Exception {
+    AssociativeArray.Builder<String, Integer> builder = new AssociativeArray.Builder<>(50000);
+    for (int i = 0; i < 50000; i++) {
+      builder.put("key" + i, i);
+    } // for
+    builder.put("key3", -3);
+    AssociativeArray<String, Integer> arr = builder.build();
+    assertEquals(50000, arr.size(), "duplicates are merged");
+    assertEquals(50000, arr.getPair().length, "the pairs were sized once");
+    assertEquals(-3, arr.get("key3"), "the later duplicate wins");
+    assertEquals("key3", arr.keyAt(3), "and keeps the earlier place");
+    assertThrows(IllegalStateException.class, () -> builder.put("key", 0));
+    assertThrows(IllegalStateException.class, () -> builder.build());
+  } // testBuilder()
+
+  /**
+   * Do capacity hints, the growth policy, shrinking and trimming size
+   * the storage as asked, without losing pairs?
+   */
+  @Test
+  void testCapacity() throws Exception {
+    AssociativeArray<String, Integer> arr = new AssociativeArray<>(10);
+    assertEquals(10, arr.capacity(), "the hint is the capacity");
+    arr.setGrowthPolicy(1.5f, 0.25f);
+    for (int i = 0; i < 11; i++) {
+      arr.set("key" + i, i);
+    } // for
+    assertEquals(15, arr.capacity(), "grows by half");
+    for (int i = 0; i < 1000; i++) {
+      arr.set("key" + i, i);
+    } // for
+    long full = arr.footprint();
+    for (int i = 10; i < 1000; i++) {
+      arr.remove("key" + i);
+    } // for
+    assertTrue(arr.capacity() < 100, "shrinks as pairs are removed");
+    assertTrue(arr.capacity() >= 10, "but not below the hint");
+    arr.trimToSize();
+    assertEquals(10, arr.capacity(), "trimmed to the size");
+    assertTrue(arr.footprint() < full / 10, "footprint falls with the capacity");
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, arr.get("key" + i), "value of key" + i);
+    } // for
+    arr.set("more", 10);
+    assertEquals(11, arr.size(), "grows again after trimming");
+    assertThrows(IllegalArgumentException.class, () -> arr.setGrowthPolicy(1f, 0f));
+    assertThrows(IllegalArgumentException.class, () -> arr.setGrowthPolicy(2f, 0.75f));
+    assertThrows(IllegalArgumentException.class, () -> new AssociativeArray<>(-1));
+
+    AssociativeArray<String, Integer> small = new AssociativeArray<>(10);
+    small.set("a", 1);
+    small.set("b", 2);
+    small.set("c", 3);
+    // 40 (the object) + 56 (10 pairs) + 144 (32 slots) + 3 * 24 (the pairs)
+    assertEquals(312, small.footprint(), "footprint at capacity 10");
+
+    CompactStringArray compact = new CompactStringArray(0);
+    for (int i = 0; i < 1000; i++) {
+      compact.set("img/" + i + ".png", "text " + i);
+    } // for
+    for (int i = 0; i < 990; i++) {
+      compact.remove("img/" + i + ".png");
+    } // for
+    compact.trimToSize();
+    assertEquals(10, compact.capacity(), "compact arrays trim too");
+    assertEquals("text 995", compact.get("img/995.png"), "and keep their pairs");
+    assertEquals("img/999.png", compact.keyAt(9), "in order");
+  } // testCapacity()
+} // class TestAssociativeArray
@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.grinnell.csc207.util.AssociativeArray;
+import edu.grinnell.csc207.util.CompactStringArray;
+
+/**
+ * Tests of CompactStringArray.
+ *
+ * @author Tiffany Tang
+ */
+public class TestCompactStringArray {
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Does a compact array behave exactly like a plain one under a random
+   * mix of sets and removes?
+   */
+  @Test
+  void testMatchesAssociativeArray() throws Exception {
+    AssociativeArray<String, String> plain = new AssociativeArray<>();
+    CompactStringArray compact = new CompactStringArray();
+    Random random = new Random(207);
+    for (int i = 0; i < 5000; i++) {
+      String key = "img/dir" + random.nextInt(5) + "/icon" + random.nextInt(300) + ".png";
+      if (random.nextInt(4) == 0) {
+        plain.remove(key);
+        compact.remove(key);
+      } else {
+        String value = "text " + i;
+        plain.set(key, value);
+        compact.set(key, value);
+      } // if-else
+    } // for
+    assertEquals(plain.size(), compact.size(), "same size");
+    for (int n = 0; n < plain.size(); n++) {
+      assertEquals(plain.keyAt(n), compact.keyAt(n), "same key at " + n);
+      assertEquals(plain.valueAt(n), compact.valueAt(n), "same value at " + n);
+      assertEquals(plain.get(plain.keyAt(n)), compact.get(plain.keyAt(n)), "same lookup");
+    } // for
+    assertEquals(plain.toString(), compact.toString(), "same string");
+    assertEquals(6, compact.prefixCount(), "one prefix per directory, plus the empty one");
+    assertTrue(compact.arenaLength() < 2 * 5000 * 20, "holes were compacted away");
+  } // testMatchesAssociativeArray()
+
+  /**
+   * Are keys without a directory, null values and clones handled?
+   */
+  @Test
+  void testEdgeCases() throws Exception {
+    CompactStringArray compact = new CompactStringArray();
+    compact.set("plain", null);
+    compact.set("a/b", "");
+    assertTrue(compact.hasKey("plain"), "key without a directory");
+    assertNull(compact.get("plain"), "null value");
+    assertEquals("", compact.get("a/b"), "empty value");
+    assertFalse(compact.hasKey("a/"), "prefix alone is not a key");
+    assertFalse(compact.hasKey("b"), "suffix alone is not a key");
+    CompactStringArray copy = compact.clone();
+    copy.set("a/b", "changed");
+    assertEquals("", compact.get("a/b"), "clone does not share storage");
+    assertEquals("changed", copy.get("a/b"), "clone can change");
+  } // testEdgeCases()
+} // class TestCompactStringArray
@@ -0,0 +1,210 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import edu.grinnell.csc207.util.AssociativeArray;
+import edu.grinnell.csc207.util.ConcurrentAssociativeArray;
+import edu.grinnell.csc207.util.KVPair;
+
+/**
+ * Stress tests of ConcurrentAssociativeArray: several writers and many
+ * readers hammer one array at once.
+ *
+ * @author Tiffany Tang
+ */
+public class TestConcurrentAssociativeArray {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The number of writing threads. */
+  static final int WRITERS = 4;
+
+  /** The number of reading threads. */
+  static final int READERS = 8;
+
+  /** The number of keys each writer adds. */
+  static final int KEYS = 400;
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Do readers always see complete states while writers add, change and
+   * remove keys, and do all the writes land?
+   */
+  @Test
+  void testStress() throws Exception {
+    ConcurrentAssociativeArray<String, Integer> arr = new ConcurrentAssociativeArray<>();
+    ExecutorService threads = Executors.newFixedThreadPool(WRITERS + READERS);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    List<Future<?>> writers = new ArrayList<>();
+    List<Future<?>> readers = new ArrayList<>();
+    for (int w = 0; w < WRITERS; w++) {
+      int writer = w;
+      writers.add(threads.submit(() -> {
+        start.await();
+        for (int i = 0; i < KEYS; i++) {
+          String key = writer + ":" + i;
+          arr.set(key, i);
+          arr.set(key, i * 2);
+          arr.putIfAbsent("shared", writer);
+          if (i % 4 == 0) {
+            arr.remove(key);
+          } // if
+        } // for
+        return null;
+      }));
+    } // for
+    for (int r = 0; r < READERS; r++) {
+      readers.add(threads.submit(() -> {
+        start.await();
+        while (writing.get()) {
+          for (int w = 0; w < WRITERS; w++) {
+            for (int i = 0; i < KEYS; i += 37) {
+              Integer value = arr.getOrDefault(w + ":" + i, null);
+              if (value != null && value != i && value != i * 2) {
+                throw new AssertionError("torn value " + value + " for " + w + ":" + i);
+              } // if
+            } // for
+          } // for
+          AssociativeArray<String, Integer> state = arr.snapshot();
+          for (int n = 0; n < state.size(); n++) {
+            if (!state.hasKey(state.keyAt(n))) {
+              throw new AssertionError("snapshot lost " + state.keyAt(n));
+            } // if
+          } // for
+        } // while
+        return null;
+      }));
+    } // for
+    start.countDown();
+    for (Future<?> writer : writers) {
+      writer.get(60, TimeUnit.SECONDS);
+    } // for
+    writing.set(false);
+    for (Future<?> reader : readers) {
+      reader.get(60, TimeUnit.SECONDS);
+    } // for
+    threads.shutdown();
+
+    assertEquals(WRITERS * (KEYS - KEYS / 4) + 1, arr.size(), "every write landed");
+    for (int w = 0; w < WRITERS; w++) {
+      for (int i = 0; i < KEYS; i++) {
+        String key = w + ":" + i;
+        if (i % 4 == 0) {
+          assertTrue(!arr.hasKey(key), key + " was removed");
+        } else {
+          assertEquals(i * 2, arr.get(key), "value of " + key);
+        } // if-else
+      } // for
+    } // for
+  } // testStress()
+
+  /**
+   * Are the changes made by update published all at once?
+   */
+  @Test
+  void testUpdate() throws Exception {
+    ConcurrentAssociativeArray<String, Integer> arr = new ConcurrentAssociativeArray<>();
+    arr.set("a", 1);
+    AssociativeArray<String, Integer> before = arr.snapshot();
+    arr.update((next) -> {
+      next.set("b", 2);
+      next.remove("a");
+    });
+    assertEquals(1, before.size(), "old snapshot is unchanged");
+    assertTrue(before.hasKey("a"), "old snapshot still has a");
+    assertEquals(1, arr.size(), "a replaced by b");
+    assertEquals(2, arr.get("b"), "b added");
+  } // testUpdate()
+
+  /**
+   * Do the pairs keep their insertion order as the segments multiply
+   * and pairs come and go?
+   */
+  @Test
+  void testOrder() throws Exception {
+    ConcurrentAssociativeArray<Integer, String> arr = new ConcurrentAssociativeArray<>();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      arr.set(i, "v" + i);
+      expected.add(i);
+    } // for
+    for (int i = 0; i < 5000; i += 3) {
+      arr.remove(i);
+      expected.remove(Integer.valueOf(i));
+    } // for
+    arr.set(1, "one");
+    arr.set(0, "zero");
+    expected.add(0);
+    assertEquals(expected.size(), arr.size(), "size");
+    for (int n = 0; n < expected.size(); n++) {
+      assertEquals(expected.get(n), arr.keyAt(n), "key at " + n);
+    } // for
+    assertEquals("one", arr.valueAt(0), "a changed value keeps its place");
+    assertEquals("zero", arr.valueAt(expected.size() - 1), "a re-added key goes last");
+    assertTrue(!arr.hasKey(3), "3 was removed");
+    assertEquals("v4", arr.get(4), "value of 4");
+  } // testOrder()
+
+  /**
+   * Do the bulk operations add every pair once, in order, with later
+   * duplicates winning?
+   */
+  @Test
+  void testAddAll() throws Exception {
+    Map<String, String> map = new LinkedHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put("img/" + i + ".png", "text " + i);
+    } // for
+    ConcurrentAssociativeArray<String, String> arr = new ConcurrentAssociativeArray<>();
+    arr.set("img/5.png", "old");
+    arr.addAll(map);
+    arr.addAll(List.of(new KVPair<>("img/1000.png", "new"),
+        new KVPair<>("img/7.png", "seven")));
+    assertEquals(1001, arr.size(), "size");
+    assertEquals("img/5.png", arr.keyAt(0), "an existing key keeps its place");
+    assertEquals("text 5", arr.get("img/5.png"), "addAll replaces a value");
+    assertEquals("img/0.png", arr.keyAt(1), "pairs follow the map's order");
+    assertEquals("seven", arr.get("img/7.png"), "later pairs win");
+    assertEquals("new", arr.valueAt(1000), "new pairs go at the end");
+    arr.set("img/1001.png", "newer");
+    assertEquals("img/1001.png", arr.keyAt(1001), "set after addAll goes at the end");
+  } // testAddAll()
+
+  /**
+   * Is a snapshot read-only, and does it stay the same while the array
+   * changes?
+   */
+  @Test
+  void testSnapshot() throws Exception {
+    ConcurrentAssociativeArray<String, Integer> arr = new ConcurrentAssociativeArray<>();
+    arr.set("a", 1);
+    AssociativeArray<String, Integer> state = arr.snapshot();
+    assertThrows(UnsupportedOperationException.class, () -> state.set("b", 2));
+    assertThrows(UnsupportedOperationException.class, () -> state.remove("a"));
+    state.getPair()[0].val = 5;
+    arr.set("a", 3);
+    assertEquals(1, state.get("a"), "snapshot unchanged by writes");
+    assertEquals(3, arr.get("a"), "array changed");
+    AssociativeArray<String, Integer> copy = state.clone();
+    copy.set("b", 2);
+    assertEquals(2, copy.size(), "a clone of a snapshot can be changed");
+  } // testSnapshot()
+} // class TestConcurrentAssociativeArray
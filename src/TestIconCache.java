@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.swing.Icon;
+
+/**
+ * Tests of IconCache.
+ *
+ * @author Tiffany Tang
+ */
+public class TestIconCache {
+  /** An icon from the standard board (96 by 96). */
+  static final String APPLE = "img/food/icons8-apple-96.png";
+
+  /**
+   * Do we get a placeholder, then the icon scaled to the cell, then the
+   * cached icon, and are the lookups counted (when metrics are on)?
+   */
+  @Test
+  void testDecodeAndScale() throws Exception {
+    long hits = Metrics.counter("icons.hits").getCount();
+    long misses = Metrics.counter("icons.misses").getCount();
+    IconCache cache = new IconCache(1 << 20);
+    CompletableFuture<Icon> ready = new CompletableFuture<>();
+    Icon placeholder = cache.get(APPLE, 48, 60, ready::complete);
+    Icon icon = ready.get(5, TimeUnit.SECONDS);
+    assertNotSame(placeholder, icon, "placeholder replaced");
+    assertEquals(48, icon.getIconWidth(), "scaled to the cell width");
+    assertEquals(48, icon.getIconHeight(), "kept its proportions");
+    assertSame(icon, cache.get(APPLE, 48, 60, (i) -> { }), "cached");
+    assertEquals(48 * 48 * 4, cache.memoryBytes(), "decoded size");
+    int counted = Metrics.ENABLED ? 1 : 0;
+    assertEquals(hits + counted, Metrics.counter("icons.hits").getCount(), "one hit");
+    assertEquals(misses + counted, Metrics.counter("icons.misses").getCount(), "one miss");
+  } // testDecodeAndScale()
+
+  /**
+   * Does the cache stay within its budget?
+   */
+  @Test
+  void testEviction() throws Exception {
+    IconCache cache = new IconCache(96 * 96 * 4);
+    CompletableFuture<Icon> first = new CompletableFuture<>();
+    cache.get(APPLE, 0, 0, first::complete);
+    first.get(5, TimeUnit.SECONDS);
+    CompletableFuture<Icon> second = new CompletableFuture<>();
+    cache.get("img/food/icons8-pizza-96.png", 0, 0, second::complete);
+    second.get(5, TimeUnit.SECONDS);
+    assertTrue(cache.memoryBytes() <= 96 * 96 * 4, "within budget");
+  } // testEviction()
+
+  /**
+   * Is a missing image remembered without using the budget, and tried
+   * again once the failure is old enough?
+   */
+  @Test
+  void testMissing() throws Exception {
+    IconCache cache = new IconCache(1 << 20);
+    CompletableFuture<Icon> ready = new CompletableFuture<>();
+    Icon placeholder = cache.get("img/missing.png", 48, 48, ready::complete);
+    assertSame(placeholder, ready.get(5, TimeUnit.SECONDS), "still a placeholder");
+    assertEquals(0, cache.memoryBytes(), "costs nothing");
+    CompletableFuture<Icon> again = new CompletableFuture<>();
+    cache.get("img/missing.png", 48, 48, again::complete);
+    Thread.sleep(100);
+    assertFalse(again.isDone(), "not tried again straight away");
+
+    IconCache retrying = new IconCache(1 << 20, 0);
+    CompletableFuture<Icon> first = new CompletableFuture<>();
+    retrying.get("img/missing.png", 48, 48, first::complete);
+    first.get(5, TimeUnit.SECONDS);
+    CompletableFuture<Icon> retried = new CompletableFuture<>();
+    retrying.get("img/missing.png", 48, 48, retried::complete);
+    assertSame(retrying.placeholder(48, 48), retried.get(5, TimeUnit.SECONDS), "tried again");
+  } // testMissing()
+} // class TestIconCache
@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.grinnell.csc207.util.LatencyHistogram;
+
+/**
+ * Tests of LatencyHistogram and of the CSV rows Metrics writes from it.
+ *
+ * @author Tiffany Tang
+ */
+public class TestLatencyHistogram {
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Are small values counted exactly?
+   */
+  @Test
+  void testSmallValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.percentile(0.5));
+    assertEquals(0, histogram.max());
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    } // for
+    histogram.record(-5);
+    assertEquals(101, histogram.count());
+    assertEquals(50, histogram.percentile(0.5));
+    assertEquals(99, histogram.percentile(0.99));
+    assertEquals(100, histogram.max());
+    assertEquals(0, histogram.percentile(0.0));
+    histogram.reset();
+    assertEquals(0, histogram.count());
+  } // testSmallValues()
+
+  /**
+   * Are percentiles of values from nanoseconds to minutes within the
+   * promised precision?
+   */
+  @Test
+  void testPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    Random random = new Random(207);
+    long[] values = new long[10000];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (long) Math.pow(10, random.nextDouble() * 11);
+      histogram.record(values[i]);
+    } // for
+    Arrays.sort(values);
+    for (double fraction : new double[] { 0.01, 0.5, 0.9, 0.99, 0.999, 1.0 }) {
+      long exact = values[(int) Math.ceil(fraction * values.length) - 1];
+      long approx = histogram.percentile(fraction);
+      assertTrue(approx >= exact && approx <= exact + exact / 64 + 1,
+          fraction + ": " + approx + " for " + exact);
+    } // for
+    assertEquals(histogram.percentile(1.0), histogram.max());
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, histogram.max());
+  } // testPrecision()
+
+  /**
+   * Does a timer write the expected CSV row (and record nothing when
+   * metrics are disabled)?
+   */
+  @Test
+  void testCsv() throws Exception {
+    Metrics.Timer timer = Metrics.timer("test.csv");
+    for (int i = 0; i < 100; i++) {
+      timer.record(2_000_000);
+    } // for
+    assertEquals(timer, Metrics.timer("test.csv"));
+    StringBuilder csv = new StringBuilder();
+    Metrics.writeCsv(csv, 1234);
+    int count = Metrics.ENABLED ? 100 : 0;
+    assertTrue(csv.toString().contains("1234,test.csv," + count + ","), csv.toString());
+    assertEquals(Metrics.ENABLED ? 2.0 : 0.0, timer.getP50Millis(), 2.0 / 64);
+  } // testCsv()
+} // class TestLatencyHistogram
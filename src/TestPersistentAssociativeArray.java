@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.grinnell.csc207.util.AssociativeArray;
+import edu.grinnell.csc207.util.PersistentAssociativeArray;
+
+/**
+ * Tests of PersistentAssociativeArray.
+ *
+ * @author Tiffany Tang
+ */
+public class TestPersistentAssociativeArray {
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /**
+   * Does every version agree with an AssociativeArray that went through
+   * the same changes, even after later versions are made from it?
+   */
+  @Test
+  void testVersions() throws Exception {
+    AssociativeArray<String, Integer> plain = new AssociativeArray<>();
+    PersistentAssociativeArray<String, Integer> current = PersistentAssociativeArray.empty();
+    List<AssociativeArray<String, Integer>> expected = new ArrayList<>();
+    List<PersistentAssociativeArray<String, Integer>> versions = new ArrayList<>();
+    Random random = new Random(207);
+    for (int i = 0; i < 3000; i++) {
+      String key = "k" + random.nextInt(400);
+      if (random.nextInt(3) == 0) {
+        plain.remove(key);
+        current = current.without(key);
+      } else {
+        plain.set(key, i);
+        current = current.with(key, i);
+      } // if-else
+      if (i % 500 == 0) {
+        expected.add(plain.clone());
+        versions.add(current);
+      } // if
+    } // for
+    expected.add(plain);
+    versions.add(current);
+    for (int v = 0; v < versions.size(); v++) {
+      AssociativeArray<String, Integer> want = expected.get(v);
+      PersistentAssociativeArray<String, Integer> got = versions.get(v);
+      assertEquals(want.size(), got.size(), "size of version " + v);
+      assertEquals(want.toString(), got.toString(), "pairs of version " + v);
+      for (int n = 0; n < want.size(); n++) {
+        assertEquals(want.keyAt(n), got.keyAt(n), "key " + n + " of version " + v);
+        assertEquals(want.get(want.keyAt(n)), got.get(want.keyAt(n)), "lookup in version " + v);
+      } // for
+    } // for
+  } // testVersions()
+
+  /**
+   * Do colliding keys, missing keys and no-op changes behave?
+   */
+  @Test
+  void testEdgeCases() throws Exception {
+    // "Aa" and "BB" have the same hash code.
+    PersistentAssociativeArray<String, String> arr =
+        PersistentAssociativeArray.<String, String>empty().with("Aa", "one").with("BB", "two");
+    assertEquals("one", arr.get("Aa"), "first of a collision");
+    assertEquals("two", arr.get("BB"), "second of a collision");
+    PersistentAssociativeArray<String, String> less = arr.without("Aa");
+    assertFalse(less.hasKey("Aa"), "removed from the collision");
+    assertEquals("two", less.get("BB"), "collision partner survives");
+    assertTrue(arr.hasKey("Aa"), "old version keeps it");
+    assertSame(arr, arr.without("zz"), "removing a missing key changes nothing");
+    assertFalse(arr.hasKey(null), "null is never a key");
+    assertEquals("{Aa:uno, BB:two}", arr.with("Aa", "uno").toString(), "replacing keeps order");
+  } // testEdgeCases()
+} // class TestPersistentAssociativeArray
@@ -0,0 +1,95 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Tests of SpeechCache, using a renderer that turns text into its bytes.
+ *
+ * @author Tiffany Tang
+ */
+public class TestSpeechCache {
+  /** The format WAV files store natively, so spilled clips read back as is. */
+  static final AudioFormat FORMAT = new AudioFormat(8000f, 16, 1, true, false);
+
+  /** How many times the renderer has been called. */
+  AtomicInteger renders = new AtomicInteger();
+
+  /**
+   * Renders text as its own bytes (padded to whole frames), counting calls.
+   */
+  SpeechCache.Sound render(String text) {
+    renders.incrementAndGet();
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    return new SpeechCache.Sound(FORMAT, Arrays.copyOf(bytes, bytes.length + bytes.length % 2));
+  } // render(String)
+
+  /**
+   * Is each phrase rendered once and kept within the memory budget, and
+   * are the lookups counted (when metrics are on)?
+   */
+  @Test
+  void testMemory() throws Exception {
+    long hits = Metrics.counter("speech.memoryHits").getCount();
+    long misses = Metrics.counter("speech.misses").getCount();
+    SpeechCache cache = new SpeechCache("test", this::render, 10, null);
+    SpeechCache.Sound apple = cache.get("apple");
+    assertSame(apple, cache.get("apple"), "second lookup hits memory");
+    assertEquals(1, renders.get(), "rendered once");
+    cache.get("pear");
+    cache.get("plum");
+    assertTrue(cache.memoryBytes() <= 10, "within the byte budget");
+    assertFalse(cache.contains("apple"), "apple was evicted");
+    assertTrue(cache.contains("plum"), "plum is still there");
+    int counted = Metrics.ENABLED ? 1 : 0;
+    assertEquals(hits + counted, Metrics.counter("speech.memoryHits").getCount(), "one hit");
+    assertEquals(misses + 3 * counted, Metrics.counter("speech.misses").getCount(),
+        "three renders");
+  } // testMemory()
+
+  /**
+   * Do evicted phrases come back from the spill directory without being
+   * rendered again?
+   */
+  @Test
+  void testSpill() throws Exception {
+    Path dir = Files.createTempDirectory("TestSpeechCache");
+    SpeechCache cache = new SpeechCache("test", this::render, 8, dir);
+    cache.get("banana");
+    cache.get("cherry");
+    assertEquals(2, renders.get(), "two renders");
+    assertTrue(cache.contains("banana"), "banana is on disk");
+    assertArrayEquals("banana".getBytes(StandardCharsets.UTF_8), cache.get("banana").pcm,
+        "banana read back from disk");
+    assertEquals(2, renders.get(), "still two renders");
+
+    SpeechCache other = new SpeechCache("other", this::render, 8, dir);
+    assertFalse(other.contains("banana"), "keys include the voice");
+  } // testSpill()
+
+  /**
+   * Does prewarming render the phrases in the background?
+   */
+  @Test
+  void testPrewarm() throws Exception {
+    SpeechCache cache = new SpeechCache("test", this::render, 1000, null);
+    cache.prewarm("fig", null, "kiwi");
+    for (int tries = 0; tries < 500 && !cache.contains("kiwi"); tries++) {
+      Thread.sleep(10);
+    } // for
+    assertTrue(cache.contains("fig"), "fig was prewarmed");
+    assertTrue(cache.contains("kiwi"), "kiwi was prewarmed");
+    cache.get("fig");
+    assertEquals(2, renders.get(), "the tap did not render again");
+  } // testPrewarm()
+} // class TestSpeechCache
@@ -0,0 +1,152 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tests of SpeechScheduler, using an engine that records what it says and
+ * blocks until released.
+ *
+ * @author Tiffany Tang
+ */
+public class TestSpeechScheduler {
+  /**
+   * An engine that blocks each utterance until released or cancelled.
+   */
+  static class FakeEngine implements SpeechScheduler.Engine {
+    /** What has been said, in order. */
+    final List<String> said = new ArrayList<>();
+
+    /** Released to let the current utterance finish. */
+    volatile CountDownLatch release = new CountDownLatch(1);
+
+    /** Counted down when an utterance starts. */
+    final CountDownLatch started = new CountDownLatch(1);
+
+    public void speak(String text, BooleanSupplier cancelled) throws Exception {
+      started.countDown();
+      if (cancelled.getAsBoolean()) {
+        return;
+      } // if
+      release.await(5, TimeUnit.SECONDS);
+      synchronized (said) {
+        said.add(text);
+      } // synchronized
+    } // speak(String, BooleanSupplier)
+
+    public void cancel() {
+      release.countDown();
+    } // cancel()
+  } // class FakeEngine
+
+  /**
+   * Are queued utterances spoken in order?
+   */
+  @Test
+  void testQueue() throws Exception {
+    FakeEngine engine = new FakeEngine();
+    engine.release.countDown();
+    SpeechScheduler speech = new SpeechScheduler(engine);
+    speech.speak("I", SpeechScheduler.Policy.QUEUE);
+    speech.speak("want", SpeechScheduler.Policy.QUEUE);
+    CompletableFuture<Boolean> last = speech.speak("pizza", SpeechScheduler.Policy.QUEUE);
+    assertTrue(last.get(5, TimeUnit.SECONDS), "last utterance spoken");
+    assertEquals(List.of("I", "want", "pizza"), engine.said, "spoken in order");
+    speech.shutdown();
+  } // testQueue()
+
+  /**
+   * Do coalesce and interrupt treat waiting utterances correctly?
+   */
+  @Test
+  void testCoalesceAndInterrupt() throws Exception {
+    FakeEngine engine = new FakeEngine();
+    SpeechScheduler speech = new SpeechScheduler(engine);
+    CompletableFuture<Boolean> first = speech.speak("apple", SpeechScheduler.Policy.QUEUE);
+    assertTrue(engine.started.await(5, TimeUnit.SECONDS), "apple started");
+    CompletableFuture<Boolean> waiting = speech.speak("pear", SpeechScheduler.Policy.QUEUE);
+    assertSame(waiting, speech.speak("pear", SpeechScheduler.Policy.COALESCE),
+        "coalesced with the waiting pear");
+    CompletableFuture<Boolean> now = speech.speak("stop", SpeechScheduler.Policy.INTERRUPT);
+    assertFalse(first.get(5, TimeUnit.SECONDS), "apple was interrupted");
+    assertFalse(waiting.get(5, TimeUnit.SECONDS), "pear was dropped");
+    assertTrue(now.get(5, TimeUnit.SECONDS), "stop was spoken");
+    assertFalse(engine.said.contains("pear"), "pear never spoken");
+    speech.shutdown();
+  } // testCoalesceAndInterrupt()
+
+  /**
+   * Is an utterance interrupted just as the engine starts on it (when
+   * cancel has nothing to stop yet) still not spoken?
+   */
+  @Test
+  void testInterruptWhileStarting() throws Exception {
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch go = new CountDownLatch(1);
+    List<String> said = new ArrayList<>();
+    SpeechScheduler speech = new SpeechScheduler(new SpeechScheduler.Engine() {
+      public void speak(String text, BooleanSupplier cancelled) throws Exception {
+        entered.countDown();
+        go.await(5, TimeUnit.SECONDS);
+        if (!cancelled.getAsBoolean()) {
+          synchronized (said) {
+            said.add(text);
+          } // synchronized
+        } // if
+      } // speak(String, BooleanSupplier)
+
+      public void cancel() {
+        // Nothing has started, so there is nothing to stop.
+      } // cancel()
+    });
+    CompletableFuture<Boolean> apple = speech.speak("apple", SpeechScheduler.Policy.QUEUE);
+    assertTrue(entered.await(5, TimeUnit.SECONDS), "the engine has apple");
+    speech.interrupt();
+    go.countDown();
+    assertFalse(apple.get(5, TimeUnit.SECONDS), "apple was interrupted");
+    assertTrue(speech.speak("pear", SpeechScheduler.Policy.QUEUE).get(5, TimeUnit.SECONDS),
+        "pear was spoken");
+    synchronized (said) {
+      assertEquals(List.of("pear"), said, "apple never spoken");
+    } // synchronized
+    speech.shutdown();
+  } // testInterruptWhileStarting()
+
+  /**
+   * Does an utterance the primary engine fails to say go to the backup,
+   * which is made only once?
+   */
+  @Test
+  void testFallback() throws Exception {
+    FakeEngine backup = new FakeEngine();
+    backup.release.countDown();
+    int[] made = { 0 };
+    SpeechScheduler.Engine engine = SpeechScheduler.withFallback(new SpeechScheduler.Engine() {
+      public void speak(String text, BooleanSupplier cancelled) throws Exception {
+        throw new IllegalStateException("no audio line");
+      } // speak(String, BooleanSupplier)
+
+      public void cancel() {
+      } // cancel()
+    }, () -> {
+      made[0]++;
+      return backup;
+    });
+    SpeechScheduler speech = new SpeechScheduler(engine);
+    speech.speak("apple", SpeechScheduler.Policy.QUEUE);
+    assertTrue(speech.speak("pear", SpeechScheduler.Policy.QUEUE).get(5, TimeUnit.SECONDS),
+        "pear spoken");
+    assertEquals(List.of("apple", "pear"), backup.said, "both said by the backup");
+    assertEquals(1, made[0], "backup made once");
+    speech.shutdown();
+  } // testFallback()
+} // class TestSpeechScheduler
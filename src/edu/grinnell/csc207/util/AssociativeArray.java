@@ -2,12 +2,20 @@
 package edu.grinnell.csc207.util;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * A basic implementation of Associative Arrays with keys of type K
  * and values of type V. Associative Arrays store key/value pairs
  * and permit you to look up values by key.
  *
+ * The pairs are kept densely in insertion order in `pairs`, and an
+ * open-addressing hash table (`table`) maps each key to its index in
+ * `pairs`, so lookups take constant time on average while iteration
+ * still follows insertion order.
+ *
  * @param <K> the key type
  * @param <V> the value type
  *
@@ -24,6 +32,35 @@ public class AssociativeArray<K, V> {
    */
   static final int DEFAULT_CAPACITY = 16;
 
+  /**
+   * The marker for an empty slot in the hash table.
+   */
+  static final int EMPTY = 0;
+
+  /**
+   * The index that find returns for a missing key.
+   */
+  static final int NOT_FOUND = -1;
+
+  /**
+   * By default, the capacity doubles each time the array fills up.
+   */
+  static final float DEFAULT_GROWTH_FACTOR = 2.0f;
+
+  /**
+   * By default, the capacity is halved once fewer than a quarter of it
+   * is in use.
+   */
+  static final float DEFAULT_SHRINK_LOAD = 0.25f;
+
+  /**
+   * Rough sizes in bytes of the parts of an object, assuming a 64-bit
+   * JVM with compressed references, for footprint.
+   */
+  static final int OBJECT_HEADER = 12;
+  static final int ARRAY_HEADER = 16;
+  static final int REFERENCE = 4;
+
   // +--------+------------------------------------------------------
   // | Fields |
   // +--------+
@@ -38,6 +75,30 @@ public class AssociativeArray<K, V> {
    */
   KVPair<K, V>[] pairs;
 
+  /**
+   * The open-addressing hash table. Each slot holds one more than the
+   * index of a pair in `pairs`, or EMPTY. Its length is a power of two
+   * and at least twice the length of `pairs`, so probes stay short.
+   */
+  int[] table;
+
+  /**
+   * How much the capacity is multiplied by when the array fills up.
+   */
+  float growthFactor;
+
+  /**
+   * The fraction of the capacity below which removing a pair shrinks
+   * the array, or 0 to never shrink.
+   */
+  float shrinkLoad;
+
+  /**
+   * The capacity asked for when the array was created; removing pairs
+   * never shrinks it below this.
+   */
+  int minCapacity;
+
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -45,12 +106,34 @@ public class AssociativeArray<K, V> {
   /**
    * Create a new, empty associative array.
    */
-  @SuppressWarnings({ "unchecked" })
   public AssociativeArray() {
+    this(DEFAULT_CAPACITY);
+  } // AssociativeArray()
+
+  /**
+   * Create a new, empty associative array with room for the given
+   * number of pairs before it has to grow. Removing pairs never shrinks
+   * it below that capacity.
+   *
+   * @param capacity
+   *                 The number of pairs to make room for.
+   *
+   * @throws IllegalArgumentException
+   *                                  if the capacity is negative.
+   */
+  @SuppressWarnings({ "unchecked" })
+  public AssociativeArray(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Negative capacity " + capacity);
+    } // if
     // Creating new arrays is sometimes a PITN.
-    this.pairs = (KVPair<K, V>[]) new KVPair[DEFAULT_CAPACITY];
+    this.pairs = (KVPair<K, V>[]) new KVPair[capacity];
+    this.table = new int[slotsFor(capacity)];
     this.size = 0;
-  } // AssociativeArray()
+    this.growthFactor = DEFAULT_GROWTH_FACTOR;
+    this.shrinkLoad = DEFAULT_SHRINK_LOAD;
+    this.minCapacity = capacity;
+  } // AssociativeArray(int)
 
   // +------------------+--------------------------------------------
   // | Standard Methods |
@@ -65,6 +148,10 @@ public class AssociativeArray<K, V> {
     AssociativeArray<K, V> copy = new AssociativeArray<>();
     copy.size = this.size;
     copy.pairs = Arrays.copyOf(this.pairs, this.pairs.length);
+    copy.table = Arrays.copyOf(this.table, this.table.length);
+    copy.growthFactor = this.growthFactor;
+    copy.shrinkLoad = this.shrinkLoad;
+    copy.minCapacity = this.minCapacity;
     K key = null;
     V value = null;
     for (int n = 0; n < this.size; n++) {
@@ -81,11 +168,14 @@ public class AssociativeArray<K, V> {
    * @return a string of the form "{Key0:Value0, Key1:Value1, ... KeyN:ValueN}"
    */
   public String toString() {
-    String result = "";
+    StringBuilder result = new StringBuilder("{");
     for (int n = 0; n < this.size; n++) {
-      result += this.pairs[n].toString() + "\n ";
+      if (n > 0) {
+        result.append(", ");
+      } // if
+      result.append(this.keyAt(n)).append(':').append(this.valueAt(n));
     } // for loop
-    return result;
+    return result.append('}').toString();
   } // toString()
 
   // +----------------+----------------------------------------------
@@ -102,17 +192,35 @@ public class AssociativeArray<K, V> {
    *              The value of that key.
    */
   public void set(K keys, V value) {
-    try {
-      this.pairs[find(keys)].val = value;
-    } catch (Exception e) {
-      if (this.size == this.pairs.length) {
-        this.expand();
-      } // if
-      this.pairs[size] = new KVPair<>(keys, value);
-      size++;
-    } // try-catch
+    int index = find(keys);
+    if (index == NOT_FOUND) {
+      this.append(keys, value);
+    } else {
+      this.setValueAt(index, value);
+    } // if-else
   } // set(K,V)
 
+  /**
+   * Set the value associated with key to value, but only if key does
+   * not already appear in the associative array.
+   *
+   * @param key
+   *              The key whose value we are setting.
+   * @param value
+   *              The value to associate with a new key.
+   *
+   * @return the value already associated with key, or null if key
+   *         was not present (and so now maps to value).
+   */
+  public V putIfAbsent(K key, V value) {
+    int index = find(key);
+    if (index == NOT_FOUND) {
+      this.append(key, value);
+      return null;
+    } // if
+    return this.valueAt(index);
+  } // putIfAbsent(K, V)
+
   /**
    * Get the value associated with key.
    *
@@ -125,12 +233,36 @@ public class AssociativeArray<K, V> {
    *                              associative array.
    */
   public V get(K key) throws NullKeyException, KeyNotFoundException {
-    if (key.equals(null)) {
+    if (key == null) {
       throw new NullKeyException("A null key is provided.");
     } // if
-    return this.pairs[find(key)].val;
+    int index = find(key);
+    if (index == NOT_FOUND) {
+      throw new KeyNotFoundException("The key is not found.");
+    } // if
+    return this.valueAt(index);
   } // get(K)
 
+  /**
+   * Get the value associated with key, or a default if key does not
+   * appear. Unlike get, this never throws, so it suits lookups where a
+   * miss is an expected outcome.
+   *
+   * @param key
+   *                     A key; null is never present.
+   * @param defaultValue
+   *                     The value to return when key is missing.
+   *
+   * @return the corresponding value, or defaultValue.
+   */
+  public V getOrDefault(K key, V defaultValue) {
+    int index = find(key);
+    if (index == NOT_FOUND) {
+      return defaultValue;
+    } // if
+    return this.valueAt(index);
+  } // getOrDefault(K, V)
+
   /**
    * Determine if key appears in the associative array. Should
    * return false for the null key, since it cannot appear.
@@ -141,34 +273,24 @@ public class AssociativeArray<K, V> {
    * @return true if the key appears and false otherwise.
    */
   public boolean hasKey(K key) {
-    if (key == null || this.size == 0) {
-      return false;
-    } else {
-      for (KVPair<K, V> x : this.pairs) {
-        if (x != null && x.key.equals(key)) {
-          return true;
-        } // if
-      } // for
-    } // if-else
-    return false;
+    return key != null && find(key) != NOT_FOUND;
   } // hasKey(K)
 
   /**
    * Remove the key/value pair associated with a key. Future calls
    * to get(key) will throw an exception. If the key does not appear
-   * in the associative array, does nothing.
+   * in the associative array, does nothing. The remaining pairs keep
+   * their insertion order.
    *
    * @param key The key to remove.
    */
   public void remove(K key) {
-    try {
-      KVPair<K, V> hold = new KVPair<K, V>(this.pairs[this.size - 1].key,
-          this.pairs[this.size - 1].val);
-      this.pairs[find(key)] = hold;
-      this.pairs[this.size - 1] = null;
-      this.size--;
-    } catch (Exception e) {
-    } // try-catch
+    int index = find(key);
+    if (index == NOT_FOUND) {
+      return;
+    } // if
+    this.removeAt(index);
+    this.shrinkIfSparse();
   } // remove(K)
 
   /**
@@ -180,42 +302,516 @@ public class AssociativeArray<K, V> {
     return this.size;
   } // size()
 
+  /**
+   * Get the key of the pair at the given position in insertion order.
+   *
+   * @param index
+   *              The position, from 0 to size() - 1.
+   *
+   * @return the key at that position.
+   *
+   * @throws IndexOutOfBoundsException
+   *                                   if there is no pair at that position.
+   */
+  public K keyAt(int index) {
+    Objects.checkIndex(index, this.size);
+    return this.pairs[index].key;
+  } // keyAt(int)
+
+  /**
+   * Get the value of the pair at the given position in insertion order.
+   *
+   * @param index
+   *              The position, from 0 to size() - 1.
+   *
+   * @return the value at that position.
+   *
+   * @throws IndexOutOfBoundsException
+   *                                   if there is no pair at that position.
+   */
+  public V valueAt(int index) {
+    Objects.checkIndex(index, this.size);
+    return this.pairs[index].val;
+  } // valueAt(int)
+
+  /**
+   * Set every key of map to its value, as if by set. Room for all of
+   * them is made first, so the pairs and the hash table grow at most
+   * once however many there are.
+   *
+   * @param map
+   *            The keys and values to set.
+   */
+  public void addAll(Map<? extends K, ? extends V> map) {
+    this.reserve(this.size + map.size());
+    for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+      this.set(entry.getKey(), entry.getValue());
+    } // for
+  } // addAll(Map)
+
+  /**
+   * Set the key of every pair to its value, as if by set, so a later
+   * pair with the same key wins. If the pairs are a Collection, room for
+   * all of them is made first.
+   *
+   * @param newPairs
+   *                 The pairs to set.
+   */
+  public void addAll(Iterable<? extends KVPair<? extends K, ? extends V>> newPairs) {
+    if (newPairs instanceof Collection<?>) {
+      this.reserve(this.size + ((Collection<?>) newPairs).size());
+    } // if
+    for (KVPair<? extends K, ? extends V> pair : newPairs) {
+      this.set(pair.key, pair.val);
+    } // for
+  } // addAll(Iterable)
+
+  /**
+   * Determine how many pairs the array can hold before it has to grow.
+   *
+   * @return the capacity.
+   */
+  public int capacity() {
+    return this.pairs.length;
+  } // capacity()
+
+  /**
+   * Set how the array grows and shrinks. When it fills up, its capacity
+   * is multiplied by growthFactor; when a removal leaves fewer than
+   * shrinkLoad of the capacity in use, the capacity drops to twice the
+   * size (but never below the capacity it was created with). A smaller
+   * growth factor wastes less memory at the cost of more copying.
+   *
+   * @param growthFactor
+   *                     How much to grow by; more than 1.
+   * @param shrinkLoad
+   *                     The fraction of the capacity in use below which
+   *                     to shrink, from 0 (never) to 0.5.
+   *
+   * @throws IllegalArgumentException
+   *                                  if either is out of range.
+   */
+  public void setGrowthPolicy(float growthFactor, float shrinkLoad) {
+    if (!(growthFactor > 1.0f)) {
+      throw new IllegalArgumentException("Growth factor must be more than 1");
+    } // if
+    if (!(shrinkLoad >= 0.0f && shrinkLoad <= 0.5f)) {
+      throw new IllegalArgumentException("Shrink load must be from 0 to 0.5");
+    } // if
+    this.growthFactor = growthFactor;
+    this.shrinkLoad = shrinkLoad;
+  } // setGrowthPolicy(float, float)
+
+  /**
+   * Shrink the capacity to the number of pairs, releasing the unused
+   * part of the underlying array and hash table. Useful once an array
+   * is fully built and will mostly be read.
+   */
+  public void trimToSize() {
+    if (this.capacity() > this.size) {
+      this.resize(this.size);
+    } // if
+  } // trimToSize()
+
+  /**
+   * Estimate how many bytes this array uses: the array itself, its pairs
+   * and its hash table, including the unused capacity. The keys and
+   * values are not counted, since they are usually shared with others.
+   *
+   * @return the estimated number of bytes.
+   */
+  public long footprint() {
+    return align(OBJECT_HEADER + 2 * Integer.BYTES + 2 * Float.BYTES + 2 * REFERENCE)
+        + arrayBytes(this.pairs.length, REFERENCE)
+        + arrayBytes(this.table.length, Integer.BYTES)
+        + (long) this.size * align(OBJECT_HEADER + 2 * REFERENCE);
+  } // footprint()
+
+  // +---------+-----------------------------------------------------
+  // | Builder |
+  // +---------+
+
+  /**
+   * Builds an associative array from many pairs at once. Given the
+   * expected number of pairs, the builder allocates the pairs and the
+   * hash table once, at their final size, and duplicate keys are merged
+   * as they arrive (a later pair wins, keeping the earlier position).
+   * Nothing else sees the array until build hands it over, so it can be
+   * published in one step, e.g. with ConcurrentAssociativeArray.addAll.
+   *
+   * @param <K> the key type
+   * @param <V> the value type
+   */
+  public static class Builder<K, V> {
+    /**
+     * The array being built, or null once it has been built.
+     */
+    private AssociativeArray<K, V> result;
+
+    /**
+     * Create a builder that expects no particular number of pairs.
+     */
+    public Builder() {
+      this(DEFAULT_CAPACITY);
+    } // Builder()
+
+    /**
+     * Create a builder with room for the given number of pairs.
+     *
+     * @param expectedSize
+     *                     The number of distinct keys expected.
+     */
+    public Builder(int expectedSize) {
+      this.result = new AssociativeArray<>(expectedSize);
+    } // Builder(int)
+
+    /**
+     * Add a pair, replacing the value of an earlier pair with the same key.
+     *
+     * @param key
+     *              The key.
+     * @param value
+     *              Its value.
+     *
+     * @return this builder.
+     *
+     * @throws IllegalStateException
+     *                               if the array has already been built.
+     */
+    public Builder<K, V> put(K key, V value) {
+      this.building().set(key, value);
+      return this;
+    } // put(K, V)
+
+    /**
+     * Add every pair of a map.
+     *
+     * @param map
+     *            The pairs to add.
+     *
+     * @return this builder.
+     *
+     * @throws IllegalStateException
+     *                               if the array has already been built.
+     */
+    public Builder<K, V> putAll(Map<? extends K, ? extends V> map) {
+      this.building().addAll(map);
+      return this;
+    } // putAll(Map)
+
+    /**
+     * Hand over the array. The builder cannot be used afterwards.
+     *
+     * @return the array of every pair added.
+     *
+     * @throws IllegalStateException
+     *                               if the array has already been built.
+     */
+    public AssociativeArray<K, V> build() {
+      AssociativeArray<K, V> built = this.building();
+      this.result = null;
+      return built;
+    } // build()
+
+    /**
+     * Get the array being built.
+     *
+     * @return the array.
+     *
+     * @throws IllegalStateException
+     *                               if it has already been built.
+     */
+    private AssociativeArray<K, V> building() {
+      if (this.result == null) {
+        throw new IllegalStateException("Already built");
+      } // if
+      return this.result;
+    } // building()
+  } // class Builder
+
   // +-----------------+---------------------------------------------
   // | Private Methods |
   // +-----------------+
 
   /**
-   * Expand the underlying array.
+   * Expand the underlying array (and the hash table along with it).
    */
   void expand() {
-    this.pairs = java.util.Arrays.copyOf(this.pairs, this.pairs.length * 2);
+    int capacity = this.capacity();
+    long grown = (long) Math.ceil(capacity * (double) this.growthFactor);
+    this.resize((int) Math.min(Math.max(grown, capacity + 1L), Integer.MAX_VALUE - 8));
   } // expand()
 
   /**
-   * Find the index of the first entry in `pairs` that contains key.
-   * If no such entry is found, throws an exception.
+   * Make room for at least the given number of pairs, growing the
+   * underlying array and the hash table straight to that size.
+   *
+   * @param count
+   *              The number of pairs to make room for.
+   */
+  void reserve(int count) {
+    if (count > this.capacity()) {
+      this.resize(count);
+    } // if
+  } // reserve(int)
+
+  /**
+   * Shrink the array after a removal if too little of it is in use.
+   */
+  void shrinkIfSparse() {
+    int capacity = this.capacity();
+    if (this.size < capacity * this.shrinkLoad && capacity > this.minCapacity) {
+      this.resize(Math.max(this.minCapacity, this.size * 2));
+    } // if
+  } // shrinkIfSparse()
+
+  /**
+   * Change the capacity of the underlying array, and size the hash
+   * table to match.
+   *
+   * @param capacity
+   *                 The new capacity; at least size.
+   */
+  void resize(int capacity) {
+    this.pairs = java.util.Arrays.copyOf(this.pairs, capacity);
+    this.rehash(slotsFor(capacity));
+  } // resize(int)
+
+  /**
+   * Compute how many hash table slots to use for the given number of
+   * pairs: a power of two that is at least twice as many, and at least
+   * two, so there is always an empty slot to end a probe.
+   *
+   * @param count
+   *              The number of pairs.
+   *
+   * @return the number of slots.
+   */
+  static int slotsFor(int count) {
+    int slots = 2;
+    while (slots < count * 2L) {
+      slots <<= 1;
+    } // while
+    return slots;
+  } // slotsFor(int)
+
+  /**
+   * Replace the value of the pair at the given index of `pairs`.
+   *
+   * @param index
+   *              The index of an existing pair.
+   * @param value
+   *              Its new value.
+   */
+  void setValueAt(int index, V value) {
+    this.pairs[index].val = value;
+  } // setValueAt(int, V)
+
+  /**
+   * Remove the pair at the given index of `pairs`, shifting the later
+   * pairs down so they keep their order.
+   *
+   * @param index
+   *              The index of an existing pair.
+   */
+  void removeAt(int index) {
+    this.unindex(index);
+    System.arraycopy(this.pairs, index + 1, this.pairs, index,
+        this.size - index - 1);
+    this.pairs[--this.size] = null;
+  } // removeAt(int)
+
+  /**
+   * Update the hash table for the removal of the pair at the given index,
+   * before the later pairs shift down: delete its slot, and point the
+   * slots of the later pairs one index lower. Only those slots are
+   * touched, so this costs no more than the shift itself.
+   *
+   * @param index
+   *              The index of the pair being removed.
+   */
+  void unindex(int index) {
+    int mask = this.table.length - 1;
+    // Backward-shift deletion: move later members of the probe run into
+    // the hole, so no lookup ever stops early at it.
+    int hole = this.slotOf(index);
+    int next = (hole + 1) & mask;
+    while (this.table[next] != EMPTY) {
+      int home = this.hashAt(this.table[next] - 1) & mask;
+      if (((next - home) & mask) >= ((next - hole) & mask)) {
+        this.table[hole] = this.table[next];
+        hole = next;
+      } // if
+      next = (next + 1) & mask;
+    } // while
+    this.table[hole] = EMPTY;
+    for (int n = index + 1; n < this.size; n++) {
+      // The slot held n + 1; it now holds the new index, n - 1, plus one.
+      this.table[this.slotOf(n)] = n;
+    } // for
+  } // unindex(int)
+
+  /**
+   * Find the hash table slot that refers to the pair at the given index.
+   *
+   * @param index
+   *              The index of an existing pair.
+   *
+   * @return the slot.
+   */
+  int slotOf(int index) {
+    int mask = this.table.length - 1;
+    int slot = this.hashAt(index) & mask;
+    while (this.table[slot] != index + 1) {
+      slot = (slot + 1) & mask;
+    } // while
+    return slot;
+  } // slotOf(int)
+
+  /**
+   * Compute the spread hash of the key of the pair at the given index.
+   *
+   * @param index
+   *              The index of an existing pair.
+   *
+   * @return the spread hash.
+   */
+  int hashAt(int index) {
+    return hash(this.pairs[index].key);
+  } // hashAt(int)
+
+  /**
+   * Add a pair for a key that is known not to be present, expanding
+   * if necessary.
+   *
+   * @param key
+   *              The new key.
+   * @param value
+   *              Its value.
+   */
+  void append(K key, V value) {
+    if (this.size == this.pairs.length) {
+      this.expand();
+    } // if
+    this.pairs[this.size] = new KVPair<>(key, value);
+    this.insertSlot(key, this.size);
+    this.size++;
+  } // append(K, V)
+
+  /**
+   * Rebuild the hash table with the given number of slots from the
+   * first `size` entries of `pairs`.
+   *
+   * @param slots
+   *              The new table length; must be a power of two.
+   */
+  void rehash(int slots) {
+    this.table = new int[slots];
+    for (int n = 0; n < this.size; n++) {
+      this.insertSlot(this.pairs[n].key, n);
+    } // for
+  } // rehash(int)
+
+  /**
+   * Record in the hash table that key lives at the given index of
+   * `pairs`. Assumes the key is not already in the table.
+   *
+   * @param key
+   *              The key being stored.
+   * @param index
+   *              Its index in `pairs`.
+   */
+  void insertSlot(K key, int index) {
+    this.insertHash(hash(key), index);
+  } // insertSlot(K, int)
+
+  /**
+   * Record in the hash table that the key with the given (spread) hash
+   * lives at the given index. Assumes the key is not already in the table.
+   *
+   * @param h
+   *              The spread hash of the key.
+   * @param index
+   *              Its index in `pairs`.
+   */
+  void insertHash(int h, int index) {
+    int mask = this.table.length - 1;
+    int slot = h & mask;
+    while (this.table[slot] != EMPTY) {
+      slot = (slot + 1) & mask;
+    } // while
+    this.table[slot] = index + 1;
+  } // insertHash(int, int)
+
+  /**
+   * Estimate the bytes used by an array.
+   *
+   * @param length
+   *               The length of the array.
+   * @param width
+   *               The bytes in each element.
+   *
+   * @return the estimated number of bytes.
+   */
+  static long arrayBytes(long length, int width) {
+    return align(ARRAY_HEADER + length * width);
+  } // arrayBytes(long, int)
+
+  /**
+   * Round a number of bytes up to a multiple of eight, as the JVM does
+   * for objects.
+   *
+   * @param bytes
+   *              The number of bytes.
+   *
+   * @return the rounded number.
+   */
+  static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  } // align(long)
+
+  /**
+   * Compute the hash of a key, spreading the high bits downward so
+   * that power-of-two tables use all of them.
+   *
+   * @param key
+   *            The key to hash; may be null.
+   *
+   * @return the spread hash code.
+   */
+  static int hash(Object key) {
+    if (key == null) {
+      return 0;
+    } // if
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  } // hash(Object)
+
+  /**
+   * Find the index of the entry in `pairs` that contains key.
    *
    * @param keyVal
    *               The key of the entry.
    *
    * @return
-   *         The index of the key, if found.
-   *
-   * @throws KeyNotFoundException
-   *                              If the key does not appear in the associative
-   *                              array.
+   *         The index of the key, if found, and NOT_FOUND otherwise.
    */
-  int find(K keyVal) throws KeyNotFoundException {
-    for (int n = 0; n < this.size; n++) {
-      if (this.pairs[n] != null && this.pairs[n].key.equals(keyVal)) {
+  int find(K keyVal) {
+    int mask = this.table.length - 1;
+    int slot = hash(keyVal) & mask;
+    while (this.table[slot] != EMPTY) {
+      int n = this.table[slot] - 1;
+      if (Objects.equals(this.pairs[n].key, keyVal)) {
         return n;
       } // if
-    } // for loop
-    throw new KeyNotFoundException("The key is not found.");
+      slot = (slot + 1) & mask;
+    } // while
+    return NOT_FOUND;
   } // find(K)
 
   /**
-   * Return the pairs array for the associative array.
+   * Return the pairs array for the associative array. The first
+   * size() entries hold the pairs in insertion order; the rest are null.
    *
    * @return the pairs as an KVPair array
    */
@@ -0,0 +1,549 @@
+package edu.grinnell.csc207.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An associative array from strings to strings that keeps its keys and
+ * values as characters in one shared arena instead of as KVPair and
+ * String objects. Each pair is a handful of ints (the key's hash, where
+ * its characters and its value's characters start, and how long they
+ * are), and the directory part of each key (everything up to the last
+ * '/' or '\') is stored once in a prefix dictionary, so the long shared
+ * prefixes of image paths cost one entry per directory rather than one
+ * per image. Strings are only built when a key or value is asked for.
+ *
+ * Lookups compare the key being looked for against the arena directly,
+ * so they do not build Strings either. Replaced values and removed pairs
+ * leave holes in the arena, which is compacted once the holes make up
+ * half of it.
+ *
+ * @author Tiffany Tang
+ */
+public class CompactStringArray extends AssociativeArray<String, String> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of ints that describe each pair in `entries`.
+   */
+  static final int STRIDE = 6;
+
+  /**
+   * The offsets of the fields of a pair within its stride.
+   */
+  static final int HASH = 0;
+  static final int PREFIX = 1;
+  static final int KEY_START = 2;
+  static final int KEY_LENGTH = 3;
+  static final int VALUE_START = 4;
+  static final int VALUE_LENGTH = 5;
+
+  /**
+   * The length recorded for a null key or value.
+   */
+  static final int NULL = -1;
+
+  /**
+   * The initial size of the character arena.
+   */
+  static final int DEFAULT_ARENA = 256;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The pairs, STRIDE ints each, in insertion order.
+   */
+  int[] entries;
+
+  /**
+   * The characters of the key suffixes and the values.
+   */
+  char[] chars;
+
+  /**
+   * The number of characters of `chars` in use, and how many of those
+   * belong to pairs that were replaced or removed.
+   */
+  int used;
+  int garbage;
+
+  /**
+   * The distinct key prefixes; prefix 0 is the empty string.
+   */
+  String[] prefixes;
+  int prefixCount;
+
+  /**
+   * The number of each prefix in `prefixes`.
+   */
+  AssociativeArray<String, Integer> prefixIds;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty compact array.
+   */
+  public CompactStringArray() {
+    this(DEFAULT_CAPACITY);
+  } // CompactStringArray()
+
+  /**
+   * Create a new, empty compact array with room for the given number of
+   * pairs before it has to grow.
+   *
+   * @param capacity
+   *                 The number of pairs to make room for.
+   *
+   * @throws IllegalArgumentException
+   *                                  if the capacity is negative.
+   */
+  public CompactStringArray(int capacity) {
+    super(capacity);
+    this.pairs = null;
+    this.entries = new int[capacity * STRIDE];
+    this.chars = new char[DEFAULT_ARENA];
+    this.used = 0;
+    this.garbage = 0;
+    this.prefixes = new String[] { "" };
+    this.prefixCount = 1;
+    this.prefixIds = new AssociativeArray<>();
+    this.prefixIds.set("", 0);
+  } // CompactStringArray(int)
+
+  // +------------------+--------------------------------------------
+  // | Standard Methods |
+  // +------------------+
+
+  /**
+   * Create a copy of this array. The copy shares nothing with the original.
+   *
+   * @return a new copy of the array
+   */
+  public CompactStringArray clone() {
+    CompactStringArray copy = new CompactStringArray();
+    copy.size = this.size;
+    copy.table = Arrays.copyOf(this.table, this.table.length);
+    copy.entries = Arrays.copyOf(this.entries, this.entries.length);
+    copy.chars = Arrays.copyOf(this.chars, this.chars.length);
+    copy.used = this.used;
+    copy.garbage = this.garbage;
+    copy.prefixes = Arrays.copyOf(this.prefixes, this.prefixes.length);
+    copy.prefixCount = this.prefixCount;
+    copy.prefixIds = this.prefixIds.clone();
+    copy.growthFactor = this.growthFactor;
+    copy.shrinkLoad = this.shrinkLoad;
+    copy.minCapacity = this.minCapacity;
+    return copy;
+  } // clone()
+
+  // +----------------+----------------------------------------------
+  // | Public Methods |
+  // +----------------+
+
+  /**
+   * Get the key of the pair at the given position in insertion order.
+   * The String is built from the arena on each call.
+   *
+   * @param index
+   *              The position, from 0 to size() - 1.
+   *
+   * @return the key at that position.
+   *
+   * @throws IndexOutOfBoundsException
+   *                                   if there is no pair at that position.
+   */
+  public String keyAt(int index) {
+    Objects.checkIndex(index, this.size);
+    int base = index * STRIDE;
+    int length = this.entries[base + KEY_LENGTH];
+    if (length == NULL) {
+      return null;
+    } // if
+    String prefix = this.prefixes[this.entries[base + PREFIX]];
+    int start = this.entries[base + KEY_START];
+    if (prefix.isEmpty()) {
+      return new String(this.chars, start, length);
+    } // if
+    return new StringBuilder(prefix.length() + length).append(prefix)
+        .append(this.chars, start, length).toString();
+  } // keyAt(int)
+
+  /**
+   * Get the value of the pair at the given position in insertion order.
+   * The String is built from the arena on each call.
+   *
+   * @param index
+   *              The position, from 0 to size() - 1.
+   *
+   * @return the value at that position.
+   *
+   * @throws IndexOutOfBoundsException
+   *                                   if there is no pair at that position.
+   */
+  public String valueAt(int index) {
+    Objects.checkIndex(index, this.size);
+    int base = index * STRIDE;
+    int length = this.entries[base + VALUE_LENGTH];
+    if (length == NULL) {
+      return null;
+    } // if
+    return new String(this.chars, this.entries[base + VALUE_START], length);
+  } // valueAt(int)
+
+  /**
+   * Return the pairs as a freshly built KVPair array. Changing the
+   * pairs does not change this array.
+   *
+   * @return the pairs in insertion order
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public KVPair<String, String>[] getPair() {
+    KVPair<String, String>[] result =
+        (KVPair<String, String>[]) new KVPair[this.size];
+    for (int n = 0; n < this.size; n++) {
+      result[n] = new KVPair<>(this.keyAt(n), this.valueAt(n));
+    } // for
+    return result;
+  } // getPair()
+
+  /**
+   * Determine how many characters the arena holds, including holes left
+   * by replaced or removed pairs.
+   *
+   * @return the number of characters in use
+   */
+  public int arenaLength() {
+    return this.used;
+  } // arenaLength()
+
+  /**
+   * Determine how many distinct key prefixes have been stored.
+   *
+   * @return the number of prefixes, counting the empty one
+   */
+  public int prefixCount() {
+    return this.prefixCount;
+  } // prefixCount()
+
+  /**
+   * Determine how many pairs the array can hold before it has to grow.
+   *
+   * @return the capacity.
+   */
+  public int capacity() {
+    return this.entries.length / STRIDE;
+  } // capacity()
+
+  /**
+   * Shrink the pair storage and the hash table to the number of pairs,
+   * and the arena and the prefix table to what is in use.
+   */
+  public void trimToSize() {
+    super.trimToSize();
+    this.compact(this.used - this.garbage);
+    this.prefixes = Arrays.copyOf(this.prefixes, this.prefixCount);
+    this.prefixIds.trimToSize();
+  } // trimToSize()
+
+  /**
+   * Estimate how many bytes this array uses, including the unused
+   * capacity. Unlike AssociativeArray, this counts the keys and values,
+   * since the arena holds them.
+   *
+   * @return the estimated number of bytes.
+   */
+  public long footprint() {
+    long bytes = align(OBJECT_HEADER + 5 * Integer.BYTES + 2 * Float.BYTES + 6 * REFERENCE)
+        + arrayBytes(this.entries.length, Integer.BYTES)
+        + arrayBytes(this.table.length, Integer.BYTES)
+        + arrayBytes(this.chars.length, Character.BYTES)
+        + arrayBytes(this.prefixes.length, REFERENCE)
+        + this.prefixIds.footprint();
+    for (int n = 0; n < this.prefixCount; n++) {
+      // A (Latin-1) String and its bytes, shared by prefixes and prefixIds.
+      bytes += align(OBJECT_HEADER + Integer.BYTES + 2 + REFERENCE)
+          + arrayBytes(this.prefixes[n].length(), Byte.BYTES);
+    } // for
+    return bytes;
+  } // footprint()
+
+  // +-----------------+---------------------------------------------
+  // | Private Methods |
+  // +-----------------+
+
+  /**
+   * Change the capacity of the pair storage, and size the hash table to
+   * match.
+   *
+   * @param capacity
+   *                 The new capacity; at least size.
+   */
+  void resize(int capacity) {
+    this.entries = Arrays.copyOf(this.entries, capacity * STRIDE);
+    this.rehash(slotsFor(capacity));
+  } // resize(int)
+
+  /**
+   * Add a pair for a key that is known not to be present, expanding
+   * if necessary.
+   *
+   * @param key
+   *              The new key.
+   * @param value
+   *              Its value.
+   */
+  void append(String key, String value) {
+    if ((this.size + 1) * STRIDE > this.entries.length) {
+      this.expand();
+    } // if
+    int base = this.size * STRIDE;
+    int h = hash(key);
+    this.entries[base + HASH] = h;
+    if (key == null) {
+      this.entries[base + PREFIX] = 0;
+      this.entries[base + KEY_START] = 0;
+      this.entries[base + KEY_LENGTH] = NULL;
+    } else {
+      int split = Math.max(key.lastIndexOf('/'), key.lastIndexOf('\\')) + 1;
+      this.entries[base + PREFIX] = this.prefix(key.substring(0, split));
+      this.entries[base + KEY_START] = this.store(key, split);
+      this.entries[base + KEY_LENGTH] = key.length() - split;
+    } // if-else
+    this.storeValue(base, value);
+    this.insertHash(h, this.size);
+    this.size++;
+  } // append(String, String)
+
+  /**
+   * Replace the value of the pair at the given index.
+   *
+   * @param index
+   *              The index of an existing pair.
+   * @param value
+   *              Its new value.
+   */
+  void setValueAt(int index, String value) {
+    int base = index * STRIDE;
+    this.garbage += Math.max(this.entries[base + VALUE_LENGTH], 0);
+    this.storeValue(base, value);
+    this.compactIfSparse();
+  } // setValueAt(int, String)
+
+  /**
+   * Remove the pair at the given index, shifting the later pairs down so
+   * they keep their order.
+   *
+   * @param index
+   *              The index of an existing pair.
+   */
+  void removeAt(int index) {
+    int base = index * STRIDE;
+    this.garbage += Math.max(this.entries[base + KEY_LENGTH], 0)
+        + Math.max(this.entries[base + VALUE_LENGTH], 0);
+    this.unindex(index);
+    System.arraycopy(this.entries, base + STRIDE, this.entries, base,
+        (this.size - index - 1) * STRIDE);
+    this.size--;
+    this.compactIfSparse();
+  } // removeAt(int)
+
+  /**
+   * Get the hash of the key of the pair at the given index, which the
+   * pair records.
+   *
+   * @param index
+   *              The index of an existing pair.
+   *
+   * @return the spread hash.
+   */
+  int hashAt(int index) {
+    return this.entries[index * STRIDE + HASH];
+  } // hashAt(int)
+
+  /**
+   * Rebuild the hash table with the given number of slots from the
+   * hashes stored with the pairs.
+   *
+   * @param slots
+   *              The new table length; must be a power of two.
+   */
+  void rehash(int slots) {
+    this.table = new int[slots];
+    for (int n = 0; n < this.size; n++) {
+      this.insertHash(this.entries[n * STRIDE + HASH], n);
+    } // for
+  } // rehash(int)
+
+  /**
+   * Find the index of the pair whose key is keyVal, comparing against
+   * the arena without building Strings.
+   *
+   * @param keyVal
+   *               The key of the pair.
+   *
+   * @return
+   *         The index of the key, if found, and NOT_FOUND otherwise.
+   */
+  int find(String keyVal) {
+    int h = hash(keyVal);
+    int mask = this.table.length - 1;
+    int slot = h & mask;
+    while (this.table[slot] != EMPTY) {
+      int n = this.table[slot] - 1;
+      if (this.entries[n * STRIDE + HASH] == h && this.keyEquals(n, keyVal)) {
+        return n;
+      } // if
+      slot = (slot + 1) & mask;
+    } // while
+    return NOT_FOUND;
+  } // find(String)
+
+  /**
+   * Determine if the key of the pair at the given index is key.
+   *
+   * @param index
+   *              The index of the pair.
+   * @param key
+   *              The key to compare with; may be null.
+   *
+   * @return true if they are equal.
+   */
+  boolean keyEquals(int index, String key) {
+    int base = index * STRIDE;
+    int length = this.entries[base + KEY_LENGTH];
+    if (key == null || length == NULL) {
+      return key == null && length == NULL;
+    } // if
+    String prefix = this.prefixes[this.entries[base + PREFIX]];
+    if (key.length() != prefix.length() + length || !key.startsWith(prefix)) {
+      return false;
+    } // if
+    int start = this.entries[base + KEY_START];
+    for (int i = 0; i < length; i++) {
+      if (this.chars[start + i] != key.charAt(prefix.length() + i)) {
+        return false;
+      } // if
+    } // for
+    return true;
+  } // keyEquals(int, String)
+
+  /**
+   * Find the number of a key prefix, adding it to the dictionary if it
+   * is new.
+   *
+   * @param prefix
+   *               The prefix.
+   *
+   * @return its number in `prefixes`.
+   */
+  int prefix(String prefix) {
+    Integer id = this.prefixIds.getOrDefault(prefix, null);
+    if (id != null) {
+      return id;
+    } // if
+    if (this.prefixCount == this.prefixes.length) {
+      this.prefixes = Arrays.copyOf(this.prefixes, this.prefixes.length * 2);
+    } // if
+    this.prefixes[this.prefixCount] = prefix;
+    this.prefixIds.set(prefix, this.prefixCount);
+    return this.prefixCount++;
+  } // prefix(String)
+
+  /**
+   * Store a value in the arena and record it in the pair at base.
+   *
+   * @param base
+   *              The index of the pair's first int in `entries`.
+   * @param value
+   *              The value; may be null.
+   */
+  void storeValue(int base, String value) {
+    if (value == null) {
+      this.entries[base + VALUE_START] = 0;
+      this.entries[base + VALUE_LENGTH] = NULL;
+    } else {
+      this.entries[base + VALUE_START] = this.store(value, 0);
+      this.entries[base + VALUE_LENGTH] = value.length();
+    } // if-else
+  } // storeValue(int, String)
+
+  /**
+   * Copy the characters of str from index from onward to the end of the
+   * arena, growing it if necessary.
+   *
+   * @param str
+   *              The string.
+   * @param from
+   *              The first character to copy.
+   *
+   * @return where the characters start in the arena.
+   */
+  int store(String str, int from) {
+    int length = str.length() - from;
+    if (this.used + length > this.chars.length) {
+      this.chars = Arrays.copyOf(this.chars,
+          Math.max(this.chars.length * 2, this.used + length));
+    } // if
+    str.getChars(from, str.length(), this.chars, this.used);
+    int start = this.used;
+    this.used += length;
+    return start;
+  } // store(String, int)
+
+  /**
+   * Copy the live characters to a new arena once holes make up at least
+   * half of the old one.
+   */
+  void compactIfSparse() {
+    if (this.garbage * 2 < this.used || this.used < DEFAULT_ARENA) {
+      return;
+    } // if
+    this.compact(Math.max(DEFAULT_ARENA, (this.used - this.garbage) * 2));
+  } // compactIfSparse()
+
+  /**
+   * Copy the live characters to a new arena of the given length.
+   *
+   * @param length
+   *               The length of the new arena; at least the number of
+   *               live characters.
+   */
+  void compact(int length) {
+    char[] old = this.chars;
+    this.chars = new char[length];
+    this.used = 0;
+    this.garbage = 0;
+    for (int n = 0; n < this.size; n++) {
+      int base = n * STRIDE;
+      this.move(old, base + KEY_START, base + KEY_LENGTH);
+      this.move(old, base + VALUE_START, base + VALUE_LENGTH);
+    } // for
+  } // compact(int)
+
+  /**
+   * Copy one string of a pair from the old arena to the end of the new
+   * one, updating where the pair says it starts.
+   *
+   * @param old
+   *               The old arena.
+   * @param start
+   *               The index in `entries` of the string's start.
+   * @param length
+   *               The index in `entries` of the string's length.
+   */
+  void move(char[] old, int start, int length) {
+    int count = this.entries[length];
+    if (count == NULL) {
+      return;
+    } // if
+    System.arraycopy(old, this.entries[start], this.chars, this.used, count);
+    this.entries[start] = this.used;
+    this.used += count;
+  } // move(char[], int, int)
+} // class CompactStringArray
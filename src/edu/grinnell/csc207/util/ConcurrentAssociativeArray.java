@@ -0,0 +1,704 @@
+package edu.grinnell.csc207.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A thread-safe associative array. The pairs are split by hash among
+ * segments, each an ordinary AssociativeArray that is never changed once
+ * it has been published. A write copies only the segment its key falls
+ * in (and the short array of segments), changes the copy, and publishes
+ * the result through a volatile field; the number of segments doubles as
+ * the array grows, so each stays small. Reads (get, hasKey, size and the
+ * rest) therefore take no lock and always see a complete state, never
+ * one caught halfway through an expand() or a remove(). Writes are
+ * serialized on the array.
+ *
+ * Each key carries the number of the write that added it, so keyAt,
+ * valueAt and snapshot can still follow insertion order. They work from
+ * a read-only copy of the pairs in that order, made the first time one
+ * of them is called after a write and shared until the next.
+ *
+ * A sequence of calls (say, size() followed by keyAt(n)) may see
+ * different states if a write happens in between; use snapshot() to read
+ * several things from one state, and update() to make several changes
+ * in a single step.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ *
+ * @author Tiffany Tang
+ */
+public class ConcurrentAssociativeArray<K, V> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of segments in a new array; a power of two.
+   */
+  static final int MIN_SEGMENTS = 4;
+
+  /**
+   * The number of pairs per segment, on average, above which the
+   * number of segments doubles.
+   */
+  static final int SEGMENT_SIZE = 32;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The current state. Never modified after it is assigned here.
+   */
+  private volatile State<K, V> state;
+
+  /**
+   * How much each segment grows by; only read and written under the lock.
+   */
+  private float growthFactor;
+
+  /**
+   * When each segment shrinks; only read and written under the lock.
+   */
+  private float shrinkLoad;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new, empty concurrent associative array.
+   */
+  public ConcurrentAssociativeArray() {
+    this.growthFactor = AssociativeArray.DEFAULT_GROWTH_FACTOR;
+    this.shrinkLoad = AssociativeArray.DEFAULT_SHRINK_LOAD;
+    this.state = new State<>(this.emptySegments(MIN_SEGMENTS), 0, 0);
+  } // ConcurrentAssociativeArray()
+
+  // +------------------+--------------------------------------------
+  // | Standard Methods |
+  // +------------------+
+
+  /**
+   * Create a copy of this array, which is also safe to share. The two
+   * start out sharing the current state, which neither changes.
+   *
+   * @return a new copy of the array
+   */
+  public synchronized ConcurrentAssociativeArray<K, V> clone() {
+    ConcurrentAssociativeArray<K, V> copy = new ConcurrentAssociativeArray<>();
+    copy.growthFactor = this.growthFactor;
+    copy.shrinkLoad = this.shrinkLoad;
+    copy.state = this.state;
+    return copy;
+  } // clone()
+
+  /**
+   * Convert the array to a string.
+   *
+   * @return a string of the form "{Key0:Value0, Key1:Value1, ... KeyN:ValueN}"
+   */
+  public String toString() {
+    return this.state.ordered().toString();
+  } // toString()
+
+  // +----------------+----------------------------------------------
+  // | Public Methods |
+  // +----------------+
+
+  /**
+   * Set the value associated with key to value.
+   *
+   * @param key
+   *              The key whose value we are setting.
+   * @param value
+   *              The value of that key.
+   */
+  public synchronized void set(K key, V value) {
+    State<K, V> current = this.state;
+    int s = current.segmentOf(key);
+    AssociativeArray<K, Entry<V>> next = current.segments[s].clone();
+    int index = next.find(key);
+    if (index == AssociativeArray.NOT_FOUND) {
+      next.append(key, new Entry<>(current.nextSeq, value));
+      this.publish(current.with(s, next, 1));
+    } else {
+      next.setValueAt(index, new Entry<>(next.valueAt(index).seq, value));
+      this.publish(current.with(s, next, 0));
+    } // if-else
+  } // set(K,V)
+
+  /**
+   * Set the value associated with key to value, but only if key does
+   * not already appear. The check and the change happen atomically.
+   *
+   * @param key
+   *              The key whose value we are setting.
+   * @param value
+   *              The value to associate with a new key.
+   *
+   * @return the value already associated with key, or null if key
+   *         was not present (and so now maps to value).
+   */
+  public synchronized V putIfAbsent(K key, V value) {
+    State<K, V> current = this.state;
+    int s = current.segmentOf(key);
+    Entry<V> existing = current.segments[s].getOrDefault(key, null);
+    if (existing != null) {
+      return existing.value;
+    } // if
+    AssociativeArray<K, Entry<V>> next = current.segments[s].clone();
+    next.append(key, new Entry<>(current.nextSeq, value));
+    this.publish(current.with(s, next, 1));
+    return null;
+  } // putIfAbsent(K, V)
+
+  /**
+   * Get the value associated with key. Takes no lock.
+   *
+   * @param key A key
+   *
+   * @return The corresponding value
+   *
+   * @throws KeyNotFoundException
+   *                              when the key is null or does not appear in the
+   *                              associative array.
+   */
+  public V get(K key) throws NullKeyException, KeyNotFoundException {
+    return this.state.segmentFor(key).get(key).value;
+  } // get(K)
+
+  /**
+   * Get the value associated with key, or a default if key does not
+   * appear. Takes no lock.
+   *
+   * @param key
+   *                     A key; null is never present.
+   * @param defaultValue
+   *                     The value to return when key is missing.
+   *
+   * @return the corresponding value, or defaultValue.
+   */
+  public V getOrDefault(K key, V defaultValue) {
+    Entry<V> entry = this.state.segmentFor(key).getOrDefault(key, null);
+    return (entry == null) ? defaultValue : entry.value;
+  } // getOrDefault(K, V)
+
+  /**
+   * Determine if key appears in the associative array. Takes no lock.
+   *
+   * @param key
+   *            The key we're looking for.
+   *
+   * @return true if the key appears and false otherwise.
+   */
+  public boolean hasKey(K key) {
+    return this.state.segmentFor(key).hasKey(key);
+  } // hasKey(K)
+
+  /**
+   * Remove the key/value pair associated with a key, if there is one.
+   *
+   * @param key The key to remove.
+   */
+  public synchronized void remove(K key) {
+    State<K, V> current = this.state;
+    int s = current.segmentOf(key);
+    if (!current.segments[s].hasKey(key)) {
+      return;
+    } // if
+    AssociativeArray<K, Entry<V>> next = current.segments[s].clone();
+    next.remove(key);
+    this.publish(current.with(s, next, -1));
+  } // remove(K)
+
+  /**
+   * Determine how many key/value pairs are in the associative array.
+   *
+   * @return The number of key/value pairs in the array.
+   */
+  public int size() {
+    return this.state.size;
+  } // size()
+
+  /**
+   * Get the key of the pair at the given position in insertion order.
+   *
+   * @param index
+   *              The position, from 0 to size() - 1.
+   *
+   * @return the key at that position.
+   */
+  public K keyAt(int index) {
+    return this.state.ordered().keyAt(index);
+  } // keyAt(int)
+
+  /**
+   * Get the value of the pair at the given position in insertion order.
+   *
+   * @param index
+   *              The position, from 0 to size() - 1.
+   *
+   * @return the value at that position.
+   */
+  public V valueAt(int index) {
+    return this.state.ordered().valueAt(index);
+  } // valueAt(int)
+
+  /**
+   * Return a copy of the pairs of the current state, in insertion order.
+   * Changing them does not change this array.
+   *
+   * @return the pairs as an KVPair array
+   */
+  public KVPair<K, V>[] getPair() {
+    return this.state.ordered().getPair();
+  } // getPair()
+
+  /**
+   * Return the pairs of the current state, in insertion order, as an
+   * associative array that cannot be changed. Reading several things
+   * from it gives consistent answers even while other threads write to
+   * this array.
+   *
+   * @return a read-only view of the current state; its set, remove and
+   *         other changing methods throw UnsupportedOperationException
+   */
+  public AssociativeArray<K, V> snapshot() {
+    return this.state.ordered();
+  } // snapshot()
+
+  /**
+   * Make several changes at once. The edit is applied to a private copy
+   * of the current pairs, which is then published in one step, so
+   * readers see either none of the changes or all of them. This copies
+   * every pair, so prefer set and remove for single changes.
+   *
+   * @param edit
+   *             The changes to make to the copy.
+   */
+  public synchronized void update(Consumer<AssociativeArray<K, V>> edit) {
+    AssociativeArray<K, V> next = this.state.ordered().clone();
+    edit.accept(next);
+    this.publish(this.split(next));
+  } // update(Consumer)
+
+  /**
+   * Set every key of map to its value. The pairs are added to one copy
+   * of the current state, which is then published in one step, so
+   * readers see either none of them or all of them.
+   *
+   * @param map
+   *            The keys and values to set.
+   */
+  public synchronized void addAll(Map<? extends K, ? extends V> map) {
+    this.update((next) -> next.addAll(map));
+  } // addAll(Map)
+
+  /**
+   * Set the key of every pair to its value, publishing them all in one
+   * step as for addAll(Map).
+   *
+   * @param newPairs
+   *                 The pairs to set.
+   */
+  public synchronized void addAll(Iterable<? extends KVPair<? extends K, ? extends V>> newPairs) {
+    this.update((next) -> next.addAll(newPairs));
+  } // addAll(Iterable)
+
+  /**
+   * Determine how many pairs the segments can hold, together, before
+   * any of them has to grow.
+   *
+   * @return the capacity.
+   */
+  public int capacity() {
+    int capacity = 0;
+    for (AssociativeArray<K, Entry<V>> segment : this.state.segments) {
+      capacity += segment.capacity();
+    } // for
+    return capacity;
+  } // capacity()
+
+  /**
+   * Set how each segment grows and shrinks, as for AssociativeArray.
+   *
+   * @param growthFactor
+   *                     How much to grow by; more than 1.
+   * @param shrinkLoad
+   *                     The fraction of the capacity in use below which
+   *                     to shrink, from 0 (never) to 0.5.
+   *
+   * @throws IllegalArgumentException
+   *                                  if either is out of range.
+   */
+  public synchronized void setGrowthPolicy(float growthFactor, float shrinkLoad) {
+    // Check the arguments before anything changes.
+    new AssociativeArray<>(0).setGrowthPolicy(growthFactor, shrinkLoad);
+    this.growthFactor = growthFactor;
+    this.shrinkLoad = shrinkLoad;
+    this.rebuildSegments((segment) -> segment.setGrowthPolicy(growthFactor, shrinkLoad));
+  } // setGrowthPolicy(float, float)
+
+  /**
+   * Shrink the capacity of every segment to its number of pairs,
+   * publishing the trimmed copies in one step.
+   */
+  public synchronized void trimToSize() {
+    this.rebuildSegments(AssociativeArray::trimToSize);
+  } // trimToSize()
+
+  /**
+   * Estimate how many bytes the current state uses: the segments and
+   * the entries that number the pairs, but not the keys and values.
+   *
+   * @return the estimated number of bytes.
+   */
+  public long footprint() {
+    State<K, V> current = this.state;
+    long bytes = AssociativeArray.align(AssociativeArray.OBJECT_HEADER + Integer.BYTES
+        + Long.BYTES + 3 * AssociativeArray.REFERENCE)
+        + AssociativeArray.arrayBytes(current.segments.length, AssociativeArray.REFERENCE)
+        + (long) current.size
+            * AssociativeArray.align(AssociativeArray.OBJECT_HEADER + Long.BYTES
+                + AssociativeArray.REFERENCE);
+    for (AssociativeArray<K, Entry<V>> segment : current.segments) {
+      bytes += segment.footprint();
+    } // for
+    return bytes;
+  } // footprint()
+
+  // +-----------------+---------------------------------------------
+  // | Private Methods |
+  // +-----------------+
+
+  /**
+   * Publish a new state, first doubling the number of segments if they
+   * have grown too full. Only called under the lock.
+   *
+   * @param next
+   *             The new state.
+   */
+  private void publish(State<K, V> next) {
+    if (next.size > next.segments.length * SEGMENT_SIZE) {
+      AssociativeArray<K, Entry<V>>[] segments = this.emptySegments(next.segments.length * 2);
+      State<K, V> grown = new State<>(segments, next.size, next.nextSeq);
+      for (AssociativeArray<K, Entry<V>> segment : next.segments) {
+        for (int n = 0; n < segment.size(); n++) {
+          segments[grown.segmentOf(segment.keyAt(n))].append(segment.keyAt(n),
+              segment.valueAt(n));
+        } // for
+      } // for
+      next = grown;
+    } // if
+    this.state = next;
+  } // publish(State)
+
+  /**
+   * Split the pairs of an associative array among enough segments,
+   * numbering them in order.
+   *
+   * @param pairs
+   *              The pairs, in insertion order.
+   *
+   * @return a state holding those pairs.
+   */
+  private State<K, V> split(AssociativeArray<K, V> pairs) {
+    int count = MIN_SEGMENTS;
+    while (pairs.size() > count * SEGMENT_SIZE) {
+      count *= 2;
+    } // while
+    AssociativeArray<K, Entry<V>>[] segments = this.emptySegments(count);
+    State<K, V> next = new State<>(segments, pairs.size(), pairs.size());
+    for (int n = 0; n < pairs.size(); n++) {
+      segments[next.segmentOf(pairs.keyAt(n))].append(pairs.keyAt(n),
+          new Entry<>(n, pairs.valueAt(n)));
+    } // for
+    return next;
+  } // split(AssociativeArray)
+
+  /**
+   * Copy every segment, change each copy, and publish them in one step.
+   *
+   * @param change
+   *               The change to make to each copy.
+   */
+  private void rebuildSegments(Consumer<AssociativeArray<K, Entry<V>>> change) {
+    State<K, V> current = this.state;
+    AssociativeArray<K, Entry<V>>[] segments = current.segments.clone();
+    for (int s = 0; s < segments.length; s++) {
+      segments[s] = segments[s].clone();
+      change.accept(segments[s]);
+    } // for
+    this.state = new State<>(segments, current.size, current.nextSeq);
+  } // rebuildSegments(Consumer)
+
+  /**
+   * Make empty segments that follow the current growth policy.
+   *
+   * @param count
+   *              The number of segments.
+   *
+   * @return the segments.
+   */
+  @SuppressWarnings({ "unchecked" })
+  private AssociativeArray<K, Entry<V>>[] emptySegments(int count) {
+    AssociativeArray<K, Entry<V>>[] segments = new AssociativeArray[count];
+    for (int s = 0; s < count; s++) {
+      segments[s] = new AssociativeArray<>();
+      segments[s].setGrowthPolicy(this.growthFactor, this.shrinkLoad);
+    } // for
+    return segments;
+  } // emptySegments(int)
+
+  // +---------------+-----------------------------------------------
+  // | Inner Classes |
+  // +---------------+
+
+  /**
+   * A value and the number of the write that added its key.
+   *
+   * @param <V> the value type
+   */
+  private static final class Entry<V> {
+    /** The number of the write that added the key. */
+    final long seq;
+
+    /** The value. */
+    final V value;
+
+    /**
+     * Create an entry.
+     *
+     * @param seq   the number of the write that added the key
+     * @param value the value
+     */
+    Entry(long seq, V value) {
+      this.seq = seq;
+      this.value = value;
+    } // Entry(long, V)
+  } // class Entry
+
+  /**
+   * One published state: the segments, none of which changes once the
+   * state is published, and the pairs in order once someone asks.
+   *
+   * @param <K> the key type
+   * @param <V> the value type
+   */
+  private static final class State<K, V> {
+    /** The segments; a key lives in the one segmentOf picks. */
+    final AssociativeArray<K, Entry<V>>[] segments;
+
+    /** The number of pairs in all the segments. */
+    final int size;
+
+    /** The number for the next key added. */
+    final long nextSeq;
+
+    /** How far to shift a spread hash to pick a segment. */
+    final int shift;
+
+    /** The pairs in insertion order, or null until someone asks. */
+    private volatile ReadOnly<K, V> ordered;
+
+    /**
+     * Create a state.
+     *
+     * @param segments the segments; a power of two of them
+     * @param size     the number of pairs in them
+     * @param nextSeq  the number for the next key added
+     */
+    State(AssociativeArray<K, Entry<V>>[] segments, int size, long nextSeq) {
+      this.segments = segments;
+      this.size = size;
+      this.nextSeq = nextSeq;
+      this.shift = Integer.numberOfLeadingZeros(segments.length) + 1;
+    } // State(AssociativeArray[], int, long)
+
+    /**
+     * Pick the segment for a key. The segment tables index by the low
+     * bits of the hash, so this mixes it and uses the high bits.
+     *
+     * @param key the key; may be null
+     * @return the index of its segment
+     */
+    int segmentOf(Object key) {
+      return (AssociativeArray.hash(key) * 0x9E3779B9) >>> this.shift;
+    } // segmentOf(Object)
+
+    /**
+     * Get the segment for a key.
+     *
+     * @param key the key; may be null
+     * @return its segment
+     */
+    AssociativeArray<K, Entry<V>> segmentFor(Object key) {
+      return this.segments[this.segmentOf(key)];
+    } // segmentFor(Object)
+
+    /**
+     * Make the state that follows from replacing one segment.
+     *
+     * @param s       the index of the segment
+     * @param segment its replacement
+     * @param added   how many pairs the replacement adds (1, 0 or -1)
+     * @return the new state
+     */
+    State<K, V> with(int s, AssociativeArray<K, Entry<V>> segment, int added) {
+      AssociativeArray<K, Entry<V>>[] next = this.segments.clone();
+      next[s] = segment;
+      return new State<>(next, this.size + added, this.nextSeq + Math.max(added, 0));
+    } // with(int, AssociativeArray, int)
+
+    /**
+     * Get the pairs in insertion order, putting them in order the first
+     * time. Two readers may both do so; either result will do.
+     *
+     * @return the pairs, read-only
+     */
+    ReadOnly<K, V> ordered() {
+      ReadOnly<K, V> result = this.ordered;
+      if (result == null) {
+        KVPair<K, Entry<V>>[] all = this.sorted();
+        result = new ReadOnly<>(all.length);
+        for (KVPair<K, Entry<V>> pair : all) {
+          result.append(pair.key, pair.val.value);
+        } // for
+        this.ordered = result;
+      } // if
+      return result;
+    } // ordered()
+
+    /**
+     * Gather the pairs of every segment, sorted by number.
+     *
+     * @return the pairs, which are shared with the segments
+     */
+    @SuppressWarnings({ "unchecked" })
+    private KVPair<K, Entry<V>>[] sorted() {
+      KVPair<K, Entry<V>>[] all = new KVPair[this.size];
+      int n = 0;
+      for (AssociativeArray<K, Entry<V>> segment : this.segments) {
+        System.arraycopy(segment.pairs, 0, all, n, segment.size);
+        n += segment.size;
+      } // for
+      Arrays.sort(all, Comparator.comparingLong((KVPair<K, Entry<V>> pair) -> pair.val.seq));
+      return all;
+    } // sorted()
+  } // class State
+
+  /**
+   * An associative array that cannot be changed once it has been
+   * filled in, for snapshot().
+   *
+   * @param <K> the key type
+   * @param <V> the value type
+   */
+  private static final class ReadOnly<K, V> extends AssociativeArray<K, V> {
+    /**
+     * Create an empty array with room for the given number of pairs.
+     *
+     * @param capacity the number of pairs it will hold
+     */
+    ReadOnly(int capacity) {
+      super(capacity);
+    } // ReadOnly(int)
+
+    /**
+     * Copy the pairs, so that the copy can be changed.
+     *
+     * @return a new, changeable copy
+     */
+    public AssociativeArray<K, V> clone() {
+      return super.clone();
+    } // clone()
+
+    /**
+     * Return a copy of the pairs, so that changing them does not change
+     * this array.
+     *
+     * @return the pairs as an KVPair array
+     */
+    public KVPair<K, V>[] getPair() {
+      return super.clone().getPair();
+    } // getPair()
+
+    /**
+     * Refuse to change the array.
+     *
+     * @param key   ignored
+     * @param value ignored
+     * @throws UnsupportedOperationException always
+     */
+    public void set(K key, V value) {
+      throw new UnsupportedOperationException("Read-only snapshot");
+    } // set(K, V)
+
+    /**
+     * Refuse to change the array.
+     *
+     * @param key   ignored
+     * @param value ignored
+     * @return nothing
+     * @throws UnsupportedOperationException always
+     */
+    public V putIfAbsent(K key, V value) {
+      throw new UnsupportedOperationException("Read-only snapshot");
+    } // putIfAbsent(K, V)
+
+    /**
+     * Refuse to change the array.
+     *
+     * @param key ignored
+     * @throws UnsupportedOperationException always
+     */
+    public void remove(K key) {
+      throw new UnsupportedOperationException("Read-only snapshot");
+    } // remove(K)
+
+    /**
+     * Refuse to change the array.
+     *
+     * @param map ignored
+     * @throws UnsupportedOperationException always
+     */
+    public void addAll(Map<? extends K, ? extends V> map) {
+      throw new UnsupportedOperationException("Read-only snapshot");
+    } // addAll(Map)
+
+    /**
+     * Refuse to change the array.
+     *
+     * @param newPairs ignored
+     * @throws UnsupportedOperationException always
+     */
+    public void addAll(Iterable<? extends KVPair<? extends K, ? extends V>> newPairs) {
+      throw new UnsupportedOperationException("Read-only snapshot");
+    } // addAll(Iterable)
+
+    /**
+     * Refuse to change the array.
+     *
+     * @param growthFactor ignored
+     * @param shrinkLoad   ignored
+     * @throws UnsupportedOperationException always
+     */
+    public void setGrowthPolicy(float growthFactor, float shrinkLoad) {
+      throw new UnsupportedOperationException("Read-only snapshot");
+    } // setGrowthPolicy(float, float)
+
+    /**
+     * Refuse to change the array.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    public void trimToSize() {
+      throw new UnsupportedOperationException("Read-only snapshot");
+    } // trimToSize()
+  } // class ReadOnly
+} // class ConcurrentAssociativeArray
@@ -0,0 +1,217 @@
+package edu.grinnell.csc207.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies (or any non-negative longs) with a fixed
+ * relative precision, in the style of HdrHistogram. Values below 128
+ * are counted exactly; above that, each power of two is split into 64
+ * buckets, so every value is counted in a bucket at most 1/64 (about
+ * 1.6%) as wide as the value itself. That covers the whole range of a
+ * long in 3712 counters (about 29 KB), whether the values are a few
+ * nanoseconds or several minutes.
+ *
+ * Recording is a single atomic increment and never allocates or locks,
+ * so any number of threads can record at once. Reading (count,
+ * percentile and so on) does not stop recording either; a reading taken
+ * while other threads record may or may not include their values.
+ *
+ * @author Tiffany Tang
+ */
+public class LatencyHistogram {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The number of bits of each value that are kept. */
+  static final int PRECISION_BITS = 7;
+
+  /** Values below this are counted exactly. */
+  static final int EXACT = 1 << PRECISION_BITS;
+
+  /** The number of buckets each power of two above EXACT is split into. */
+  static final int HALF = EXACT / 2;
+
+  /** The number of buckets. */
+  static final int BUCKETS = EXACT + (Long.SIZE - 1 - PRECISION_BITS) * HALF;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** How many values fell in each bucket. */
+  private final AtomicLongArray counts;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Creates an empty histogram.
+   */
+  public LatencyHistogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+  } // LatencyHistogram()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Records a value. Negative values (say, from a clock that went
+   * backwards) are recorded as zero.
+   *
+   * @param value the value
+   */
+  public void record(long value) {
+    this.counts.incrementAndGet(bucket(Math.max(value, 0)));
+  } // record(long)
+
+  /**
+   * Returns the number of values recorded.
+   *
+   * @return the number of values
+   */
+  public long count() {
+    long total = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      total += this.counts.get(b);
+    } // for
+    return total;
+  } // count()
+
+  /**
+   * Returns (an upper bound within the histogram's precision of) the
+   * value that the given fraction of the recorded values are at or
+   * below. percentile(0.5) is the median, percentile(0.99) the 99th
+   * percentile and percentile(1.0) the largest value.
+   *
+   * @param fraction the fraction, from 0 to 1
+   * @return the value, or 0 if nothing has been recorded
+   * @throws IllegalArgumentException if fraction is not between 0 and 1
+   */
+  public long percentile(double fraction) {
+    if (!(fraction >= 0.0 && fraction <= 1.0)) {
+      throw new IllegalArgumentException("Invalid fraction: " + fraction);
+    } // if
+    long[] snapshot = this.snapshot();
+    long total = 0;
+    for (long count : snapshot) {
+      total += count;
+    } // for
+    if (total == 0) {
+      return 0;
+    } // if
+    long rank = Math.max(1, (long) Math.ceil(fraction * total));
+    long seen = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      seen += snapshot[b];
+      if (seen >= rank) {
+        return highest(b);
+      } // if
+    } // for
+    return highest(BUCKETS - 1);
+  } // percentile(double)
+
+  /**
+   * Returns (an upper bound within the histogram's precision of) the
+   * largest value recorded.
+   *
+   * @return the value, or 0 if nothing has been recorded
+   */
+  public long max() {
+    for (int b = BUCKETS - 1; b >= 0; b--) {
+      if (this.counts.get(b) != 0) {
+        return highest(b);
+      } // if
+    } // for
+    return 0;
+  } // max()
+
+  /**
+   * Returns the mean of the values recorded, within the histogram's
+   * precision.
+   *
+   * @return the mean, or 0 if nothing has been recorded
+   */
+  public double mean() {
+    long total = 0;
+    double sum = 0;
+    for (int b = 0; b < BUCKETS; b++) {
+      long count = this.counts.get(b);
+      if (count != 0) {
+        total += count;
+        sum += (double) count * ((double) lowest(b) + highest(b)) / 2;
+      } // if
+    } // for
+    return (total == 0) ? 0 : sum / total;
+  } // mean()
+
+  /**
+   * Forgets every value recorded.
+   */
+  public void reset() {
+    for (int b = 0; b < BUCKETS; b++) {
+      this.counts.set(b, 0);
+    } // for
+  } // reset()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Copies the counts.
+   *
+   * @return the count in each bucket
+   */
+  private long[] snapshot() {
+    long[] snapshot = new long[BUCKETS];
+    for (int b = 0; b < BUCKETS; b++) {
+      snapshot[b] = this.counts.get(b);
+    } // for
+    return snapshot;
+  } // snapshot()
+
+  /**
+   * Returns the bucket that counts a value.
+   *
+   * @param value a non-negative value
+   * @return the index of its bucket
+   */
+  static int bucket(long value) {
+    if (value < EXACT) {
+      return (int) value;
+    } // if
+    int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - (PRECISION_BITS - 1);
+    return EXACT + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+  } // bucket(long)
+
+  /**
+   * Returns the smallest value counted in a bucket.
+   *
+   * @param bucket the index of the bucket
+   * @return the value
+   */
+  static long lowest(int bucket) {
+    if (bucket < EXACT) {
+      return bucket;
+    } // if
+    int shift = (bucket - EXACT) / HALF + 1;
+    return (long) ((bucket - EXACT) % HALF + HALF) << shift;
+  } // lowest(int)
+
+  /**
+   * Returns the largest value counted in a bucket.
+   *
+   * @param bucket the index of the bucket
+   * @return the value
+   */
+  static long highest(int bucket) {
+    if (bucket < EXACT) {
+      return bucket;
+    } // if
+    int shift = (bucket - EXACT) / HALF + 1;
+    return lowest(bucket) + (1L << shift) - 1;
+  } // highest(int)
+} // class LatencyHistogram
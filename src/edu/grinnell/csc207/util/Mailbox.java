@@ -0,0 +1,109 @@
+package edu.grinnell.csc207.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single-writer mailbox: tasks given to it run one at a time, in the
+ * order they were given, on threads borrowed from a shared executor. An
+ * object that only its mailbox touches therefore needs no locks, and
+ * thousands of mailboxes can share a handful of threads, since a mailbox
+ * with nothing to do holds no thread at all.
+ *
+ * To keep one busy mailbox from hogging a thread, a mailbox runs at most
+ * BATCH tasks before giving its thread back and queueing itself again.
+ *
+ * @author Tiffany Tang
+ */
+public class Mailbox implements Executor {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The most tasks to run before giving the thread to other mailboxes. */
+  static final int BATCH = 64;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The threads that run the tasks. */
+  private final Executor workers;
+
+  /** The tasks waiting to run, oldest first. */
+  private final ConcurrentLinkedQueue<Runnable> tasks;
+
+  /**
+   * The number of tasks given and not yet finished. The mailbox is
+   * scheduled on a worker exactly when this goes from 0 to 1, or when a
+   * batch ends with work left.
+   */
+  private final AtomicInteger pending;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Creates an empty mailbox whose tasks run on the given executor.
+   *
+   * @param workers the executor
+   */
+  public Mailbox(Executor workers) {
+    this.workers = workers;
+    this.tasks = new ConcurrentLinkedQueue<>();
+    this.pending = new AtomicInteger();
+  } // Mailbox(Executor)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Runs a task after every task given before it. Never blocks. A task
+   * that throws is reported to the thread's uncaught exception handler
+   * and does not stop the tasks after it.
+   *
+   * @param task the task
+   */
+  public void execute(Runnable task) {
+    this.tasks.add(task);
+    if (this.pending.getAndIncrement() == 0) {
+      this.workers.execute(this::drain);
+    } // if
+  } // execute(Runnable)
+
+  /**
+   * Returns the number of tasks given and not yet finished.
+   *
+   * @return the number of tasks
+   */
+  public int backlog() {
+    return this.pending.get();
+  } // backlog()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Runs up to BATCH tasks, then queues the mailbox again if there are
+   * more. Only one drain runs at a time.
+   */
+  private void drain() {
+    for (int n = 0; n < BATCH; n++) {
+      Runnable task = this.tasks.poll();
+      try {
+        task.run();
+      } catch (RuntimeException | Error e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+      } // try-catch
+      if (this.pending.decrementAndGet() == 0) {
+        return;
+      } // if
+    } // for
+    this.workers.execute(this::drain);
+  } // drain()
+} // class Mailbox
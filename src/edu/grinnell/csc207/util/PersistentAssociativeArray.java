@@ -0,0 +1,543 @@
+package edu.grinnell.csc207.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable associative array that keeps its pairs in insertion order.
+ * Instead of changing the array, with() and without() return a new one
+ * that shares all but O(log n) of its nodes with the old, so keeping an
+ * old version around (as an undo checkpoint, say, or as the version the
+ * UI is still showing) costs nothing, and the versions can be read from
+ * any number of threads without locks.
+ *
+ * Two balanced (AVL) trees hold the pairs. The order tree is keyed by a
+ * sequence number given to each key when it is first added, and counts
+ * the nodes under each node so that keyAt(n) takes O(log n). The index
+ * tree is keyed by the hash of the key, and each of its nodes holds the
+ * (key, sequence number, value) triples of the keys with that hash.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ *
+ * @author Tiffany Tang
+ */
+public final class PersistentAssociativeArray<K, V> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The empty array; there is only one.
+   */
+  private static final PersistentAssociativeArray<?, ?> EMPTY =
+      new PersistentAssociativeArray<>(null, null, 0);
+
+  // +----------------+----------------------------------------------
+  // | Helper Classes |
+  // +----------------+
+
+  /**
+   * A node of an immutable AVL tree with long keys.
+   */
+  private static final class Node {
+    /** The key of the node. */
+    final long key;
+
+    /** The value of the node. */
+    final Object value;
+
+    /** The smaller and larger subtrees. */
+    final Node left;
+    final Node right;
+
+    /** The height of the subtree rooted here, and its number of nodes. */
+    final int height;
+    final int size;
+
+    /**
+     * Create a node.
+     *
+     * @param key   the key
+     * @param value the value
+     * @param left  the subtree of smaller keys
+     * @param right the subtree of larger keys
+     */
+    Node(long key, Object value, Node left, Node right) {
+      this.key = key;
+      this.value = value;
+      this.left = left;
+      this.right = right;
+      this.height = Math.max(height(left), height(right)) + 1;
+      this.size = size(left) + size(right) + 1;
+    } // Node(long, Object, Node, Node)
+  } // class Node
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The pairs by sequence number; each value is an Object[] {key, value}.
+   */
+  private final Node order;
+
+  /**
+   * The pairs by hash; each value is an Object[] of (key, sequence
+   * number, value) triples.
+   */
+  private final Node index;
+
+  /**
+   * The sequence number of the next new key.
+   */
+  private final long nextSeq;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create an array from its trees.
+   *
+   * @param order   the order tree
+   * @param index   the index tree
+   * @param nextSeq the next sequence number
+   */
+  private PersistentAssociativeArray(Node order, Node index, long nextSeq) {
+    this.order = order;
+    this.index = index;
+    this.nextSeq = nextSeq;
+  } // PersistentAssociativeArray(Node, Node, long)
+
+  /**
+   * Get the empty array.
+   *
+   * @param <K> the key type
+   * @param <V> the value type
+   *
+   * @return the empty array
+   */
+  @SuppressWarnings({ "unchecked" })
+  public static <K, V> PersistentAssociativeArray<K, V> empty() {
+    return (PersistentAssociativeArray<K, V>) EMPTY;
+  } // empty()
+
+  // +------------------+--------------------------------------------
+  // | Standard Methods |
+  // +------------------+
+
+  /**
+   * Convert the array to a string.
+   *
+   * @return a string of the form "{Key0:Value0, Key1:Value1, ... KeyN:ValueN}"
+   */
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    this.forEach((key, value) -> {
+      if (result.length() > 1) {
+        result.append(", ");
+      } // if
+      result.append(key).append(':').append(value);
+    });
+    return result.append('}').toString();
+  } // toString()
+
+  // +----------------+----------------------------------------------
+  // | Public Methods |
+  // +----------------+
+
+  /**
+   * Get an array in which key is associated with value. A new key goes
+   * at the end of the insertion order; an existing key keeps its place.
+   *
+   * @param key
+   *              The key whose value we are setting.
+   * @param value
+   *              The value of that key.
+   *
+   * @return the new array.
+   *
+   * @throws NullPointerException
+   *                              if key is null.
+   */
+  public PersistentAssociativeArray<K, V> with(K key, V value) {
+    Objects.requireNonNull(key, "A null key is provided.");
+    int h = AssociativeArray.hash(key);
+    Node bucketNode = find(this.index, h);
+    Object[] bucket = (bucketNode == null) ? new Object[0] : (Object[]) bucketNode.value;
+    int at = position(bucket, key);
+    long seq;
+    Object[] updated;
+    if (at >= 0) {
+      if (bucket[at + 2] == value) {
+        return this;
+      } // if
+      seq = (Long) bucket[at + 1];
+      updated = bucket.clone();
+      updated[at + 2] = value;
+    } else {
+      seq = this.nextSeq;
+      updated = Arrays.copyOf(bucket, bucket.length + 3);
+      updated[bucket.length] = key;
+      updated[bucket.length + 1] = seq;
+      updated[bucket.length + 2] = value;
+    } // if-else
+    return new PersistentAssociativeArray<>(
+        insert(this.order, seq, new Object[] { key, value }),
+        insert(this.index, h, updated),
+        (at >= 0) ? this.nextSeq : this.nextSeq + 1);
+  } // with(K, V)
+
+  /**
+   * Get an array without key. If key does not appear, returns this array.
+   *
+   * @param key
+   *            The key to remove.
+   *
+   * @return the new array.
+   */
+  public PersistentAssociativeArray<K, V> without(K key) {
+    int h = AssociativeArray.hash(key);
+    Node bucketNode = find(this.index, h);
+    if (bucketNode == null) {
+      return this;
+    } // if
+    Object[] bucket = (Object[]) bucketNode.value;
+    int at = position(bucket, key);
+    if (at < 0) {
+      return this;
+    } // if
+    long seq = (Long) bucket[at + 1];
+    Node index;
+    if (bucket.length == 3) {
+      index = delete(this.index, h);
+    } else {
+      Object[] updated = new Object[bucket.length - 3];
+      System.arraycopy(bucket, 0, updated, 0, at);
+      System.arraycopy(bucket, at + 3, updated, at, bucket.length - at - 3);
+      index = insert(this.index, h, updated);
+    } // if-else
+    return new PersistentAssociativeArray<>(delete(this.order, seq), index, this.nextSeq);
+  } // without(K)
+
+  /**
+   * Get the value associated with key.
+   *
+   * @param key A key
+   *
+   * @return The corresponding value
+   *
+   * @throws KeyNotFoundException
+   *                              when the key is null or does not appear.
+   */
+  public V get(K key) throws NullKeyException, KeyNotFoundException {
+    if (key == null) {
+      throw new NullKeyException("A null key is provided.");
+    } // if
+    Object[] bucket = this.bucket(key);
+    int at = position(bucket, key);
+    if (at < 0) {
+      throw new KeyNotFoundException("The key is not found.");
+    } // if
+    return this.cast(bucket[at + 2]);
+  } // get(K)
+
+  /**
+   * Get the value associated with key, or a default if key does not
+   * appear.
+   *
+   * @param key
+   *                     A key; null is never present.
+   * @param defaultValue
+   *                     The value to return when key is missing.
+   *
+   * @return the corresponding value, or defaultValue.
+   */
+  public V getOrDefault(K key, V defaultValue) {
+    Object[] bucket = this.bucket(key);
+    int at = position(bucket, key);
+    return (at < 0) ? defaultValue : this.cast(bucket[at + 2]);
+  } // getOrDefault(K, V)
+
+  /**
+   * Determine if key appears in the array.
+   *
+   * @param key
+   *            The key we're looking for.
+   *
+   * @return true if the key appears and false otherwise.
+   */
+  public boolean hasKey(K key) {
+    return key != null && position(this.bucket(key), key) >= 0;
+  } // hasKey(K)
+
+  /**
+   * Determine how many key/value pairs are in the array.
+   *
+   * @return The number of key/value pairs in the array.
+   */
+  public int size() {
+    return size(this.order);
+  } // size()
+
+  /**
+   * Get the key of the pair at the given position in insertion order.
+   *
+   * @param index
+   *              The position, from 0 to size() - 1.
+   *
+   * @return the key at that position.
+   *
+   * @throws IndexOutOfBoundsException
+   *                                   if there is no pair at that position.
+   */
+  @SuppressWarnings({ "unchecked" })
+  public K keyAt(int index) {
+    return (K) ((Object[]) nth(this.order, index).value)[0];
+  } // keyAt(int)
+
+  /**
+   * Get the value of the pair at the given position in insertion order.
+   *
+   * @param index
+   *              The position, from 0 to size() - 1.
+   *
+   * @return the value at that position.
+   *
+   * @throws IndexOutOfBoundsException
+   *                                   if there is no pair at that position.
+   */
+  public V valueAt(int index) {
+    return this.cast(((Object[]) nth(this.order, index).value)[1]);
+  } // valueAt(int)
+
+  /**
+   * Call action on each pair, in insertion order.
+   *
+   * @param action
+   *               What to do with each key and value.
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    walk(this.order, action);
+  } // forEach(BiConsumer)
+
+  // +-----------------+---------------------------------------------
+  // | Private Methods |
+  // +-----------------+
+
+  /**
+   * Get the triples of the keys that share key's hash.
+   *
+   * @param key
+   *            The key.
+   *
+   * @return the triples, possibly none.
+   */
+  private Object[] bucket(K key) {
+    Node node = find(this.index, AssociativeArray.hash(key));
+    return (node == null) ? new Object[0] : (Object[]) node.value;
+  } // bucket(K)
+
+  /**
+   * Find key among a bucket's triples.
+   *
+   * @param bucket
+   *               The triples.
+   * @param key
+   *               The key.
+   *
+   * @return the index of key's triple, or -1.
+   */
+  private static int position(Object[] bucket, Object key) {
+    for (int at = 0; at < bucket.length; at += 3) {
+      if (Objects.equals(bucket[at], key)) {
+        return at;
+      } // if
+    } // for
+    return -1;
+  } // position(Object[], Object)
+
+  /**
+   * Treat a stored value as a V.
+   *
+   * @param value
+   *              The stored value.
+   *
+   * @return the value.
+   */
+  @SuppressWarnings({ "unchecked" })
+  private V cast(Object value) {
+    return (V) value;
+  } // cast(Object)
+
+  /**
+   * Visit the nodes of a tree of {key, value} pairs in order.
+   *
+   * @param node
+   *               The root of the tree.
+   * @param action
+   *               What to do with each pair.
+   */
+  @SuppressWarnings({ "unchecked" })
+  private static <K, V> void walk(Node node, BiConsumer<? super K, ? super V> action) {
+    while (node != null) {
+      walk(node.left, action);
+      Object[] pair = (Object[]) node.value;
+      action.accept((K) pair[0], (V) pair[1]);
+      node = node.right;
+    } // while
+  } // walk(Node, BiConsumer)
+
+  /**
+   * Get the height of a tree.
+   *
+   * @param node the root, or null
+   * @return its height
+   */
+  private static int height(Node node) {
+    return (node == null) ? 0 : node.height;
+  } // height(Node)
+
+  /**
+   * Get the number of nodes in a tree.
+   *
+   * @param node the root, or null
+   * @return its size
+   */
+  private static int size(Node node) {
+    return (node == null) ? 0 : node.size;
+  } // size(Node)
+
+  /**
+   * Find the node with the given key.
+   *
+   * @param node the root
+   * @param key  the key
+   * @return the node, or null
+   */
+  private static Node find(Node node, long key) {
+    while (node != null && node.key != key) {
+      node = (key < node.key) ? node.left : node.right;
+    } // while
+    return node;
+  } // find(Node, long)
+
+  /**
+   * Find the node at the given position in key order.
+   *
+   * @param node  the root
+   * @param index the position
+   * @return the node
+   * @throws IndexOutOfBoundsException if there is no such node
+   */
+  private static Node nth(Node node, int index) {
+    Objects.checkIndex(index, size(node));
+    while (true) {
+      int before = size(node.left);
+      if (index < before) {
+        node = node.left;
+      } else if (index == before) {
+        return node;
+      } else {
+        index -= before + 1;
+        node = node.right;
+      } // if-else
+    } // while
+  } // nth(Node, int)
+
+  /**
+   * Build a node, rotating once or twice if its subtrees differ in height
+   * by two.
+   *
+   * @param key   the key
+   * @param value the value
+   * @param left  the smaller subtree
+   * @param right the larger subtree
+   * @return the balanced subtree
+   */
+  private static Node balance(long key, Object value, Node left, Node right) {
+    if (height(left) > height(right) + 1) {
+      if (height(left.left) >= height(left.right)) {
+        return new Node(left.key, left.value, left.left,
+            new Node(key, value, left.right, right));
+      } // if
+      Node middle = left.right;
+      return new Node(middle.key, middle.value,
+          new Node(left.key, left.value, left.left, middle.left),
+          new Node(key, value, middle.right, right));
+    } // if
+    if (height(right) > height(left) + 1) {
+      if (height(right.right) >= height(right.left)) {
+        return new Node(right.key, right.value,
+            new Node(key, value, left, right.left), right.right);
+      } // if
+      Node middle = right.left;
+      return new Node(middle.key, middle.value,
+          new Node(key, value, left, middle.left),
+          new Node(right.key, right.value, middle.right, right.right));
+    } // if
+    return new Node(key, value, left, right);
+  } // balance(long, Object, Node, Node)
+
+  /**
+   * Get a tree in which key maps to value.
+   *
+   * @param node  the root
+   * @param key   the key
+   * @param value the value
+   * @return the new root
+   */
+  private static Node insert(Node node, long key, Object value) {
+    if (node == null) {
+      return new Node(key, value, null, null);
+    } else if (key < node.key) {
+      return balance(node.key, node.value, insert(node.left, key, value), node.right);
+    } else if (key > node.key) {
+      return balance(node.key, node.value, node.left, insert(node.right, key, value));
+    } else {
+      return new Node(key, value, node.left, node.right);
+    } // if-else
+  } // insert(Node, long, Object)
+
+  /**
+   * Get a tree without the given key.
+   *
+   * @param node the root
+   * @param key  the key
+   * @return the new root
+   */
+  private static Node delete(Node node, long key) {
+    if (node == null) {
+      return null;
+    } else if (key < node.key) {
+      return balance(node.key, node.value, delete(node.left, key), node.right);
+    } else if (key > node.key) {
+      return balance(node.key, node.value, node.left, delete(node.right, key));
+    } else if (node.left == null) {
+      return node.right;
+    } else if (node.right == null) {
+      return node.left;
+    } else {
+      Node next = node.right;
+      while (next.left != null) {
+        next = next.left;
+      } // while
+      return balance(next.key, next.value, node.left, deleteFirst(node.right));
+    } // if-else
+  } // delete(Node, long)
+
+  /**
+   * Get a tree without its smallest key.
+   *
+   * @param node the root
+   * @return the new root
+   */
+  private static Node deleteFirst(Node node) {
+    if (node.left == null) {
+      return node.right;
+    } // if
+    return balance(node.key, node.value, deleteFirst(node.left), node.right);
+  } // deleteFirst(Node)
+} // class PersistentAssociativeArray